@@ -1,6 +1,7 @@
 package booking.core;
 
 import java.time.LocalDate;
+import java.util.Objects;
 
 /**
  * The {@code Booking} class represents a booking made by a customer.
@@ -90,6 +91,36 @@ public class Booking {
         return date;
     }
 
+    /**
+     * Compares bookings by value, so that two copies of the same stored booking
+     * are equal even when the store materializes a new object for each read.
+     *
+     * @param other The object to compare with.
+     * @return {@code true} if all fields are equal.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof Booking booking)) {
+            return false;
+        }
+        return bookingNumber == booking.bookingNumber && Objects.equals(name, booking.name)
+                && Objects.equals(email, booking.email) && Objects.equals(treatment, booking.treatment)
+                && Objects.equals(date, booking.date);
+    }
+
+    /**
+     * Computes a hash code consistent with {@link #equals(Object)}.
+     *
+     * @return The hash code.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(bookingNumber, name, email, treatment, date);
+    }
+
     /**
      * Returns a string representation of the booking details, including the ID,
      * customer's name, email, selected treatment, and the date of the booking.
@@ -67,4 +67,18 @@ public class BookingTest {
     assertNull(booking.getTreatment());
     assertNull(booking.getDate());
   }
+
+  /**
+   * Tests that bookings with the same fields are equal and share a hash code.
+   */
+  @Test
+  public void testEquals() {
+    LocalDate date = LocalDate.now().plusDays(3);
+    Booking booking = new Booking(7, "Kari Hansen", "kari@hansen.no", "Pedicure", date);
+    Booking copy = new Booking(7, "Kari Hansen", "kari@hansen.no", "Pedicure", date);
+
+    assertEquals(booking, copy);
+    assertEquals(booking.hashCode(), copy.hashCode());
+    assertNotEquals(booking, new Booking(8, "Kari Hansen", "kari@hansen.no", "Pedicure", date));
+  }
 }
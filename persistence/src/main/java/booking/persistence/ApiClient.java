@@ -7,12 +7,22 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ApiClient {
 
     private final HttpClient client;
     private static final String baseUrl = "http://localhost:8080/api/bookings";
 
+    /**
+     * The last body of a GET endpoint, with the ETag the server sent for it.
+     */
+    private record CachedResponse(String etag, String body) {
+    }
+
+    private final Map<String, CachedResponse> cachedResponses = new ConcurrentHashMap<>();
+
     public ApiClient() {
         this.client = HttpClient.newBuilder()
                 .version(HttpClient.Version.HTTP_2)
@@ -22,6 +32,11 @@ public class ApiClient {
 
     /**
      * Sends an HTTP request with the specified method, endpoint, and body.
+     * <p>
+     * A GET whose previous response carried an ETag is sent with
+     * {@code If-None-Match}, and a 304 Not Modified answer returns the body of that
+     * previous response, so polling an unchanged endpoint only transfers headers.
+     * </p>
      *
      * @param method   The HTTP method (GET, POST, PUT, DELETE).
      * @param endpoint The API endpoint (e.g., "/add").
@@ -35,9 +50,14 @@ public class ApiClient {
                 .uri(URI.create(baseUrl + endpoint))
                 .header("Content-Type", "application/json");
 
+        boolean get = method.toUpperCase(Locale.ROOT).equals("GET");
+        CachedResponse cached = get ? cachedResponses.get(endpoint) : null;
         switch (method.toUpperCase(Locale.ROOT)) {
             case "GET":
                 requestBuilder.GET();
+                if (cached != null) {
+                    requestBuilder.header("If-None-Match", cached.etag());
+                }
                 break;
             case "POST":
                 if (body == null) {
@@ -64,8 +84,20 @@ public class ApiClient {
 
         HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
 
-        if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            return response.body();
+        int status = response.statusCode();
+        if (status == 304 && cached != null) {
+            return cached.body();
+        } else if (status >= 200 && status < 300) {
+            String responseBody = response.body();
+            if (get) {
+                String etag = response.headers().firstValue("ETag").orElse(null);
+                if (etag != null) {
+                    cachedResponses.put(endpoint, new CachedResponse(etag, responseBody));
+                } else {
+                    cachedResponses.remove(endpoint);
+                }
+            }
+            return responseBody;
         } else {
             throw new RuntimeException("HTTP Error: " + response.statusCode() + " - " + response.body());
         }
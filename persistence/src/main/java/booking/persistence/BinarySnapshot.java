@@ -0,0 +1,205 @@
+package booking.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import booking.core.Booking;
+
+/**
+ * Compact binary snapshot of bookings, read through a memory-mapped file.
+ * <p>
+ * The file starts with a fixed header, followed by one fixed-width record per
+ * booking and a string table:
+ * </p>
+ * <pre>
+ * header  int magic, int version, int recordCount, int stringCount, long stringTableOffset
+ * record  int bookingNumber, int name, int email, int treatment, int epochDay
+ * strings int[stringCount] offsets, then per string: int byteLength, UTF-8 bytes
+ * </pre>
+ * <p>
+ * Names, emails and treatments are references into the string table, so each
+ * distinct string is stored once; {@code -1} stands for a missing string and
+ * {@link Integer#MIN_VALUE} for a missing date. Opening a snapshot only maps the
+ * file and checks the header. Bookings are decoded when they are requested, and
+ * each string is decoded at most once and then shared by every booking using it.
+ * </p>
+ * <p>
+ * A mapped snapshot is not thread-safe, and since a single mapping is limited
+ * to 2 GB, so is the file.
+ * </p>
+ */
+final class BinarySnapshot {
+
+    private static final int MAGIC = 0x424B534E; // "BKSN"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    private static final int RECORD_BYTES = 20;
+    private static final int NO_STRING = -1;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final ByteBuffer buffer;
+    private final int recordCount;
+    private final int stringTableOffset;
+    private final String[] strings;
+
+    private BinarySnapshot(ByteBuffer buffer, int recordCount, int stringCount, int stringTableOffset) {
+        this.buffer = buffer;
+        this.recordCount = recordCount;
+        this.stringTableOffset = stringTableOffset;
+        this.strings = new String[stringCount];
+    }
+
+    /**
+     * Maps a snapshot file and validates its header.
+     *
+     * @param file The snapshot file.
+     * @return The mapped snapshot.
+     * @throws IOException If the file cannot be mapped or is not a valid snapshot.
+     */
+    static BinarySnapshot map(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary snapshot is larger than 2 GB: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary booking snapshot: " + file);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported binary snapshot version " + buffer.getInt(4) + ": " + file);
+        }
+        int recordCount = buffer.getInt(8);
+        int stringCount = buffer.getInt(12);
+        long stringTableOffset = buffer.getLong(16);
+        if (recordCount < 0 || stringCount < 0
+                || stringTableOffset != HEADER_BYTES + (long) recordCount * RECORD_BYTES
+                || stringTableOffset + 4L * stringCount > buffer.capacity()) {
+            throw new IOException("Corrupt binary snapshot header: " + file);
+        }
+        return new BinarySnapshot(buffer, recordCount, stringCount, (int) stringTableOffset);
+    }
+
+    /**
+     * Writes bookings as a binary snapshot, replacing the file's contents.
+     *
+     * @param file     The file to write.
+     * @param bookings The bookings to write.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(Path file, List<Booking> bookings) throws IOException {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> encoded = new ArrayList<>();
+        int[] refs = new int[bookings.size() * 3];
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            refs[3 * i] = intern(booking.getName(), stringIds, encoded);
+            refs[3 * i + 1] = intern(booking.getEmail(), stringIds, encoded);
+            refs[3 * i + 2] = intern(booking.getTreatment(), stringIds, encoded);
+        }
+        long stringTableOffset = HEADER_BYTES + (long) bookings.size() * RECORD_BYTES;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(bookings.size());
+            out.writeInt(encoded.size());
+            out.writeLong(stringTableOffset);
+            for (int i = 0; i < bookings.size(); i++) {
+                Booking booking = bookings.get(i);
+                LocalDate date = booking.getDate();
+                out.writeInt(booking.getBookingNumber());
+                out.writeInt(refs[3 * i]);
+                out.writeInt(refs[3 * i + 1]);
+                out.writeInt(refs[3 * i + 2]);
+                out.writeInt(date == null ? NO_DATE : Math.toIntExact(date.toEpochDay()));
+            }
+            long offset = stringTableOffset + 4L * encoded.size();
+            for (byte[] bytes : encoded) {
+                out.writeInt(Math.toIntExact(offset));
+                offset += 4 + bytes.length;
+            }
+            for (byte[] bytes : encoded) {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static int intern(String value, Map<String, Integer> stringIds, List<byte[]> encoded) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        return stringIds.computeIfAbsent(value, v -> {
+            encoded.add(v.getBytes(StandardCharsets.UTF_8));
+            return encoded.size() - 1;
+        });
+    }
+
+    /**
+     * Gets the number of bookings in the snapshot.
+     *
+     * @return The number of bookings.
+     */
+    int size() {
+        return recordCount;
+    }
+
+    /**
+     * Decodes one booking.
+     *
+     * @param index The position of the booking in the snapshot.
+     * @return The decoded booking.
+     * @throws IndexOutOfBoundsException If there is no booking at that position.
+     */
+    Booking get(int index) {
+        if (index < 0 || index >= recordCount) {
+            throw new IndexOutOfBoundsException("Booking " + index + " of " + recordCount);
+        }
+        int position = HEADER_BYTES + index * RECORD_BYTES;
+        int epochDay = buffer.getInt(position + 16);
+        return new Booking(buffer.getInt(position), string(buffer.getInt(position + 4)),
+                string(buffer.getInt(position + 8)), string(buffer.getInt(position + 12)),
+                epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay));
+    }
+
+    /**
+     * Decodes every booking in file order.
+     *
+     * @param consumer Receives each booking.
+     */
+    void forEach(Consumer<Booking> consumer) {
+        for (int i = 0; i < recordCount; i++) {
+            consumer.accept(get(i));
+        }
+    }
+
+    private String string(int ref) {
+        if (ref == NO_STRING) {
+            return null;
+        }
+        String value = strings[ref];
+        if (value == null) {
+            int offset = buffer.getInt(stringTableOffset + 4 * ref);
+            byte[] bytes = new byte[buffer.getInt(offset)];
+            buffer.get(offset + 4, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings[ref] = value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,84 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.util.ServiceLoader;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Compression codec for the blocks of a compressed booking file.
+ * <p>
+ * Every block is compressed on its own, so a codec never needs state from an
+ * earlier block. The codec's name is stored in the file header and used to
+ * find the codec again when the file is read. Besides the built-in codecs,
+ * other modules can add codecs by declaring
+ * {@code provides booking.persistence.BlockCodec} in their module descriptor.
+ * </p>
+ */
+@SuppressFBWarnings(value = "IC_SUPERCLASS_USES_SUBCLASS_DURING_INITIALIZATION", justification = "The built-in codecs have no static state that depends on this interface.")
+public interface BlockCodec {
+
+    /**
+     * Stores blocks uncompressed.
+     */
+    BlockCodec NONE = BuiltInBlockCodec.NONE;
+
+    /**
+     * Compresses blocks as raw DEFLATE data with {@link java.util.zip.Deflater}.
+     */
+    BlockCodec DEFLATE = BuiltInBlockCodec.DEFLATE;
+
+    /**
+     * Compresses each block as a GZIP member.
+     */
+    BlockCodec GZIP = BuiltInBlockCodec.GZIP;
+
+    /**
+     * Finds a codec by name among the built-in and installed codecs.
+     *
+     * @param name The codec name, such as {@code none}, {@code deflate} or {@code gzip}.
+     * @return The codec.
+     * @throws IllegalArgumentException If no codec with that name is installed.
+     */
+    static BlockCodec named(String name) {
+        for (BuiltInBlockCodec codec : BuiltInBlockCodec.values()) {
+            if (codec.getName().equals(name)) {
+                return codec;
+            }
+        }
+        for (BlockCodec codec : ServiceLoader.load(BlockCodec.class)) {
+            if (codec.getName().equals(name)) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown block codec: " + name);
+    }
+
+    /**
+     * Gets the name the codec is stored and selected by. Names are at most 255
+     * bytes of ASCII.
+     *
+     * @return The codec name.
+     */
+    String getName();
+
+    /**
+     * Compresses one block.
+     *
+     * @param data   The buffer holding the block.
+     * @param length The number of bytes of the block, from the start of the buffer.
+     * @return The compressed block.
+     * @throws IOException If the block cannot be compressed.
+     */
+    byte[] compress(byte[] data, int length) throws IOException;
+
+    /**
+     * Decompresses one block.
+     *
+     * @param block  The compressed block.
+     * @param length The length of the block before compression.
+     * @return The decompressed block, exactly {@code length} bytes long.
+     * @throws IOException If the block is corrupt.
+     */
+    byte[] decompress(byte[] block, int length) throws IOException;
+}
@@ -0,0 +1,137 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import booking.core.Booking;
+
+/**
+ * Streaming decoder for {@link Booking} JSON.
+ * <p>
+ * Reads bookings token by token from a {@link JsonParser} and constructs each
+ * {@link Booking} directly, so large booking files can be loaded without first
+ * materializing a tree or an intermediate list.
+ * </p>
+ */
+final class BookingJsonReader {
+
+    private BookingJsonReader() {
+    }
+
+    /**
+     * Reads a top-level JSON array of bookings and hands each one to the sink as
+     * soon as it has been parsed.
+     *
+     * @param parser A parser positioned before the array.
+     * @param sink   Receives each booking in file order.
+     * @return The number of bookings read.
+     * @throws IOException If the input is not an array of bookings.
+     */
+    static int readArray(JsonParser parser, Consumer<Booking> sink) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == null) {
+            return 0; // Empty file
+        }
+        if (token != JsonToken.START_ARRAY) {
+            throw new IOException("Expected a JSON array of bookings but found " + token);
+        }
+        int count = 0;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a booking object but found " + token);
+            }
+            sink.accept(readBooking(parser));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Reads a sequence of top-level booking objects, such as newline-delimited
+     * JSON, until the end of the input.
+     *
+     * @param parser A parser positioned before the first object.
+     * @param sink   Receives each booking in input order.
+     * @return The number of bookings read.
+     * @throws IOException If a value is not a booking object.
+     */
+    static int readValues(JsonParser parser, Consumer<Booking> sink) throws IOException {
+        int count = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a booking object but found " + token);
+            }
+            sink.accept(readBooking(parser));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Reads one booking object. The parser must be positioned on its
+     * {@link JsonToken#START_OBJECT} token and is left on the matching
+     * {@link JsonToken#END_OBJECT}. Unknown fields are skipped.
+     *
+     * @param parser The parser.
+     * @return The decoded booking.
+     * @throws IOException If the object cannot be decoded.
+     */
+    static Booking readBooking(JsonParser parser) throws IOException {
+        int bookingNumber = 1; // Same default as the no-argument Booking constructor
+        String name = null;
+        String email = null;
+        String treatment = null;
+        LocalDate date = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.VALUE_NULL) {
+                continue;
+            }
+            switch (field) {
+                case "bookingNumber":
+                    bookingNumber = parser.getValueAsInt();
+                    break;
+                case "name":
+                    name = parser.getValueAsString();
+                    break;
+                case "email":
+                    email = parser.getValueAsString();
+                    break;
+                case "treatment":
+                    treatment = parser.getValueAsString();
+                    break;
+                case "date":
+                    date = readDate(parser, value);
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+        return new Booking(bookingNumber, name, email, treatment, date);
+    }
+
+    /**
+     * Reads a date written either as an ISO string or as a {@code [year, month, day]}
+     * array (the layout used when dates are written as timestamps).
+     */
+    private static LocalDate readDate(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.START_ARRAY) {
+            parser.nextToken();
+            int year = parser.getIntValue();
+            parser.nextToken();
+            int month = parser.getIntValue();
+            parser.nextToken();
+            int day = parser.getIntValue();
+            parser.nextToken(); // END_ARRAY
+            return LocalDate.of(year, month, day);
+        }
+        return LocalDate.parse(parser.getValueAsString());
+    }
+}
@@ -0,0 +1,414 @@
+package booking.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import booking.core.Booking;
+
+/**
+ * Append-only write-ahead log of {@link Booking} records.
+ * <p>
+ * The log starts with a small header holding the number of bookings in the
+ * snapshot it extends, followed by one frame per booking:
+ * {@code [int length][int crc32][length bytes of compact JSON]}.
+ * Appending a booking only writes its own frame, so the cost of a write does
+ * not depend on how many bookings already exist.
+ * </p>
+ * <p>
+ * A torn or corrupt frame at the end of the file (for example after a crash
+ * in the middle of a write) is detected by its length or checksum, and the
+ * writer truncates the log back to the last complete record during replay.
+ * </p>
+ * <p>
+ * Only one process should append to a log at a time. Other processes open it
+ * with {@link #openReadOnly(Path, ObjectMapper)}: they never write or truncate
+ * the file, treat an incomplete tail as not yet written, and pick up records
+ * appended by the writer with {@link #readNewRecords(Consumer)}. A read-only
+ * log may be opened before the writer has created the file.
+ * </p>
+ */
+final class BookingLog implements Closeable {
+
+    private static final int MAGIC = 0x424C4F47; // "BLOG"
+    static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final int FRAME_HEADER_SIZE = Integer.BYTES * 2;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final Path path;
+    private final boolean readOnly;
+    private FileChannel channel; // Only null for a read-only log whose file does not exist yet
+    private final ObjectMapper objectMapper;
+    private long baseCount;
+    private boolean headerRead;
+    private int recordCount;
+    private long end = HEADER_SIZE; // Offset just after the last known complete record
+
+    /**
+     * Opens (or creates) the log file at the given path.
+     *
+     * @param path         The log file.
+     * @param objectMapper The mapper used to encode and decode records.
+     * @throws IOException If the file cannot be opened.
+     */
+    BookingLog(Path path, ObjectMapper objectMapper) throws IOException {
+        this(path, objectMapper, false);
+    }
+
+    private BookingLog(Path path, ObjectMapper objectMapper, boolean readOnly) throws IOException {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.readOnly = readOnly;
+        if (readOnly) {
+            openIfPresent();
+            return;
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            reset(0);
+        } else {
+            readHeader();
+        }
+    }
+
+    /**
+     * Opens the log of another process for reading only.
+     *
+     * @param path         The log file; it need not exist yet.
+     * @param objectMapper The mapper used to decode records.
+     * @return The read-only log.
+     * @throws IOException If the file exists but is not a booking log or cannot be read.
+     */
+    static BookingLog openReadOnly(Path path, ObjectMapper objectMapper) throws IOException {
+        return new BookingLog(path, objectMapper, true);
+    }
+
+    /**
+     * Opens the file of a read-only log once the writer has created it and written its header.
+     *
+     * @return {@code true} if the log can be read.
+     */
+    private boolean openIfPresent() throws IOException {
+        if (channel == null) {
+            if (!Files.exists(path)) {
+                return false;
+            }
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+        if (channel.size() < HEADER_SIZE) {
+            return false; // The writer has not written the header yet
+        }
+        if (!headerRead) {
+            readHeader();
+        }
+        return true;
+    }
+
+    private void readHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a booking log: " + path);
+        }
+        baseCount = header.getLong();
+        headerRead = true;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("The booking log is open for reading only: " + path);
+        }
+    }
+
+    /**
+     * Replays every complete record in the log, in append order.
+     * <p>
+     * Any incomplete or corrupt tail is cut off so that later appends continue
+     * directly after the last good record. A read-only log leaves the tail
+     * alone, since its writer may still be writing it, and reads it with
+     * {@link #readNewRecords(Consumer)} once it is complete.
+     * </p>
+     *
+     * @param skip The number of leading records to verify but not deliver.
+     * @param sink Receives each decoded booking.
+     * @return The number of records in the log.
+     * @throws IOException If the log cannot be read.
+     */
+    synchronized int replay(long skip, Consumer<Booking> sink) throws IOException {
+        if (readOnly) {
+            end = HEADER_SIZE;
+            recordCount = 0;
+            headerRead = false;
+            if (!openIfPresent()) {
+                return 0;
+            }
+        }
+        long fileSize = channel.size();
+        Scan scan = scan(HEADER_SIZE, fileSize, skip, sink);
+        if (scan.end() < fileSize && !readOnly) {
+            System.err.println("Truncating torn booking log tail at offset " + scan.end() + " in " + path);
+            channel.truncate(scan.end());
+        }
+        if (!readOnly) {
+            channel.position(scan.end());
+        }
+        end = scan.end();
+        recordCount = scan.count();
+        return scan.count();
+    }
+
+    /**
+     * Reads the records appended to the log file since it was last replayed,
+     * appended to or read by this instance, for example by another process.
+     * <p>
+     * An incomplete record at the end is left alone, since its writer may still be
+     * writing it. If the file was truncated or compacted in the meantime the new
+     * records cannot be told apart from the old ones, and {@code -1} is returned
+     * so that the caller can reload everything.
+     * </p>
+     *
+     * @param sink Receives each new booking.
+     * @return The number of new records, or {@code -1} if the log was rewritten.
+     * @throws IOException If the log cannot be read.
+     */
+    synchronized int readNewRecords(Consumer<Booking> sink) throws IOException {
+        if (readOnly && !openIfPresent()) {
+            return 0;
+        }
+        long fileSize = channel.size();
+        if (fileSize < end) {
+            return -1;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getLong() != baseCount) {
+            return -1;
+        }
+        Scan scan = scan(end, fileSize, 0, sink);
+        end = scan.end();
+        recordCount += scan.count();
+        return scan.count();
+    }
+
+    private record Scan(long end, int count) {
+    }
+
+    /**
+     * Decodes complete, valid frames from {@code from} up to {@code fileSize}.
+     *
+     * @return The offset after the last valid frame and the number of frames read.
+     */
+    private Scan scan(long from, long fileSize, long skip, Consumer<Booking> sink) throws IOException {
+        long position = from;
+        int count = 0;
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (position + FRAME_HEADER_SIZE <= fileSize) {
+            frameHeader.clear();
+            readFully(frameHeader, position);
+            frameHeader.flip();
+            int length = frameHeader.getInt();
+            int checksum = frameHeader.getInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE
+                    || position + FRAME_HEADER_SIZE + length > fileSize) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + FRAME_HEADER_SIZE);
+            if (checksum(payload.array()) != checksum) {
+                break;
+            }
+            if (count >= skip) {
+                try (JsonParser parser = objectMapper.getFactory().createParser(payload.array())) {
+                    parser.nextToken();
+                    sink.accept(BookingJsonReader.readBooking(parser));
+                }
+            }
+            position += FRAME_HEADER_SIZE + length;
+            count++;
+        }
+        return new Scan(position, count);
+    }
+
+    /**
+     * Appends one booking as a framed, checksummed record at the end of the log.
+     *
+     * @param booking The booking to append.
+     * @throws IOException If the record cannot be written.
+     */
+    void append(Booking booking) throws IOException {
+        append(List.of(booking));
+    }
+
+    /**
+     * Appends a batch of bookings with a single write at the end of the log.
+     *
+     * @param batch The bookings to append, in order.
+     * @throws IOException If the records cannot be written.
+     * @see #append(List, boolean)
+     */
+    void append(List<Booking> batch) throws IOException {
+        append(batch, false);
+    }
+
+    /**
+     * Appends a batch of bookings with a single write at the end of the log,
+     * and optionally forces it to the storage device.
+     * <p>
+     * If the write or the sync fails, the log is truncated back to where the
+     * batch started, so that no torn record is left in front of later appends
+     * and a batch reported as failed is not replayed later.
+     * </p>
+     *
+     * @param batch The bookings to append, in order.
+     * @param sync  {@code true} to force the records to disk before returning.
+     * @throws IOException If the records cannot be written or synced.
+     */
+    synchronized void append(List<Booking> batch, boolean sync) throws IOException {
+        checkWritable();
+        List<byte[]> payloads = new ArrayList<>(batch.size());
+        int size = 0;
+        for (Booking booking : batch) {
+            byte[] payload = objectMapper.writeValueAsBytes(booking);
+            payloads.add(payload);
+            size += FRAME_HEADER_SIZE + payload.length;
+        }
+        ByteBuffer frames = ByteBuffer.allocate(size);
+        for (byte[] payload : payloads) {
+            frames.putInt(payload.length).putInt(checksum(payload)).put(payload);
+        }
+        frames.flip();
+        long start = channel.size();
+        try {
+            channel.position(start);
+            while (frames.hasRemaining()) {
+                channel.write(frames);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        end = start + size;
+        recordCount += batch.size();
+    }
+
+    /**
+     * Forces appended records to the storage device.
+     *
+     * @throws IOException If the sync fails.
+     */
+    synchronized void sync() throws IOException {
+        checkWritable();
+        channel.force(false);
+    }
+
+    /**
+     * Gets the offset just after the last complete record, to cut the log back to
+     * with {@link #truncate(long, int)}.
+     *
+     * @return The end of the log.
+     */
+    synchronized long getEnd() {
+        return end;
+    }
+
+    /**
+     * Cuts off the records appended after an earlier end, when the rest of their
+     * batch could not be written elsewhere.
+     *
+     * @param end         An earlier result of {@link #getEnd()}.
+     * @param recordCount The record count at that end.
+     * @throws IOException If the log cannot be truncated.
+     */
+    synchronized void truncate(long end, int recordCount) throws IOException {
+        checkWritable();
+        channel.truncate(end);
+        channel.position(end);
+        channel.force(false);
+        this.end = end;
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * Empties the log after its records have been folded into a new snapshot.
+     *
+     * @param snapshotCount The number of bookings in the new snapshot.
+     * @throws IOException If the log cannot be truncated.
+     */
+    synchronized void reset(long snapshotCount) throws IOException {
+        checkWritable();
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putLong(snapshotCount).flip();
+        channel.position(0);
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        channel.force(true);
+        baseCount = snapshotCount;
+        recordCount = 0;
+        end = HEADER_SIZE;
+    }
+
+    /**
+     * Gets the number of snapshot bookings this log extends.
+     *
+     * @return The snapshot size recorded in the log header.
+     */
+    synchronized long getBaseCount() {
+        return baseCount;
+    }
+
+    /**
+     * Gets the number of records currently held in the log.
+     *
+     * @return The record count.
+     */
+    synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of booking log: " + path);
+            }
+            offset += read;
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,159 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out unique booking numbers on the server.
+ * <p>
+ * Numbers come from an atomic counter, so concurrent requests never receive the
+ * same number. The highest number handed out so far (the high-water mark) is
+ * written to a small file next to the booking data, so numbers are not reused
+ * after a restart even if the bookings they were assigned to were never stored.
+ * Numbers found in loaded bookings also move the counter forward. Without a
+ * file the numbers only stay unique for the lifetime of the process.
+ * </p>
+ * <p>
+ * The file is written ahead in blocks, by default of {@value #DEFAULT_BLOCK_SIZE}
+ * numbers, so that only one allocation per block has to wait for the file.
+ * After a restart the counter continues after the block, leaving the unused
+ * rest of it as a gap in the numbering.
+ * </p>
+ * <p>
+ * The new high-water mark is written to a temporary file, forced to disk and
+ * moved over the old file, and the directory is then forced as well, so that a
+ * number is never handed out before a crash would still find its reservation.
+ * </p>
+ */
+final class BookingNumberAllocator {
+
+    /**
+     * The number of booking numbers reserved by each write of the file, unless
+     * another block size is given.
+     */
+    static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final Path highWaterMarkFile;
+    private final int blockSize;
+    private final AtomicInteger lastAllocated = new AtomicInteger();
+    private volatile int persistedHighWaterMark; // Written under the lock on this
+
+    /**
+     * Creates an allocator that continues after the persisted high-water mark
+     * and persists it ahead in blocks of {@value #DEFAULT_BLOCK_SIZE}.
+     *
+     * @param highWaterMarkFile The file holding the high-water mark, or
+     *                          {@code null} to keep it in memory only.
+     */
+    BookingNumberAllocator(Path highWaterMarkFile) {
+        this(highWaterMarkFile, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates an allocator that continues after the persisted high-water mark
+     * and persists it ahead in blocks.
+     *
+     * @param highWaterMarkFile The file holding the high-water mark, or
+     *                          {@code null} to keep it in memory only.
+     * @param blockSize         The number of booking numbers reserved by each
+     *                          write of the file.
+     */
+    BookingNumberAllocator(Path highWaterMarkFile, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("The block size must be positive.");
+        }
+        this.highWaterMarkFile = highWaterMarkFile;
+        this.blockSize = blockSize;
+        try {
+            if (highWaterMarkFile != null && Files.exists(highWaterMarkFile)) {
+                persistedHighWaterMark = Integer.parseInt(
+                        Files.readString(highWaterMarkFile, StandardCharsets.UTF_8).trim());
+                lastAllocated.set(persistedHighWaterMark);
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Ignoring unreadable booking number file: " + highWaterMarkFile);
+        }
+    }
+
+    /**
+     * Moves the counter past a booking number that is already in use.
+     *
+     * @param bookingNumber The number of an existing booking.
+     */
+    void observe(int bookingNumber) {
+        lastAllocated.accumulateAndGet(bookingNumber, Math::max);
+    }
+
+    /**
+     * Allocates a contiguous block of booking numbers.
+     *
+     * @param count The number of booking numbers to allocate.
+     * @return The first number of the block; the block ends at {@code first + count - 1}.
+     * @throws IOException If the new high-water mark cannot be persisted.
+     */
+    int allocate(int count) throws IOException {
+        if (count <= 0) {
+            throw new IllegalArgumentException("At least one booking number must be allocated.");
+        }
+        int first = lastAllocated.getAndAdd(count) + 1;
+        int last = first + count - 1;
+        if (highWaterMarkFile != null && last > persistedHighWaterMark) {
+            persist(last);
+        }
+        return first;
+    }
+
+    /**
+     * Gets the highest booking number allocated or observed so far.
+     *
+     * @return The high-water mark.
+     */
+    int getHighWaterMark() {
+        return lastAllocated.get();
+    }
+
+    private synchronized void persist(int highWaterMark) throws IOException {
+        if (highWaterMark <= persistedHighWaterMark) {
+            return; // A concurrent allocation persisted a higher mark
+        }
+        int reserved = highWaterMark + blockSize - 1;
+        Path temp = highWaterMarkFile.resolveSibling(highWaterMarkFile.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer content = ByteBuffer.wrap(Integer.toString(reserved).getBytes(StandardCharsets.UTF_8));
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, highWaterMarkFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Path directory = highWaterMarkFile.toAbsolutePath().getParent();
+        if (directory != null) {
+            syncDirectory(directory);
+        }
+        persistedHighWaterMark = reserved;
+    }
+
+    /**
+     * Forces a directory to disk, so that a file moved into it survives a crash.
+     * Platforms that cannot open a directory for this are skipped.
+     */
+    static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return; // For example on Windows, where directories cannot be opened
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package booking.persistence;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+import booking.core.Booking;
+
+/**
+ * A search for bookings matching every given filter.
+ * <p>
+ * Each filter is optional: a {@code null} email, treatment or date bound does
+ * not restrict the result. The email is compared ignoring case, the treatment
+ * exactly, and the date range includes both bounds.
+ * </p>
+ *
+ * @param email     The email address, or {@code null} for any.
+ * @param treatment The treatment, or {@code null} for any.
+ * @param from      The first day, or {@code null} for no lower bound.
+ * @param to        The last day, or {@code null} for no upper bound.
+ * @param limit     The maximum number of bookings returned, at least 1.
+ */
+public record BookingQuery(String email, String treatment, LocalDate from, LocalDate to, int limit) {
+
+    /**
+     * Checks the limit.
+     *
+     * @throws IllegalArgumentException If {@code limit} is less than 1.
+     */
+    public BookingQuery {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be at least 1.");
+        }
+    }
+
+    /**
+     * Checks whether the query has a date bound.
+     *
+     * @return {@code true} if {@code from} or {@code to} is given.
+     */
+    public boolean hasDateRange() {
+        return from != null || to != null;
+    }
+
+    /**
+     * Gets the first day of the date range.
+     *
+     * @return {@code from}, or {@link LocalDate#MIN} if there is no lower bound.
+     */
+    public LocalDate firstDay() {
+        return from == null ? LocalDate.MIN : from;
+    }
+
+    /**
+     * Gets the last day of the date range.
+     *
+     * @return {@code to}, or {@link LocalDate#MAX} if there is no upper bound.
+     */
+    public LocalDate lastDay() {
+        return to == null ? LocalDate.MAX : to;
+    }
+
+    /**
+     * Checks a booking against every filter.
+     *
+     * @param booking The booking.
+     * @return {@code true} if the booking matches the query.
+     */
+    public boolean matches(Booking booking) {
+        if (email != null && !Objects.equals(EmailIndex.normalize(email), EmailIndex.normalize(booking.getEmail()))) {
+            return false;
+        }
+        if (treatment != null && !treatment.equals(booking.getTreatment())) {
+            return false;
+        }
+        if (hasDateRange()) {
+            LocalDate date = booking.getDate();
+            return date != null && !date.isBefore(firstDay()) && !date.isAfter(lastDay());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,133 @@
+package booking.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import booking.core.Booking;
+
+/**
+ * Plans a {@link BookingQuery} against the email, treatment and date indexes of
+ * a repository.
+ * <p>
+ * The planner counts the candidates of each filter in its index, which costs
+ * one map lookup for an email or treatment and one visit per day for a date
+ * range, stopping once a range holds more bookings than the best filter so
+ * far. The filter with the fewest candidates drives the query: only its
+ * positions are read. They are intersected with the other keyed filters by a
+ * binary search in each one's position list, and the date range, when it does
+ * not drive, is checked on the bookings that are left.
+ * </p>
+ * <p>
+ * When even the best filter matches a large share of the bookings, the limit
+ * is reached sooner by checking the bookings in insertion order. The planner
+ * estimates the matches from the filters' counts, treating them as
+ * independent, and scans instead of reading the index when fewer than
+ * {@code limit * bookings / matches} bookings are expected to be visited.
+ * Queries with a date range are never scanned: dates follow insertion order
+ * closely, so the matches of a range are bunched together rather than spread
+ * out, and a scan for a range of late dates would visit nearly every booking.
+ * Either way the work depends on the number of candidates or on the limit, not
+ * on the number of bookings in the repository.
+ * </p>
+ */
+final class BookingQueryPlanner {
+
+    private BookingQueryPlanner() {
+    }
+
+    /**
+     * The way a query is answered.
+     *
+     * @param positions The candidate positions in increasing order; empty for a scan.
+     * @param scan      Whether every booking is checked in insertion order instead.
+     */
+    record Plan(int[] positions, boolean scan) {
+    }
+
+    /**
+     * Plans a query and reads its candidate positions. Callers must hold the
+     * lock that guards the indexes.
+     *
+     * @param query      The query.
+     * @param emails     The email index.
+     * @param treatments The treatment index.
+     * @param dates      The date index.
+     * @param size       The number of bookings in the store.
+     * @return The plan, whose positions match the email and treatment filters.
+     */
+    static Plan plan(BookingQuery query, EmailIndex emails, TreatmentIndex treatments, DateIndex dates, int size) {
+        long emailCount = query.email() == null ? Long.MAX_VALUE : emails.count(query.email());
+        long treatmentCount = query.treatment() == null ? Long.MAX_VALUE : treatments.count(query.treatment());
+        long best = Math.min(emailCount, treatmentCount);
+        long dateCount = query.hasDateRange() ? dates.count(query.firstDay(), query.lastDay(), best) : Long.MAX_VALUE;
+        best = Math.min(best, dateCount);
+        if (best == Long.MAX_VALUE || best > 0 && !query.hasDateRange()
+                && scanVisits(query.limit(), size, emailCount, treatmentCount) < best) {
+            return new Plan(new int[0], true);
+        }
+
+        int[] candidates;
+        boolean emailDrives = emailCount == best;
+        boolean treatmentDrives = !emailDrives && treatmentCount == best;
+        boolean datesDrive = !emailDrives && !treatmentDrives;
+        if (emailDrives) {
+            candidates = emails.get(query.email());
+        } else if (treatmentDrives) {
+            candidates = treatments.get(query.treatment());
+        } else {
+            candidates = dates.between(query.firstDay(), query.lastDay());
+            Arrays.sort(candidates); // From date order to position order
+        }
+
+        // Unless the date range is left to check, the first matches are the result
+        int wanted = query.hasDateRange() && !datesDrive ? candidates.length : query.limit();
+        int kept = 0;
+        for (int i = 0; i < candidates.length && kept < wanted; i++) {
+            int position = candidates[i];
+            if (query.email() != null && !emailDrives && !emails.contains(query.email(), position)) {
+                continue;
+            }
+            if (query.treatment() != null && !treatmentDrives && !treatments.contains(query.treatment(), position)) {
+                continue;
+            }
+            candidates[kept++] = position;
+        }
+        return new Plan(kept == candidates.length ? candidates : Arrays.copyOf(candidates, kept), false);
+    }
+
+    /**
+     * Estimates the number of bookings a scan visits before it finds {@code limit}
+     * matches, from the filters' counts; {@link Long#MAX_VALUE} stands for no filter.
+     */
+    private static double scanVisits(int limit, int size, long... counts) {
+        double matches = size;
+        for (long count : counts) {
+            if (count != Long.MAX_VALUE) {
+                matches *= (double) count / size;
+            }
+        }
+        return Math.min(size, limit * (size / matches));
+    }
+
+    /**
+     * Materializes the bookings of a plan that match every filter of a query,
+     * up to its limit.
+     *
+     * @param version The version the plan was made for.
+     * @param plan    The plan from {@link #plan}.
+     * @param query   The query.
+     * @return A new list of at most {@code query.limit()} bookings in insertion order.
+     */
+    static List<Booking> select(List<Booking> version, Plan plan, BookingQuery query) {
+        int count = plan.scan() ? version.size() : plan.positions().length;
+        List<Booking> result = new ArrayList<>(Math.min(count, query.limit()));
+        for (int i = 0; i < count && result.size() < query.limit(); i++) {
+            Booking booking = version.get(plan.scan() ? i : plan.positions()[i]);
+            if (query.matches(booking)) {
+                result.add(booking);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,265 @@
+package booking.persistence;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.ServiceLoader;
+
+import booking.core.Booking;
+
+/**
+ * Storage engine for bookings.
+ * <p>
+ * Engines are registered as {@link BookingRepositoryProvider} services and
+ * chosen by name with {@link #open(String, Path)}. The persistence module ships
+ * these engines:
+ * </p>
+ * <ul>
+ *   <li>{@code memory}: keeps bookings in memory only.</li>
+ *   <li>{@code json}: rewrites a JSON file on every write.</li>
+ *   <li>{@code log}: appends to a log next to a compacted JSON snapshot.</li>
+ *   <li>{@code segmented}: keeps one segment file per month of the booking date.</li>
+ *   <li>{@code striped}: partitions bookings by date into stripes with their own
+ *   lock and log, so writes to different days run in parallel.</li>
+ *   <li>{@code jdbc}: keeps bookings in an indexed table of an embedded H2 database.</li>
+ * </ul>
+ * <p>
+ * Every engine assigns booking numbers itself. The engines differ in what a
+ * write touches on disk and in how much of the data a lookup has to read.
+ * </p>
+ */
+public interface BookingRepository extends Closeable {
+
+    /**
+     * The booking number that the first page of {@link #getBookingsAfter(int, int)}
+     * starts after. It is below every number, so bookings from older files that
+     * were numbered 0 are listed too.
+     */
+    int FIRST_PAGE = Integer.MIN_VALUE;
+
+    /**
+     * Opens a repository with the engine of the given name.
+     *
+     * @param engine   The engine name, such as {@code memory}, {@code json}, {@code log},
+     *                 {@code segmented}, {@code striped} or {@code jdbc}.
+     * @param dataFile The file the engine stores its bookings in; ignored by
+     *                 engines that do not use files.
+     * @return The opened repository.
+     * @throws IllegalArgumentException If no engine with that name is installed.
+     */
+    static BookingRepository open(String engine, Path dataFile) {
+        for (BookingRepositoryProvider provider : ServiceLoader.load(BookingRepositoryProvider.class)) {
+            if (provider.getName().equals(engine)) {
+                return provider.create(dataFile);
+            }
+        }
+        throw new IllegalArgumentException("Unknown booking repository engine: " + engine);
+    }
+
+    /**
+     * Adds a new Booking and persists it.
+     *
+     * @param booking The Booking to add; its booking number is ignored.
+     * @return The stored Booking with its assigned booking number, or
+     *         {@code null} if {@code booking} is {@code null}.
+     * @throws java.io.UncheckedIOException If the booking cannot be written.
+     */
+    Booking addBooking(Booking booking);
+
+    /**
+     * Adds several new Bookings and persists them.
+     * <p>
+     * The built-in engines assign the bookings consecutive numbers with one
+     * reservation, write them with one append or transaction per file they touch,
+     * and store none of them if the write fails. The default adds them one at a
+     * time.
+     * </p>
+     *
+     * @param bookings The Bookings to add; their booking numbers are ignored.
+     * @return The stored Bookings with their assigned booking numbers, in the given order.
+     * @throws java.io.UncheckedIOException If the bookings cannot be written.
+     */
+    default List<Booking> addBookings(List<Booking> bookings) {
+        List<Booking> added = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            added.add(addBooking(booking));
+        }
+        return added;
+    }
+
+    /**
+     * Gets the current bookings, first picking up any changes made to the
+     * underlying storage outside this repository.
+     *
+     * @return An unmodifiable list of all bookings.
+     */
+    List<Booking> loadBookings();
+
+    /**
+     * Gets the bookings held in memory.
+     *
+     * @return An unmodifiable list of all bookings.
+     */
+    List<Booking> getAllBookings();
+
+    /**
+     * Gets the most recent booking, whose customer {@link #getBookingsByEmail()}
+     * lists, without getting the other bookings. The default takes the last
+     * booking of {@link #getAllBookings()}.
+     *
+     * @return The most recent booking, or {@code null} if there are no bookings.
+     */
+    default Booking getLastBooking() {
+        List<Booking> bookings = getAllBookings();
+        return bookings.isEmpty() ? null : bookings.get(bookings.size() - 1);
+    }
+
+    /**
+     * Gets the bookings made with the email address of the most recent booking.
+     *
+     * @return A new list of matching bookings, or an empty list if there are no bookings.
+     */
+    List<Booking> getBookingsByEmail();
+
+    /**
+     * Gets the bookings made with an email address, ignoring case.
+     *
+     * @param email The email address to look up.
+     * @return A new list of matching bookings in insertion order.
+     */
+    List<Booking> getBookingsByEmail(String email);
+
+    /**
+     * Gets the bookings on one day.
+     *
+     * @param date The day to look up.
+     * @return A new list of the day's bookings in insertion order.
+     */
+    List<Booking> getBookingsOn(LocalDate date);
+
+    /**
+     * Gets the bookings between two dates, both inclusive.
+     *
+     * @param from The first day of the range.
+     * @param to   The last day of the range.
+     * @return A new list ordered by date and then by insertion order; empty if
+     *         {@code from} is after {@code to}.
+     */
+    List<Booking> getBookingsBetween(LocalDate from, LocalDate to);
+
+    /**
+     * Gets a page of bookings in booking-number order.
+     * <p>
+     * Paging through all bookings takes the last booking number of each page as
+     * the start of the next. Engines with a number index find a page without
+     * visiting the other bookings; the default selects the page from
+     * {@link #getAllBookings()} while holding no more than {@code limit} bookings.
+     * </p>
+     * <p>
+     * Older files may hold several bookings with the same number. A page never
+     * ends between them: it then also holds the rest of them, even beyond the
+     * limit, so that paging by the last number neither skips nor repeats any.
+     * </p>
+     *
+     * @param afterBookingNumber Only bookings with a greater number are returned;
+     *                           {@link #FIRST_PAGE} for the first page.
+     * @param limit              The maximum number of bookings, at least 1, unless
+     *                           the last of them shares its number with more.
+     * @return A new list of the page's bookings ordered by booking number.
+     * @throws IllegalArgumentException If {@code limit} is less than 1.
+     */
+    default List<Booking> getBookingsAfter(int afterBookingNumber, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The page size must be at least 1.");
+        }
+        // Keeps the page's bookings with the highest number on top, to be replaced by lower ones
+        PriorityQueue<Booking> page = new PriorityQueue<>(
+                Comparator.comparingInt(Booking::getBookingNumber).reversed());
+        for (Booking booking : getAllBookings()) {
+            if (booking.getBookingNumber() <= afterBookingNumber) {
+                continue;
+            }
+            if (page.size() < limit) {
+                page.add(booking);
+            } else if (booking.getBookingNumber() < page.peek().getBookingNumber()) {
+                page.poll();
+                page.add(booking);
+            }
+        }
+        List<Booking> result = new ArrayList<>(page);
+        result.sort(Comparator.comparingInt(Booking::getBookingNumber));
+        if (result.size() == limit) {
+            // The heap kept an arbitrary part of the last number's bookings; take all of them in order
+            int last = result.get(limit - 1).getBookingNumber();
+            result.removeIf(booking -> booking.getBookingNumber() == last);
+            for (Booking booking : getAllBookings()) {
+                if (booking.getBookingNumber() == last) {
+                    result.add(booking);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Searches for the bookings that match every filter of a query.
+     * <p>
+     * Engines with email, treatment and date indexes plan the query with the
+     * most selective index, so its cost depends on the number of matches of that
+     * filter rather than on the total number of bookings. The default looks up
+     * the email with {@link #getBookingsByEmail(String)} if one is given, and
+     * otherwise checks the bookings of {@link #getAllBookings()} until the limit
+     * is reached.
+     * </p>
+     *
+     * @param query The query.
+     * @return A new list of at most {@code query.limit()} matching bookings in insertion order.
+     */
+    default List<Booking> searchBookings(BookingQuery query) {
+        List<Booking> candidates = query.email() == null ? getAllBookings() : getBookingsByEmail(query.email());
+        List<Booking> result = new ArrayList<>();
+        for (Booking booking : candidates) {
+            if (result.size() == query.limit()) {
+                break;
+            }
+            if (query.matches(booking)) {
+                result.add(booking);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the data version, which increases every time the bookings change.
+     *
+     * @return The current data version.
+     */
+    long getDataVersion();
+
+    /**
+     * Picks up changes made to the underlying storage outside this repository,
+     * like {@link #loadBookings()}, without getting the bookings. The default
+     * does nothing, for engines that see every change as it is made.
+     */
+    default void refresh() {
+    }
+
+    /**
+     * Gets the version of the bookings made with an email address, ignoring case.
+     * <p>
+     * The version changes whenever those bookings change, and is never reused
+     * for other bookings while the repository is open. The default is the data
+     * version, which also changes when other customers' bookings change.
+     * </p>
+     *
+     * @param email The email address.
+     * @return The version of the customer's bookings.
+     */
+    default long getEmailVersion(String email) {
+        return getDataVersion();
+    }
+}
@@ -0,0 +1,29 @@
+package booking.persistence;
+
+import java.nio.file.Path;
+
+/**
+ * Service provider interface for {@link BookingRepository} engines.
+ * <p>
+ * Providers are found with {@link java.util.ServiceLoader}, so other modules can
+ * add engines by declaring {@code provides booking.persistence.BookingRepositoryProvider}
+ * in their module descriptor.
+ * </p>
+ */
+public interface BookingRepositoryProvider {
+
+    /**
+     * Gets the name the engine is selected by.
+     *
+     * @return The engine name.
+     */
+    String getName();
+
+    /**
+     * Opens a repository backed by the given file.
+     *
+     * @param dataFile The file holding the bookings; may be ignored by the engine.
+     * @return The opened repository.
+     */
+    BookingRepository create(Path dataFile);
+}
@@ -0,0 +1,184 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import booking.core.Booking;
+
+/**
+ * The bookings of one month in a {@link SegmentedBookingRepository}.
+ * <p>
+ * A segment consists of up to two files: an immutable {@link BinarySnapshot}
+ * ({@code <key>.bin}) and a newline-delimited JSON tail ({@code <key>.ndjson})
+ * that new bookings are appended to. Closing a segment folds the tail into a
+ * new snapshot, after which the segment is read-only until a booking for its
+ * month arrives again. A torn last line left by a crash is cut off when the
+ * tail is read.
+ * </p>
+ */
+final class BookingSegment {
+
+    private final String key;
+    private final Path snapshotFile;
+    private final Path tailFile;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Creates a handle for a segment; no file is touched.
+     *
+     * @param directory    The directory holding the segment files.
+     * @param key          The segment key, such as {@code 2025-03}.
+     * @param objectMapper The mapper used to encode tail records.
+     */
+    BookingSegment(Path directory, String key, ObjectMapper objectMapper) {
+        this.key = key;
+        this.snapshotFile = directory.resolve(key + ".bin");
+        this.tailFile = directory.resolve(key + ".ndjson");
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Gets the segment key.
+     *
+     * @return The key, such as {@code 2025-03}.
+     */
+    String key() {
+        return key;
+    }
+
+    /**
+     * Reads every booking in the segment: the snapshot first, then the tail.
+     * Tail records whose booking number is already in the snapshot are skipped.
+     *
+     * @return A new list of the segment's bookings.
+     * @throws IOException If a file cannot be read.
+     */
+    List<Booking> read() throws IOException {
+        List<Booking> bookings = new ArrayList<>();
+        Set<Integer> inSnapshot = new HashSet<>();
+        if (Files.exists(snapshotFile)) {
+            BinarySnapshot.map(snapshotFile).forEach(booking -> {
+                bookings.add(booking);
+                inSnapshot.add(booking.getBookingNumber());
+            });
+        }
+        if (!Files.exists(tailFile)) {
+            return bookings;
+        }
+        byte[] bytes = Files.readAllBytes(tailFile);
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                if (i > lineStart) {
+                    try (JsonParser parser = objectMapper.getFactory().createParser(bytes, lineStart, i - lineStart)) {
+                        if (parser.nextToken() != JsonToken.START_OBJECT) {
+                            throw new IOException("Expected a booking object in " + tailFile);
+                        }
+                        Booking booking = BookingJsonReader.readBooking(parser);
+                        if (!inSnapshot.contains(booking.getBookingNumber())) {
+                            bookings.add(booking);
+                        }
+                    }
+                }
+                lineStart = i + 1;
+            }
+        }
+        if (lineStart < bytes.length) {
+            System.err.println("Discarding torn booking record at the end of " + tailFile);
+            try (FileChannel channel = FileChannel.open(tailFile, StandardOpenOption.WRITE)) {
+                channel.truncate(lineStart);
+            }
+        }
+        return bookings;
+    }
+
+    /**
+     * Appends bookings to the tail with a single write and forces it to disk. If
+     * the write fails, the tail is cut back to its previous length.
+     *
+     * @param bookings The bookings to append.
+     * @return The length of the tail before the append, for {@link #truncateTail(long)}.
+     * @throws IOException If the tail cannot be written.
+     */
+    long append(List<Booking> bookings) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (Booking booking : bookings) {
+            lines.append(objectMapper.writeValueAsString(booking)).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(tailFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            long start = channel.size();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                try {
+                    channel.truncate(start);
+                } catch (IOException truncateFailure) {
+                    e.addSuppressed(truncateFailure);
+                }
+                throw e;
+            }
+            return start;
+        }
+    }
+
+    /**
+     * Cuts the tail back to an earlier length, removing records whose batch could
+     * not be written to every segment.
+     *
+     * @param length The length returned by {@link #append(List)}.
+     * @throws IOException If the tail cannot be truncated.
+     */
+    void truncateTail(long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(tailFile, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Tells whether the segment has a tail that has not been folded into its snapshot.
+     *
+     * @return {@code true} if the tail file exists.
+     */
+    boolean hasTail() {
+        return Files.exists(tailFile);
+    }
+
+    /**
+     * Folds the tail into a new snapshot and deletes the tail. The snapshot is
+     * written to a temporary file and moved into place before the tail is deleted.
+     * If a crash happens in between, {@link #read()} skips the tail records that
+     * are already in the snapshot, recognized by their booking number.
+     *
+     * @param bookings All bookings of the segment, as returned by {@link #read()}.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    void close(List<Booking> bookings) throws IOException {
+        Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        BinarySnapshot.write(temp, bookings);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(tailFile);
+    }
+}
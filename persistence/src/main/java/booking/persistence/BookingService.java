@@ -2,29 +2,156 @@ package booking.persistence;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import booking.core.Booking;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
  * Service class for managing Booking data.
  * Handles serialization and deserialization of Booking objects to/from JSON files.
+ * <p>
+ * By default every new booking rewrites the whole JSON file. In append-only log
+ * mode the JSON file is instead treated as a compacted snapshot, each new booking
+ * is appended as a single record to a {@link BookingLog} next to it, and the
+ * snapshot is only rewritten once the log has grown as large as the snapshot.
+ * Startup loads the snapshot and then replays the log tail.
+ * </p>
+ * <p>
+ * Writes from concurrent callers are group-committed by a single writer thread:
+ * all bookings queued while a batch is being written are written together and
+ * synced once, as configured by the service's {@link Durability}.
+ * </p>
+ * <p>
+ * Every change to the in-memory bookings bumps a monotonic data version. The
+ * service also remembers a {@link FileFingerprint} of its files as of the last
+ * load or write, so repeated loads are served from memory unless the files were
+ * changed outside the process. With {@link #startWatching()} such changes are
+ * picked up as they happen: records appended to the log are merged in
+ * incrementally, and only a rewritten snapshot or log triggers a full reload.
+ * A process that only reads another process's files opens them with
+ * {@link #follow(Path, boolean)}, which never writes, truncates or rebases them.
+ * </p>
+ * <p>
+ * In memory the bookings are kept in a {@link BookingStore} chosen by
+ * {@link StoreLayout}, by default dictionary-encoded, and the indexes refer to
+ * store positions. Bookings returned by the service are materialized from the
+ * store on each call.
+ * </p>
+ * <p>
+ * Readers never wait for writers. Every change is published as a new immutable
+ * {@link BookingVersion} with a single atomic reference swap, and
+ * {@link #getAllBookings()} returns the current version itself: a stable list
+ * that is neither copied nor locked, and shares the store's storage with the
+ * versions before and after it. Index lookups only hold the lock while they
+ * copy the matching positions.
+ * </p>
+ * <p>
+ * Booking numbers are assigned by the service when a booking is added, from a
+ * {@link BookingNumberAllocator} whose high-water mark is kept in a
+ * {@code .seq} file next to the JSON file.
+ * </p>
+ * <p>
+ * A data file ending in {@code .bin} holds a memory-mapped {@link BinarySnapshot}
+ * instead of JSON, so startup only maps the file and decodes the fixed-width
+ * records, without parsing text. A data file ending in {@code .bkz} holds
+ * compact NDJSON in blocks compressed with a {@link BlockCodec}, read one block
+ * at a time; see {@link BookingSnapshotConverter}. JSON data files may also
+ * hold one booking per line, and either kind is parsed in parallel chunks on
+ * the common {@link java.util.concurrent.ForkJoinPool}.
+ * </p>
+ * <p>
+ * The service is the {@code json} and {@code log} engine of {@link BookingRepository}.
+ * </p>
  */
-public class BookingService {
-    private static final Path PROJECT_ROOT_PATH = getProjectRootPath("booking");
-    private static final Path DATA_FILE_PATH = PROJECT_ROOT_PATH.resolve("persistence/data/booking.json");
+@SuppressFBWarnings(value = "CT_CONSTRUCTOR_THROW", justification = "A service whose data file or booking log cannot be opened must not be constructed.")
+public class BookingService implements BookingRepository {
+    private static final String DATA_FILE = "persistence/data/booking.json";
+    private static final int MIN_COMPACTION_RECORDS = 1000;
+    private static final ImportProgress NO_PROGRESS = (bytesRead, totalBytes, bookingsRead) -> { };
     private final File filepath;
-    private final List<Booking> bookings = new ArrayList<>();
+    private final BookingStore store;
+    private final List<Booking> bookings; // Read-only view of the store, also the writers' lock for it and the indexes
+    private final EmailIndex emailIndex = new EmailIndex();
+    private final DateIndex dateIndex = new DateIndex();
+    private final TreatmentIndex treatmentIndex = new TreatmentIndex();
+    private final NumberIndex numberIndex = new NumberIndex();
     private final ObjectMapper objectMapper;
+    private final ParallelBookingLoader jsonLoader;
+    private final Path logFile;
+    private final BookingLog log;
+    private final GroupCommitWriter writer;
+    private final BookingNumberAllocator numberAllocator;
+    private final boolean follower;
+    private final AtomicReference<BookingVersion> published;
+    private volatile List<FileFingerprint> loadedFingerprint; // Written under the lock on bookings
+    private volatile boolean hashContents;
+    private DataDirectoryWatcher watcher; // Guarded by this
+
+    /**
+     * Registers the engine that rewrites the JSON file on every write under the
+     * name {@code json}.
+     */
+    public static final class JsonFileProvider implements BookingRepositoryProvider {
+
+        @Override
+        public String getName() {
+            return "json";
+        }
+
+        @Override
+        public BookingRepository create(Path dataFile) {
+            return new BookingService(dataFile, false);
+        }
+    }
+
+    /**
+     * Registers the append-only log engine under the name {@code log}.
+     */
+    public static final class LogProvider implements BookingRepositoryProvider {
+
+        @Override
+        public String getName() {
+            return "log";
+        }
+
+        @Override
+        public BookingRepository create(Path dataFile) {
+            return new BookingService(dataFile, true);
+        }
+    }
+
+    /**
+     * Gets the project's default booking file.
+     *
+     * @return The path of {@code persistence/data/booking.json} in the project.
+     */
+    public static Path defaultDataFile() {
+        return getProjectRootPath("booking").resolve(DATA_FILE);
+    }
 
     private static Path getProjectRootPath(String projectDirName) {
         Path path = Paths.get("").toAbsolutePath();
@@ -42,12 +169,83 @@ public class BookingService {
         return path;
     }
 
+    /**
+     * Creates a service backed by the project's default booking file, rewriting
+     * the whole file on every new booking.
+     */
     public BookingService() {
-        this.filepath = DATA_FILE_PATH.toFile();
+        this(defaultDataFile(), false);
+    }
+
+    /**
+     * Creates a service backed by the given booking file that syncs every write.
+     *
+     * @param dataFile      The JSON file holding the bookings (or the snapshot in log mode).
+     * @param appendOnlyLog {@code true} to append new bookings to a log next to the
+     *                      JSON file instead of rewriting it on every booking.
+     */
+    public BookingService(Path dataFile, boolean appendOnlyLog) {
+        this(dataFile, appendOnlyLog, Durability.always());
+    }
+
+    /**
+     * Creates a service backed by the given booking file.
+     *
+     * @param dataFile      The JSON file holding the bookings (or the snapshot in log mode).
+     * @param appendOnlyLog {@code true} to append new bookings to a log next to the
+     *                      JSON file instead of rewriting it on every booking.
+     * @param durability    When group-committed writes are synced to disk.
+     */
+    public BookingService(Path dataFile, boolean appendOnlyLog, Durability durability) {
+        this(dataFile, appendOnlyLog, durability, StoreLayout.DICTIONARY);
+    }
+
+    /**
+     * Creates a service backed by the given booking file, with a chosen in-memory layout.
+     *
+     * @param dataFile      The JSON file holding the bookings (or the snapshot in log mode).
+     * @param appendOnlyLog {@code true} to append new bookings to a log next to the
+     *                      JSON file instead of rewriting it on every booking.
+     * @param durability    When group-committed writes are synced to disk.
+     * @param layout        How the bookings are kept in memory.
+     */
+    public BookingService(Path dataFile, boolean appendOnlyLog, Durability durability, StoreLayout layout) {
+        this(dataFile, appendOnlyLog, durability, layout, false);
+    }
+
+    /**
+     * Opens the booking files of another process for reading only, and starts
+     * watching them.
+     * <p>
+     * The follower never writes, truncates or rebases the files: the log is opened
+     * read-only, and a record that the writer has only partly written is treated
+     * as not yet written and read once it is complete. Adding bookings or writing
+     * the JSON file throws {@link UnsupportedOperationException}.
+     * </p>
+     *
+     * @param dataFile      The JSON file holding the bookings (or the snapshot in log mode).
+     * @param appendOnlyLog {@code true} if the writer appends new bookings to a log next to the JSON file.
+     * @return The started follower.
+     * @throws UncheckedIOException If the log cannot be opened or the directory cannot be watched.
+     */
+    public static BookingService follow(Path dataFile, boolean appendOnlyLog) {
+        BookingService service = new BookingService(dataFile, appendOnlyLog, Durability.always(),
+                StoreLayout.DICTIONARY, true);
+        service.startWatching();
+        return service;
+    }
+
+    private BookingService(Path dataFile, boolean appendOnlyLog, Durability durability, StoreLayout layout,
+            boolean follower) {
+        this.follower = follower;
+        this.store = layout.newStore();
+        this.bookings = store.asList();
+        this.published = new AtomicReference<>(new BookingVersion(store.snapshot(), 0));
+        this.filepath = dataFile.toFile();
         System.out.println("Booking file absolute path: " + this.filepath.getAbsolutePath());
 
         File dataDir = this.filepath.getParentFile();
-        if (!dataDir.exists()) {
+        if (!follower && !dataDir.exists()) {
             boolean dirsCreated = dataDir.mkdirs();
             if (!dirsCreated) {
                 System.err.println("Failed to create data directory at: " + dataDir.getAbsolutePath());
@@ -57,82 +255,773 @@ public class BookingService {
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
         this.objectMapper.disable(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.jsonLoader = new ParallelBookingLoader(objectMapper.getFactory());
+
+        try {
+            this.logFile = appendOnlyLog ? siblingPath(dataFile, ".log") : null;
+            if (!appendOnlyLog) {
+                this.log = null;
+            } else if (follower) {
+                this.log = BookingLog.openReadOnly(logFile, objectMapper);
+            } else {
+                this.log = new BookingLog(logFile, objectMapper);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open booking log for " + dataFile, e);
+        }
+        this.writer = new GroupCommitWriter(this::commitBatch, durability);
+        this.numberAllocator = new BookingNumberAllocator(siblingPath(dataFile, ".seq"));
 
-        loadBookingsFromFile();
+        load(UnaryOperator.identity(), true, NO_PROGRESS);
+    }
+
+    static Path siblingPath(Path dataFile, String extension) {
+        String fileName = String.valueOf(dataFile.getFileName());
+        int dot = fileName.lastIndexOf('.');
+        String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return dataFile.resolveSibling(baseName + extension);
     }
 
     /**
-     * Deserializes Booking objects from the JSON file.
+     * Reads every booking kept by the {@code json} and {@code log} engines: the
+     * data file, in the format given by its name, followed by the records of its
+     * log if there is one. Neither file is changed.
+     *
+     * @param dataFile The data file; it need not exist.
+     * @return The bookings in file order, with their booking numbers.
+     * @throws IOException If a file cannot be read.
+     */
+    static List<Booking> readHistory(Path dataFile) throws IOException {
+        List<Booking> bookings = new ArrayList<>();
+        if (Files.exists(dataFile)) {
+            if (BookingSnapshotConverter.isBinary(dataFile)) {
+                bookings.addAll(BookingSnapshotConverter.readBinary(dataFile));
+            } else if (BookingSnapshotConverter.isCompressed(dataFile)) {
+                bookings.addAll(BookingSnapshotConverter.readCompressed(dataFile));
+            } else {
+                bookings.addAll(BookingSnapshotConverter.readJson(dataFile));
+            }
+        }
+        Path logFile = siblingPath(dataFile, ".log");
+        if (Files.exists(logFile)) {
+            ObjectMapper objectMapper = new ObjectMapper();
+            objectMapper.registerModule(new JavaTimeModule());
+            try (BookingLog history = BookingLog.openReadOnly(logFile, objectMapper)) {
+                history.replay(Math.max(0, bookings.size() - history.getBaseCount()), bookings::add);
+            }
+        }
+        return bookings;
+    }
+
+    /**
+     * Creates the directory of another engine from the bookings kept by the
+     * {@code json} and {@code log} engines, so that switching engines keeps the
+     * history. Nothing is imported if the directory exists already or there are
+     * no bookings.
+     * <p>
+     * The directory is filled under a temporary name and only moved into place
+     * once it is complete, so an interrupted import is started over on the next
+     * open instead of leaving part of the history behind.
+     * </p>
+     *
+     * @param dataFile  The data file of the {@code json} and {@code log} engines.
+     * @param directory The directory of the other engine.
+     * @param fill      Stores the bookings, keeping their numbers, in the given new directory.
+     * @throws IOException If the files cannot be read or the directory cannot be moved.
+     */
+    static void importHistory(Path dataFile, Path directory, BiConsumer<Path, List<Booking>> fill)
+            throws IOException {
+        if (Files.exists(directory)) {
+            return;
+        }
+        List<Booking> history = readHistory(dataFile);
+        if (history.isEmpty()) {
+            return;
+        }
+        Path staging = directory.resolveSibling(directory.getFileName() + ".import");
+        deleteDirectory(staging); // Left over from an interrupted import
+        fill.accept(staging, history);
+        Files.move(staging, directory, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("Imported " + history.size() + " bookings from " + dataFile + " into " + directory);
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(directory)) {
+            files = walk.sorted(Comparator.reverseOrder()).toList(); // Files before their directories
+        }
+        for (Path file : files) {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Deserializes Booking objects from the JSON file, followed by any bookings
+     * in the append-only log when log mode is enabled.
+     * <p>
+     * The files are only parsed again if their fingerprint differs from the one
+     * taken when they were last loaded or written by this service; otherwise the
+     * bookings already in memory are returned.
+     * </p>
      *
      * @return A list of existing Bookings.
      */
     public final List<Booking> loadBookingsFromFile() {
-        bookings.clear();
-        if (filepath.exists()) {
+        return loadBookings();
+    }
+
+    @Override
+    public final List<Booking> loadBookings() {
+        refreshIfChanged();
+        return published.get();
+    }
+
+    /**
+     * Reloads the bookings if the data files were changed outside this service.
+     * <p>
+     * The fingerprint is compared without locking, so readers only wait for each
+     * other when the files have actually changed.
+     * </p>
+     *
+     * @return {@code true} if the files had changed and were reloaded.
+     */
+    public boolean refreshIfChanged() {
+        if (isLoaded()) {
+            return false;
+        }
+        synchronized (bookings) {
+            if (isLoaded()) {
+                return false; // Reloaded by another caller meanwhile
+            }
+            load(UnaryOperator.identity(), true, NO_PROGRESS);
+            return true;
+        }
+    }
+
+    private boolean isLoaded() {
+        List<FileFingerprint> current = fingerprintOrNull();
+        return current != null && current.equals(loadedFingerprint);
+    }
+
+    /**
+     * Replaces the in-memory bookings with the contents of the JSON file (and the
+     * log in log mode), parsing the file as a token stream.
+     * <p>
+     * Each booking is created straight from the parser and handed to the callback
+     * before it is stored, without building a tree. Large files are parsed in
+     * parallel chunks by a {@link ParallelBookingLoader}; the callback is still
+     * called on the calling thread in file order. The callback may return the booking unchanged, return a projected booking to
+     * store instead, or return {@code null} to skip it.
+     * </p>
+     * <p>
+     * Skipped bookings are only left out of memory. Since the service rewrites its
+     * JSON file from memory, a filtered load should not be followed by writes. The
+     * next {@link #loadBookingsFromFile()} reloads the complete file.
+     * </p>
+     *
+     * @param recordCallback Called for every parsed booking, in file order.
+     * @return The number of bookings stored.
+     */
+    public final int streamBookingsFromFile(UnaryOperator<Booking> recordCallback) {
+        return load(recordCallback, false, NO_PROGRESS);
+    }
+
+    /**
+     * Starts watching the data directory for changes made by other processes.
+     * <p>
+     * When records are appended to the log, only the new records are read and
+     * merged into memory and the indexes. When the JSON file changes, or the log
+     * was truncated or rewritten, the bookings are reloaded from scratch. Calling
+     * this method again has no effect; the watcher stops when the service is closed.
+     * </p>
+     *
+     * @throws UncheckedIOException If the directory cannot be watched.
+     */
+    public synchronized void startWatching() {
+        if (watcher != null) {
+            return;
+        }
+        try {
+            watcher = new DataDirectoryWatcher(filepath.getAbsoluteFile().getParentFile().toPath(),
+                    this::onDataFileChanged);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to watch data directory of " + filepath, e);
+        }
+    }
+
+    /**
+     * Handles a change reported by the directory watcher.
+     *
+     * @param fileName The changed file, or {@code null} if events were lost.
+     */
+    private void onDataFileChanged(Path fileName) {
+        if (fileName == null) {
+            refreshIfChanged();
+        } else if (log != null && fileName.equals(logFile.getFileName())) {
+            applyLogTail();
+        } else if (fileName.toString().equals(filepath.getName())) {
+            refreshIfChanged();
+        }
+    }
+
+    /**
+     * Merges records appended to the log by another process into memory, or
+     * reloads everything if the log was truncated or rewritten.
+     */
+    private void applyLogTail() {
+        synchronized (bookings) {
+            int before = store.size();
             try {
-                List<Booking> existingBookings = objectMapper.readValue(filepath, new BookingListTypeReference());
-                if (!existingBookings.isEmpty()) {
-                    bookings.addAll(existingBookings);
+                int added = log.readNewRecords(this::store);
+                if (added < 0) {
+                    load(UnaryOperator.identity(), true, NO_PROGRESS);
+                } else if (added > 0) {
+                    markWritten();
                 }
             } catch (IOException e) {
                 e.printStackTrace();
+                System.err.println("Failed to read new booking log records for: " + filepath.getAbsolutePath());
+                if (store.size() != before) {
+                    publish(); // Keep the records that were read before the failure
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the data version, which increases every time the in-memory bookings change.
+     *
+     * @return The current data version.
+     */
+    @Override
+    public long getDataVersion() {
+        return published.get().getDataVersion();
+    }
+
+    /**
+     * Reloads the bookings if the data files were changed outside this service.
+     *
+     * @see #refreshIfChanged()
+     */
+    @Override
+    public void refresh() {
+        refreshIfChanged();
+    }
+
+    /**
+     * Gets the version of one customer's bookings from the email index, so it
+     * only changes when that customer's bookings change or the files are reloaded.
+     *
+     * @param email The email address.
+     * @return The version of the customer's bookings, or 0 if there are none.
+     */
+    @Override
+    public long getEmailVersion(String email) {
+        synchronized (bookings) {
+            return emailIndex.version(email);
+        }
+    }
+
+    /**
+     * Chooses whether file fingerprints include a checksum of the file contents.
+     * <p>
+     * Checksums catch external rewrites that keep both the size and the
+     * modification time, at the cost of reading the files on every check.
+     * </p>
+     *
+     * @param hashContents {@code true} to checksum file contents.
+     */
+    public void setHashContents(boolean hashContents) {
+        this.hashContents = hashContents;
+    }
+
+    /**
+     * Reloads all bookings from the data files, even if they have not changed,
+     * and reports the progress of reading the snapshot.
+     * <p>
+     * Use it after restoring a large backup into the data file. Like every load,
+     * a JSON snapshot is parsed in parallel chunks, which are merged into the
+     * store and indexes in file order.
+     * </p>
+     *
+     * @param progress Receives a report after each chunk of the snapshot.
+     * @return An unmodifiable list of the loaded bookings.
+     */
+    public final List<Booking> reloadBookingsFromFile(ImportProgress progress) {
+        synchronized (bookings) {
+            load(UnaryOperator.identity(), true, progress);
+            return published.get();
+        }
+    }
+
+    private int load(UnaryOperator<Booking> recordCallback, boolean complete, ImportProgress progress) {
+        Consumer<Booking> sink = booking -> {
+            Booking kept = recordCallback.apply(booking);
+            if (kept != null) {
+                store(kept);
+            }
+        };
+        synchronized (bookings) {
+            // Taken before reading, so a change made while reading triggers another reload
+            List<FileFingerprint> fingerprint = fingerprintOrNull();
+            store.clear();
+            emailIndex.clear();
+            dateIndex.clear();
+            treatmentIndex.clear();
+            numberIndex.clear();
+            int snapshotCount = 0;
+            if (filepath.exists()) {
+                try {
+                    snapshotCount = readSnapshot(sink, progress);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                System.out.println("Booking file not found at: " + filepath.getAbsolutePath());
             }
+            if (log != null) {
+                replayLog(snapshotCount, sink);
+            }
+            loadedFingerprint = complete ? fingerprint : null;
+            publish();
+            return bookings.size();
+        }
+    }
+
+    /**
+     * Reads the snapshot file, as JSON, as a binary snapshot or as compressed
+     * NDJSON depending on its name. JSON is parsed in parallel chunks.
+     *
+     * @param sink     Receives each booking in file order.
+     * @param progress Receives reports while the file is read.
+     * @return The number of bookings in the file.
+     * @throws IOException If the file cannot be read.
+     */
+    private int readSnapshot(Consumer<Booking> sink, ImportProgress progress) throws IOException {
+        Path file = filepath.toPath();
+        int count;
+        if (BookingSnapshotConverter.isBinary(file)) {
+            BinarySnapshot snapshot = BinarySnapshot.map(file);
+            snapshot.forEach(sink);
+            count = snapshot.size();
+        } else if (BookingSnapshotConverter.isCompressed(file)) {
+            count = CompressedBookingFile.read(file, objectMapper, sink);
         } else {
-            System.out.println("Booking file not found at: " + filepath.getAbsolutePath());
+            return jsonLoader.load(file, sink, progress);
         }
-        return Collections.unmodifiableList(new ArrayList<>(bookings));
+        long size = Files.size(file);
+        progress.onProgress(size, size, count);
+        return count;
     }
 
     /**
-     * Adds a new Booking and serializes the updated list to the JSON file.
+     * Takes the fingerprint of the JSON file and, in log mode, of the log.
+     *
+     * @return The fingerprints, or {@code null} if they cannot be read.
+     */
+    private List<FileFingerprint> fingerprintOrNull() {
+        try {
+            FileFingerprint data = FileFingerprint.of(filepath.toPath(), hashContents);
+            return log == null ? List.of(data) : List.of(data, FileFingerprint.of(logFile, hashContents));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Records that the in-memory bookings changed and match the files again.
+     * Callers must hold the lock on {@code bookings}.
+     */
+    private void markWritten() {
+        loadedFingerprint = fingerprintOrNull();
+        publish();
+    }
+
+    /**
+     * Publishes the current contents of the store to readers as the next version.
+     * Callers must hold the lock on {@code bookings}.
+     */
+    private void publish() {
+        published.set(published.get().next(store));
+    }
+
+    /**
+     * Replays the log records that are not yet part of the loaded snapshot.
+     * <p>
+     * If a crash happened after a compaction wrote the snapshot but before the
+     * log was emptied, the leading log records are already in the snapshot and
+     * are skipped. An empty log is rebased onto the loaded snapshot, unless the
+     * service is a follower and the log belongs to another process.
+     * </p>
+     *
+     * @param snapshotCount The number of bookings in the snapshot file.
+     * @param sink          Receives each replayed booking.
+     */
+    private void replayLog(int snapshotCount, Consumer<Booking> sink) {
+        long alreadyInSnapshot = Math.max(0, snapshotCount - log.getBaseCount());
+        try {
+            int logged = log.replay(alreadyInSnapshot, sink);
+            if (logged == 0 && !follower && log.getBaseCount() != snapshotCount) {
+                log.reset(snapshotCount); // Fresh log next to an existing snapshot
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("Failed to replay booking log for: " + filepath.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Adds a new Booking and persists it, waiting until its batch is committed.
+     * <p>
+     * The booking number of the given booking is ignored. The service assigns the
+     * next free number itself, so concurrent clients never receive the same one.
+     * </p>
      *
      * @param booking The Booking to add.
-     * @return The added Booking.
+     * @return The stored Booking with its assigned booking number.
+     * @throws UncheckedIOException If the booking cannot be written.
      */
+    @Override
     public Booking addBooking(Booking booking) {
-        if (booking != null) {
-            bookings.add(booking);
-            writeToJSONFile();
+        checkWritable();
+        if (booking == null) {
+            return null;
+        }
+        try {
+            return addBookingAsync(booking).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw new UncheckedIOException("Failed to write booking", ioException);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Adds several new Bookings in one group commit, waiting until it is written.
+     *
+     * @param bookings The Bookings to add; their booking numbers are ignored.
+     * @return The stored Bookings with consecutive booking numbers, in the given order.
+     * @throws UncheckedIOException If the bookings cannot be written.
+     */
+    @Override
+    public List<Booking> addBookings(List<Booking> bookings) {
+        checkWritable();
+        if (bookings.isEmpty()) {
+            return List.of();
+        }
+        List<Booking> numbered = new ArrayList<>(bookings.size());
+        try {
+            int bookingNumber = numberAllocator.allocate(bookings.size());
+            for (Booking booking : bookings) {
+                numbered.add(withBookingNumber(booking, bookingNumber++));
+            }
+            writer.submit(numbered).join();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to allocate booking numbers", e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw new UncheckedIOException("Failed to write bookings", ioException);
+            }
+            throw e;
+        }
+        return numbered;
+    }
+
+    /**
+     * Assigns the next free booking number to a new Booking and queues it for the
+     * next group commit.
+     *
+     * @param booking The Booking to add; its booking number is ignored.
+     * @return A future that completes with the stored booking, carrying its assigned
+     *         number, once its batch has been written with the service's durability.
+     */
+    public CompletableFuture<Booking> addBookingAsync(Booking booking) {
+        checkWritable();
+        if (booking == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Booking numbered;
+        try {
+            numbered = withBookingNumber(booking, numberAllocator.allocate(1));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return writer.submit(List.of(numbered)).thenApply(ignored -> numbered);
+    }
+
+    /**
+     * Rejects writes to a follower, whose files belong to another process.
+     */
+    private void checkWritable() {
+        if (follower) {
+            throw new UnsupportedOperationException("A follower cannot write to " + filepath.getAbsolutePath());
+        }
+    }
+
+    static Booking withBookingNumber(Booking booking, int bookingNumber) {
+        return new Booking(bookingNumber, booking.getName(), booking.getEmail(), booking.getTreatment(),
+                booking.getDate());
+    }
+
+    /**
+     * Writes one group-committed batch. Called only from the writer thread.
+     * <p>
+     * In the default mode the updated list is serialized to the JSON file once per
+     * batch. In log mode only the batch is appended to the log, and the snapshot is
+     * compacted once the log holds as many records as the snapshot, which keeps the
+     * amortized cost of a write independent of the number of bookings.
+     * </p>
+     *
+     * @param batch The bookings to write.
+     * @param sync  {@code true} to force the written data to disk.
+     * @throws IOException If the batch cannot be written.
+     */
+    private void commitBatch(List<Booking> batch, boolean sync) throws IOException {
+        if (log == null) {
+            synchronized (bookings) {
+                int before = store.size();
+                batch.forEach(this::store);
+                try {
+                    writeSnapshot(sync);
+                } catch (IOException e) {
+                    rollback(before); // Never published, so readers did not see the batch
+                    throw e;
+                }
+                markWritten();
+            }
+            return;
+        }
+        synchronized (bookings) {
+            log.append(batch, sync); // Durable before readers can see it; a failed batch is cut off again
+            batch.forEach(this::store);
+            markWritten();
+        }
+        if (log.getRecordCount() >= Math.max(MIN_COMPACTION_RECORDS, log.getBaseCount())) {
+            compactLog();
+        }
+    }
+
+    /**
+     * Adds a booking to the store and its indexes.
+     * Callers must hold the lock on {@code bookings}.
+     *
+     * @param booking The booking to store.
+     */
+    private void store(Booking booking) {
+        numberAllocator.observe(booking.getBookingNumber());
+        int position = store.add(booking);
+        emailIndex.add(booking.getEmail(), position);
+        dateIndex.add(booking.getDate(), position);
+        treatmentIndex.add(booking.getTreatment(), position);
+        numberIndex.add(booking.getBookingNumber(), position);
+    }
+
+    /**
+     * Removes the bookings that were just stored but could not be written.
+     * Callers must hold the lock on {@code bookings}.
+     *
+     * @param size The number of bookings to keep.
+     */
+    private void rollback(int size) {
+        for (int position = store.size() - 1; position >= size; position--) {
+            Booking booking = store.get(position);
+            emailIndex.remove(booking.getEmail(), position);
+            dateIndex.remove(booking.getDate(), position);
+            treatmentIndex.remove(booking.getTreatment(), position);
+            numberIndex.remove(booking.getBookingNumber(), position);
+        }
+        store.truncate(size);
+    }
+
+    /**
+     * Looks up store positions in an index and materializes them from the
+     * version that the index matches.
+     *
+     * @param lookup Reads the positions from an index; runs under the lock on {@code bookings}.
+     * @return A new list of the bookings, in the order of the positions.
+     */
+    private List<Booking> lookup(Supplier<int[]> lookup) {
+        int[] positions;
+        BookingVersion version;
+        synchronized (bookings) {
+            positions = lookup.get();
+            version = published.get();
+        }
+        return materialize(version, positions);
+    }
+
+    static List<Booking> materialize(List<Booking> version, int[] positions) {
+        List<Booking> result = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            result.add(version.get(position));
+        }
+        return result;
+    }
+
+    /**
+     * Folds the log into a fresh snapshot and empties the log.
+     * The log is only reset once the snapshot has been written successfully.
+     */
+    private void compactLog() {
+        synchronized (bookings) {
+            try {
+                writeSnapshot(true);
+                log.reset(bookings.size());
+                loadedFingerprint = fingerprintOrNull();
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.err.println("Failed to compact booking log for: " + filepath.getAbsolutePath());
+            }
         }
-        return booking;
     }
 
     /**
      * Retrieves all Bookings.
+     * <p>
+     * Returns the current version without locking or copying. The list is
+     * unmodifiable and does not change when bookings are added later.
+     * </p>
      *
      * @return A list of all Bookings.
      */
+    @Override
     public List<Booking> getAllBookings() {
-        return Collections.unmodifiableList(new ArrayList<>(bookings));
+        return published.get();
     }
 
     /**
      * Retrieves a list of bookings that match the email of the last added booking.
      * <p>
-     * This method filters the list of bookings to find all entries where the email address 
-     * matches the email of the most recently added booking (i.e., the last booking in the list).
+     * This method looks up all entries where the email address matches the email
+     * of the most recently added booking (i.e., the last booking in the list).
      * The comparison is case-insensitive.
      * </p>
      * 
      * @return A new {@link List} containing all bookings with the email address 
-     *         of the most recent booking. If no bookings match the email, 
+     *         of the most recent booking. If there are no bookings, 
      *         an empty list will be returned.
      */
+    @Override
     public List<Booking> getBookingsByEmail() {
-        String emailToUse = bookings.get(bookings.size() - 1).getEmail();
-        return new ArrayList<>(bookings.stream()
-                .filter(b -> b.getEmail()
-                        .equalsIgnoreCase(emailToUse))
-                .toList());
+        List<Booking> version = published.get();
+        if (version.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return getBookingsByEmail(version.get(version.size() - 1).getEmail());
+    }
+
+    /**
+     * Retrieves all bookings made with the given email address, ignoring case.
+     * <p>
+     * The lookup goes through an email index that is kept up to date on every
+     * add, so its cost depends on the number of matching bookings rather than on
+     * the total number of bookings.
+     * </p>
+     *
+     * @param email The email address to look up.
+     * @return A new {@link List} with the matching bookings in insertion order.
+     */
+    @Override
+    public List<Booking> getBookingsByEmail(String email) {
+        return lookup(() -> emailIndex.get(email));
+    }
+
+    /**
+     * Retrieves all bookings on the given day.
+     *
+     * @param date The day to look up.
+     * @return A new {@link List} with the day's bookings in insertion order.
+     */
+    @Override
+    public List<Booking> getBookingsOn(LocalDate date) {
+        return lookup(() -> dateIndex.on(date));
+    }
+
+    /**
+     * Retrieves all bookings between two dates, both inclusive.
+     * <p>
+     * The lookup is a range scan over a date index that is kept up to date on
+     * every add, so only the days inside the range are visited.
+     * </p>
+     *
+     * @param from The first day of the range.
+     * @param to   The last day of the range.
+     * @return A new {@link List} ordered by date and then by insertion order; empty
+     *         if {@code from} is after {@code to}.
+     */
+    @Override
+    public List<Booking> getBookingsBetween(LocalDate from, LocalDate to) {
+        return lookup(() -> dateIndex.between(from, to));
+    }
+
+    /**
+     * Retrieves a page of bookings in booking-number order.
+     * <p>
+     * The page is read from a booking-number index that is kept up to date on
+     * every add, so its cost depends on the page size rather than on the total
+     * number of bookings.
+     * </p>
+     *
+     * @param afterBookingNumber Only bookings with a greater number are returned;
+     *                           0 for the first page.
+     * @param limit              The maximum number of bookings, at least 1.
+     * @return A new {@link List} of at most {@code limit} bookings ordered by booking number.
+     */
+    @Override
+    public List<Booking> getBookingsAfter(int afterBookingNumber, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The page size must be at least 1.");
+        }
+        return lookup(() -> numberIndex.after(afterBookingNumber, limit));
+    }
+
+    /**
+     * Searches for the bookings that match every filter of a query.
+     * <p>
+     * The query is planned by {@link BookingQueryPlanner} against the email,
+     * treatment and date indexes, which are kept up to date on every add. Only
+     * the candidates of the most selective filter are visited.
+     * </p>
+     *
+     * @param query The query.
+     * @return A new {@link List} of at most {@code query.limit()} matching bookings in insertion order.
+     */
+    @Override
+    public List<Booking> searchBookings(BookingQuery query) {
+        BookingQueryPlanner.Plan plan;
+        BookingVersion version;
+        synchronized (bookings) {
+            plan = BookingQueryPlanner.plan(query, emailIndex, treatmentIndex, dateIndex, store.size());
+            version = published.get();
+        }
+        return BookingQueryPlanner.select(version, plan, query);
+    }
+
+    /**
+     * Counts the bookings per treatment. With {@link StoreLayout#COLUMNAR} this
+     * scans the treatment column only, without materializing any booking.
+     *
+     * @return A new map from treatment to its number of bookings, in order of
+     *         first appearance; bookings without a treatment are not counted.
+     */
+    public Map<String, Integer> getTreatmentCounts() {
+        return published.get().getStore().countByTreatment();
     }
 
     /**
      * Serializes the current list of Bookings to the JSON file.
      */
     public void writeToJSONFile() {
+        checkWritable();
         try {
-            ObjectWriter writer = objectMapper.writerWithDefaultPrettyPrinter();
-            writer.writeValue(filepath, bookings); // Overwrite the file with updated content
+            synchronized (bookings) {
+                writeSnapshot(false);
+                loadedFingerprint = fingerprintOrNull();
+            }
             System.out.println("Successfully wrote bookings to " + filepath.getAbsolutePath());
         } catch (IOException e) {
             e.printStackTrace();
@@ -141,9 +1030,52 @@ public class BookingService {
     }
 
     /**
-     * Static nested class to provide type information for deserialization.
+     * Writes the current list of Bookings to a temporary file and atomically
+     * moves it over the data file, so a crash never leaves a half-written file.
+     * The file is written as JSON, as a binary snapshot or as compressed NDJSON
+     * depending on its name.
+     * Callers must hold the lock on {@code bookings}.
+     *
+     * @param sync {@code true} to force the file to disk before it is moved into place.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeSnapshot(boolean sync) throws IOException {
+        Path target = filepath.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        if (BookingSnapshotConverter.isBinary(target)) {
+            BinarySnapshot.write(temp, bookings);
+        } else if (BookingSnapshotConverter.isCompressed(target)) {
+            // Keep the codec the file was written with, for example by the converter
+            BlockCodec codec = Files.exists(target) ? CompressedBookingFile.codecOf(target) : BlockCodec.DEFLATE;
+            CompressedBookingFile.write(temp, bookings, codec, objectMapper);
+        } else {
+            ObjectWriter jsonWriter = objectMapper.writerWithDefaultPrettyPrinter();
+            jsonWriter.writeValue(temp.toFile(), bookings);
+        }
+        if (sync) {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Stops the directory watcher, commits any queued bookings and releases the
+     * writer thread and the append-only log, if one is open.
+     *
+     * @throws IOException If the log cannot be closed.
      */
-    private static class BookingListTypeReference extends TypeReference<List<Booking>> {
-        // No additional implementation needed
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (watcher != null) {
+                watcher.close();
+            }
+        }
+        writer.close();
+        if (log != null) {
+            log.close();
+        }
     }
 }
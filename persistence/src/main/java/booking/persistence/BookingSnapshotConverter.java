@@ -0,0 +1,180 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import booking.core.Booking;
+
+/**
+ * Converts booking files between the JSON format, the binary snapshot format
+ * and the compressed NDJSON format.
+ * <p>
+ * A {@link BookingService} whose data file ends in {@code .bin} keeps its
+ * snapshot in the binary format, which starts up without parsing JSON. A data
+ * file ending in {@code .bkz} holds compact NDJSON in independently compressed
+ * blocks, which takes a fraction of the disk and page cache of pretty-printed
+ * JSON. JSON stays the import and export format; convert an existing file with
+ * {@code java booking.persistence.BookingSnapshotConverter booking.json booking.bkz gzip}
+ * and back again by swapping the file arguments. The optional codec name only
+ * applies to {@code .bkz} targets and defaults to {@code deflate}.
+ * </p>
+ */
+public final class BookingSnapshotConverter {
+
+    private BookingSnapshotConverter() {
+    }
+
+    /**
+     * Converts the file given as the first argument into the second. The format
+     * of each file is chosen by its extension.
+     *
+     * @param args The source and target files, optionally followed by a codec name.
+     * @throws IOException If a file cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: BookingSnapshotConverter <source.json|.bin|.bkz> <target.json|.bin|.bkz>"
+                    + " [none|deflate|gzip]");
+            return;
+        }
+        Path source = Path.of(args[0]);
+        Path target = Path.of(args[1]);
+        List<Booking> bookings;
+        if (isBinary(source)) {
+            bookings = readBinary(source);
+        } else if (isCompressed(source)) {
+            bookings = readCompressed(source);
+        } else {
+            bookings = readJson(source);
+        }
+        if (isBinary(target)) {
+            writeBinary(bookings, target);
+        } else if (isCompressed(target)) {
+            writeCompressed(bookings, target, args.length == 3 ? BlockCodec.named(args[2]) : BlockCodec.DEFLATE);
+        } else {
+            writeJson(bookings, target);
+        }
+        System.out.println("Converted " + bookings.size() + " bookings from " + source + " to " + target);
+    }
+
+    /**
+     * Tells whether a file uses the binary snapshot format.
+     *
+     * @param file The file.
+     * @return {@code true} if the file name ends in {@code .bin}.
+     */
+    public static boolean isBinary(Path file) {
+        return String.valueOf(file.getFileName()).endsWith(".bin");
+    }
+
+    /**
+     * Tells whether a file uses the compressed NDJSON format.
+     *
+     * @param file The file.
+     * @return {@code true} if the file name ends in {@code .bkz}.
+     */
+    public static boolean isCompressed(Path file) {
+        return String.valueOf(file.getFileName()).endsWith(".bkz");
+    }
+
+    /**
+     * Reads the bookings in a JSON file.
+     *
+     * @param jsonFile The JSON file.
+     * @return The bookings in file order.
+     * @throws IOException If the file cannot be read.
+     */
+    public static List<Booking> readJson(Path jsonFile) throws IOException {
+        return readJson(jsonFile, (bytesRead, totalBytes, bookingsRead) -> { });
+    }
+
+    /**
+     * Reads the bookings in a file holding a JSON array or one booking per line,
+     * parsing chunks of the file in parallel on the common fork-join pool.
+     *
+     * @param jsonFile The JSON file.
+     * @param progress Receives a report after each chunk.
+     * @return The bookings in file order.
+     * @throws IOException If the file cannot be read.
+     */
+    public static List<Booking> readJson(Path jsonFile, ImportProgress progress) throws IOException {
+        List<Booking> bookings = new ArrayList<>();
+        new ParallelBookingLoader(objectMapper().getFactory()).load(jsonFile, bookings::add, progress);
+        return bookings;
+    }
+
+    /**
+     * Writes bookings to a pretty-printed JSON file.
+     *
+     * @param bookings The bookings.
+     * @param jsonFile The JSON file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeJson(List<Booking> bookings, Path jsonFile) throws IOException {
+        objectMapper().writerWithDefaultPrettyPrinter().writeValue(jsonFile.toFile(), bookings);
+    }
+
+    /**
+     * Reads the bookings in a binary snapshot.
+     *
+     * @param binaryFile The snapshot file.
+     * @return The bookings in file order.
+     * @throws IOException If the file cannot be read or is not a valid snapshot.
+     */
+    public static List<Booking> readBinary(Path binaryFile) throws IOException {
+        BinarySnapshot snapshot = BinarySnapshot.map(binaryFile);
+        List<Booking> bookings = new ArrayList<>(snapshot.size());
+        snapshot.forEach(bookings::add);
+        return bookings;
+    }
+
+    /**
+     * Writes bookings to a binary snapshot.
+     *
+     * @param bookings   The bookings.
+     * @param binaryFile The snapshot file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeBinary(List<Booking> bookings, Path binaryFile) throws IOException {
+        BinarySnapshot.write(binaryFile, bookings);
+    }
+
+    /**
+     * Reads the bookings in a compressed NDJSON file.
+     *
+     * @param compressedFile The compressed file.
+     * @return The bookings in file order.
+     * @throws IOException If the file cannot be read or is corrupt.
+     */
+    public static List<Booking> readCompressed(Path compressedFile) throws IOException {
+        List<Booking> bookings = new ArrayList<>();
+        CompressedBookingFile.read(compressedFile, objectMapper(), bookings::add);
+        return bookings;
+    }
+
+    /**
+     * Writes bookings to a compressed NDJSON file.
+     *
+     * @param bookings       The bookings.
+     * @param compressedFile The compressed file.
+     * @param codec          The codec to compress the blocks with.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void writeCompressed(List<Booking> bookings, Path compressedFile, BlockCodec codec)
+            throws IOException {
+        CompressedBookingFile.write(compressedFile, bookings, codec, objectMapper());
+    }
+
+    private static ObjectMapper objectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return objectMapper;
+    }
+}
@@ -0,0 +1,136 @@
+package booking.persistence;
+
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import booking.core.Booking;
+
+/**
+ * In-memory storage for the bookings of a repository, addressed by position.
+ * <p>
+ * Bookings are appended and never changed; positions are dense and start at
+ * zero. A store may keep bookings in an encoded form and materialize a new
+ * {@link Booking} on every {@link #get(int)}, so callers compare bookings with
+ * {@code equals} rather than by identity. Stores are not thread-safe; callers
+ * guard them with the same lock as the indexes over them.
+ * </p>
+ * <p>
+ * Since bookings are only appended, a {@link #snapshot()} can share the store's
+ * storage instead of copying it: later adds only write past the end of the
+ * snapshot, and growing or clearing the store allocates new storage rather than
+ * overwriting the old. Snapshots are read-only and may be read from any thread
+ * once they have been safely published.
+ * </p>
+ */
+interface BookingStore {
+
+    /**
+     * Appends a booking.
+     *
+     * @param booking The booking.
+     * @return The position of the booking.
+     */
+    int add(Booking booking);
+
+    /**
+     * Gets the booking at a position.
+     *
+     * @param position The position.
+     * @return The booking.
+     * @throws IndexOutOfBoundsException If there is no booking at that position.
+     */
+    Booking get(int position);
+
+    /**
+     * Gets the booking number of the booking at a position, without
+     * materializing the booking where the layout allows it.
+     *
+     * @param position The position.
+     * @return The booking number.
+     * @throws IndexOutOfBoundsException If there is no booking at that position.
+     */
+    default int getBookingNumber(int position) {
+        return get(position).getBookingNumber();
+    }
+
+    /**
+     * Gets the number of bookings.
+     *
+     * @return The size.
+     */
+    int size();
+
+    /**
+     * Removes the bookings from {@code size} onwards, used to roll back bookings
+     * that could not be written. Only bookings added since the last
+     * {@link #snapshot()} may be removed, since their storage is reused.
+     *
+     * @param size The number of bookings to keep.
+     */
+    void truncate(int size);
+
+    /**
+     * Removes every booking, before the store is refilled during a load.
+     */
+    void clear();
+
+    /**
+     * Gets a read-only view of the bookings stored so far, which shares this
+     * store's storage and does not change when bookings are added later.
+     *
+     * @return The snapshot; its {@code add}, {@code truncate} and {@code clear}
+     *         throw {@link UnsupportedOperationException}.
+     */
+    BookingStore snapshot();
+
+    /**
+     * Counts the bookings per treatment. Bookings without a treatment are not counted.
+     *
+     * @return The number of bookings per treatment, in order of first appearance.
+     */
+    default Map<String, Integer> countByTreatment() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (int i = 0; i < size(); i++) {
+            String treatment = get(i).getTreatment();
+            if (treatment != null) {
+                counts.merge(treatment, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Gets a read-only list view of the store. Elements are materialized when
+     * they are read, and the view follows later changes to the store.
+     *
+     * @return The view.
+     */
+    default List<Booking> asList() {
+        return new View(this);
+    }
+
+    /**
+     * List view over a store.
+     */
+    final class View extends AbstractList<Booking> implements RandomAccess {
+
+        private final BookingStore store;
+
+        View(BookingStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public Booking get(int index) {
+            return store.get(index);
+        }
+
+        @Override
+        public int size() {
+            return store.size();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package booking.persistence;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import booking.core.Booking;
+
+/**
+ * One published version of a repository's bookings.
+ * <p>
+ * A version pairs a read-only {@link BookingStore#snapshot()} with the data
+ * version it was published at. Writers build the next version and publish it
+ * with a single reference swap; readers take the current version and read it
+ * without locking or copying, and it stays the same however many bookings are
+ * added afterwards. The version itself is the unmodifiable list handed out by
+ * {@code getAllBookings()}.
+ * </p>
+ */
+final class BookingVersion extends AbstractList<Booking> implements RandomAccess {
+
+    private final BookingStore bookings;
+    private final long dataVersion;
+
+    /**
+     * Creates a version.
+     *
+     * @param bookings    A read-only snapshot of the bookings.
+     * @param dataVersion The data version of the snapshot.
+     */
+    BookingVersion(BookingStore bookings, long dataVersion) {
+        this.bookings = bookings;
+        this.dataVersion = dataVersion;
+    }
+
+    @Override
+    public Booking get(int index) {
+        return bookings.get(index);
+    }
+
+    @Override
+    public int size() {
+        return bookings.size();
+    }
+
+    /**
+     * Gets the snapshot of the bookings, for scans that do not materialize them.
+     *
+     * @return The read-only store.
+     */
+    BookingStore getStore() {
+        return bookings;
+    }
+
+    /**
+     * Gets the data version this version was published at.
+     *
+     * @return The data version.
+     */
+    long getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * Creates the version that follows this one.
+     *
+     * @param store The store to snapshot.
+     * @return A version with a snapshot of the store and the next data version.
+     */
+    BookingVersion next(BookingStore store) {
+        return new BookingVersion(store.snapshot(), dataVersion + 1);
+    }
+}
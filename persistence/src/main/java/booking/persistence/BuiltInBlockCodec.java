@@ -0,0 +1,110 @@
+package booking.persistence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * The block codecs that come with the JDK. Deflaters and inflaters are created
+ * per block and released right away, since they hold native memory.
+ */
+enum BuiltInBlockCodec implements BlockCodec {
+
+    NONE("none") {
+        @Override
+        public byte[] compress(byte[] data, int length) {
+            return Arrays.copyOf(data, length);
+        }
+
+        @Override
+        public byte[] decompress(byte[] block, int length) throws IOException {
+            if (block.length != length) {
+                throw new IOException("Stored block has " + block.length + " bytes instead of " + length);
+            }
+            return block;
+        }
+    },
+
+    DEFLATE("deflate") {
+        @Override
+        public byte[] compress(byte[] data, int length) {
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            try {
+                deflater.setInput(data, 0, length);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+                return out.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        @Override
+        public byte[] decompress(byte[] block, int length) throws IOException {
+            Inflater inflater = new Inflater(true);
+            try {
+                inflater.setInput(block);
+                byte[] data = new byte[length];
+                int filled = 0;
+                while (filled < length && !inflater.finished()) {
+                    int inflated = inflater.inflate(data, filled, length - filled);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    filled += inflated;
+                }
+                if (filled != length) {
+                    throw new IOException("Deflate block ended after " + filled + " of " + length + " bytes");
+                }
+                return data;
+            } catch (DataFormatException e) {
+                throw new IOException("Corrupt deflate block", e);
+            } finally {
+                inflater.end();
+            }
+        }
+    },
+
+    GZIP("gzip") {
+        @Override
+        public byte[] compress(byte[] data, int length) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 4 + 64);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(data, 0, length);
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        public byte[] decompress(byte[] block, int length) throws IOException {
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(block))) {
+                byte[] data = gzip.readNBytes(length);
+                if (data.length != length) {
+                    throw new IOException("GZIP block ended after " + data.length + " of " + length + " bytes");
+                }
+                return data;
+            }
+        }
+    };
+
+    private final String name;
+
+    BuiltInBlockCodec(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+}
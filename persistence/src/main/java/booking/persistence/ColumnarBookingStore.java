@@ -0,0 +1,165 @@
+package booking.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import booking.core.Booking;
+
+/**
+ * Booking store that keeps each field in its own primitive column.
+ * <p>
+ * Booking numbers, epoch days and dictionary-encoded treatments are held in
+ * {@code int[]} columns. Names and emails are packed as UTF-8 into one growing
+ * {@code byte[]}, located by an offsets column with two entries per booking.
+ * The store therefore consists of a handful of arrays, however many bookings it
+ * holds, and a scan over one field reads a single contiguous column. A
+ * {@link Booking} is only materialized when {@link #get(int)} is called.
+ * </p>
+ */
+final class ColumnarBookingStore implements BookingStore {
+
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final byte NAME_NULL = 1;
+    private static final byte EMAIL_NULL = 2;
+
+    private final StringDictionary treatments;
+    private final boolean readOnly;
+    private int[] bookingNumbers;
+    private int[] epochDays;
+    private int[] treatmentCodes;
+    private byte[] nullFlags;
+    private int[] textOffsets; // Name i spans [2i, 2i + 1), email i spans [2i + 1, 2i + 2)
+    private byte[] text;
+    private int size;
+
+    /**
+     * Creates an empty store.
+     */
+    ColumnarBookingStore() {
+        this.treatments = new StringDictionary();
+        this.readOnly = false;
+        clear();
+    }
+
+    private ColumnarBookingStore(ColumnarBookingStore store) {
+        this.treatments = store.treatments.snapshot();
+        this.readOnly = true;
+        this.bookingNumbers = store.bookingNumbers;
+        this.epochDays = store.epochDays;
+        this.treatmentCodes = store.treatmentCodes;
+        this.nullFlags = store.nullFlags;
+        this.textOffsets = store.textOffsets;
+        this.text = store.text;
+        this.size = store.size;
+    }
+
+    @Override
+    public int add(Booking booking) {
+        checkWritable();
+        if (size == bookingNumbers.length) {
+            int capacity = size * 2;
+            bookingNumbers = Arrays.copyOf(bookingNumbers, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            treatmentCodes = Arrays.copyOf(treatmentCodes, capacity);
+            nullFlags = Arrays.copyOf(nullFlags, capacity);
+            textOffsets = Arrays.copyOf(textOffsets, 2 * capacity + 1);
+        }
+        LocalDate date = booking.getDate();
+        bookingNumbers[size] = booking.getBookingNumber();
+        epochDays[size] = date == null ? NO_DATE : Math.toIntExact(date.toEpochDay());
+        treatmentCodes[size] = treatments.encode(booking.getTreatment());
+        nullFlags[size] = (byte) ((booking.getName() == null ? NAME_NULL : 0)
+                | (booking.getEmail() == null ? EMAIL_NULL : 0));
+        textOffsets[2 * size + 1] = appendText(textOffsets[2 * size], booking.getName());
+        textOffsets[2 * size + 2] = appendText(textOffsets[2 * size + 1], booking.getEmail());
+        return size++;
+    }
+
+    private int appendText(int offset, String value) {
+        if (value == null) {
+            return offset;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (offset + bytes.length > text.length) {
+            text = Arrays.copyOf(text, Math.max(text.length * 2, offset + bytes.length));
+        }
+        System.arraycopy(bytes, 0, text, offset, bytes.length);
+        return offset + bytes.length;
+    }
+
+    @Override
+    public Booking get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Booking " + position + " of " + size);
+        }
+        int epochDay = epochDays[position];
+        return new Booking(bookingNumbers[position],
+                (nullFlags[position] & NAME_NULL) != 0 ? null : text(2 * position),
+                (nullFlags[position] & EMAIL_NULL) != 0 ? null : text(2 * position + 1),
+                treatments.decode(treatmentCodes[position]),
+                epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay));
+    }
+
+    private String text(int field) {
+        int start = textOffsets[field];
+        return new String(text, start, textOffsets[field + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void truncate(int size) {
+        checkWritable();
+        // The packed text of removed bookings is overwritten by the next add
+        this.size = Math.min(this.size, size);
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        treatments.clear();
+        bookingNumbers = new int[16];
+        epochDays = new int[16];
+        treatmentCodes = new int[16];
+        nullFlags = new byte[16];
+        textOffsets = new int[2 * 16 + 1];
+        text = new byte[1024];
+        size = 0;
+    }
+
+    @Override
+    public BookingStore snapshot() {
+        return new ColumnarBookingStore(this);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Booking store snapshots are read-only");
+        }
+    }
+
+    /**
+     * Counts the bookings per treatment by scanning the treatment column only,
+     * without materializing any booking.
+     */
+    @Override
+    public Map<String, Integer> countByTreatment() {
+        int[] counts = new int[treatments.size() + 1]; // Slot 0 counts missing treatments
+        for (int i = 0; i < size; i++) {
+            counts[treatmentCodes[i] + 1]++;
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code = 0; code < treatments.size(); code++) {
+            if (counts[code + 1] > 0) {
+                result.put(treatments.decode(code), counts[code + 1]);
+            }
+        }
+        return result;
+    }
+}
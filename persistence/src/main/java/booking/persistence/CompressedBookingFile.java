@@ -0,0 +1,268 @@
+package booking.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import booking.core.Booking;
+
+/**
+ * Booking file made of independently compressed blocks of newline-delimited JSON.
+ * <p>
+ * Each booking is written as one line of compact JSON. Lines are collected into
+ * blocks of about {@value #BLOCK_BYTES} bytes, and each block is compressed on
+ * its own with a {@link BlockCodec}:
+ * </p>
+ * <pre>
+ * header  int magic, byte version, byte codecNameLength, codec name (ASCII)
+ * block   int storedLength, int rawLength, int recordCount, int crc32 of the raw bytes,
+ *         storedLength bytes of compressed NDJSON
+ * </pre>
+ * <p>
+ * A block never splits a record, so any block can be decompressed and parsed
+ * without the ones before it. Reading streams one block at a time; the block
+ * headers alone list the blocks and their record counts, which lets a partial
+ * load skip whole blocks without decompressing them.
+ * </p>
+ */
+final class CompressedBookingFile {
+
+    static final int BLOCK_BYTES = 64 * 1024;
+    private static final int MAGIC = 0x424B5A42; // "BKZB"
+    private static final int VERSION = 1;
+    private static final int BLOCK_HEADER_BYTES = 16;
+    private static final int MAX_BLOCK_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * The position and size of one block in a file.
+     *
+     * @param offset      The offset of the block header in the file.
+     * @param recordCount The number of bookings in the block.
+     */
+    record Block(long offset, int recordCount) {
+    }
+
+    private CompressedBookingFile() {
+    }
+
+    /**
+     * Writes bookings to a compressed file, replacing its contents.
+     *
+     * @param file         The file to write.
+     * @param bookings     The bookings to write.
+     * @param codec        The codec to compress the blocks with.
+     * @param objectMapper The mapper used to encode the bookings.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(Path file, List<Booking> bookings, BlockCodec codec, ObjectMapper objectMapper)
+            throws IOException {
+        byte[] codecName = codec.getName().getBytes(StandardCharsets.US_ASCII);
+        if (codecName.length > 255) {
+            throw new IOException("Codec name is too long: " + codec.getName());
+        }
+        ObjectWriter writer = objectMapper.writer();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(codecName.length);
+            out.write(codecName);
+            BlockBuffer block = new BlockBuffer();
+            for (Booking booking : bookings) {
+                writer.writeValue(block, booking);
+                block.write('\n');
+                block.records++;
+                if (block.size() >= BLOCK_BYTES) {
+                    writeBlock(out, block, codec);
+                }
+            }
+            if (block.records > 0) {
+                writeBlock(out, block, codec);
+            }
+        }
+    }
+
+    /**
+     * Buffer for the raw bytes of the block being filled.
+     */
+    private static final class BlockBuffer extends ByteArrayOutputStream {
+
+        private int records;
+
+        BlockBuffer() {
+            super(BLOCK_BYTES + 1024);
+        }
+
+        @Override
+        public void close() {
+            // Jackson closes its target after each value; the buffer is reused
+        }
+    }
+
+    private static void writeBlock(DataOutputStream out, BlockBuffer block, BlockCodec codec) throws IOException {
+        byte[] raw = block.toByteArray();
+        byte[] stored = codec.compress(raw, raw.length);
+        CRC32 crc = new CRC32();
+        crc.update(raw);
+        out.writeInt(stored.length);
+        out.writeInt(raw.length);
+        out.writeInt(block.records);
+        out.writeInt((int) crc.getValue());
+        out.write(stored);
+        block.reset();
+        block.records = 0;
+    }
+
+    /**
+     * Reads the codec named in a file's header.
+     *
+     * @param file The file.
+     * @return The codec its blocks are compressed with.
+     * @throws IOException If the file is not a compressed booking file or its
+     *                     codec is not installed.
+     */
+    static BlockCodec codecOf(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return readHeader(in, file);
+        }
+    }
+
+    private static BlockCodec readHeader(DataInputStream in, Path file) throws IOException {
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a compressed booking file: " + file);
+            }
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported compressed booking file version " + version + ": " + file);
+            }
+            byte[] codecName = in.readNBytes(in.readUnsignedByte());
+            return BlockCodec.named(new String(codecName, StandardCharsets.US_ASCII));
+        } catch (EOFException e) {
+            throw new IOException("Truncated compressed booking file header: " + file, e);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Cannot read " + file, e);
+        }
+    }
+
+    /**
+     * Reads every booking in file order, decompressing one block at a time.
+     *
+     * @param file         The file.
+     * @param objectMapper The mapper used to decode the bookings.
+     * @param sink         Receives each booking.
+     * @return The number of bookings read.
+     * @throws IOException If the file cannot be read or a block is corrupt.
+     */
+    static int read(Path file, ObjectMapper objectMapper, Consumer<Booking> sink) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            BlockCodec codec = readHeader(in, file);
+            int count = 0;
+            int first;
+            while ((first = in.read()) >= 0) { // Stops at the end of the last block
+                int storedLength;
+                try {
+                    storedLength = first << 24 | in.readUnsignedByte() << 16 | in.readUnsignedShort();
+                } catch (EOFException e) {
+                    throw new IOException("Truncated block in " + file, e);
+                }
+                count += readBlock(in, storedLength, codec, objectMapper, sink, file);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Lists the blocks of a file from their headers, without decompressing them.
+     *
+     * @param file The file.
+     * @return The blocks in file order.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<Block> blocks(Path file) throws IOException {
+        long offset = 4 + 1 + 1 + codecOf(file).getName().getBytes(StandardCharsets.US_ASCII).length;
+        List<Block> blocks = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            while (offset < size) {
+                header.clear();
+                while (header.hasRemaining()) {
+                    if (channel.read(header, offset + header.position()) < 0) {
+                        throw new IOException("Truncated block at offset " + offset + " in " + file);
+                    }
+                }
+                int storedLength = header.getInt(0);
+                blocks.add(new Block(offset, header.getInt(8)));
+                offset += BLOCK_HEADER_BYTES + storedLength;
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Reads the bookings of a single block, without reading the blocks before it.
+     *
+     * @param file         The file.
+     * @param block        A block returned by {@link #blocks(Path)}.
+     * @param objectMapper The mapper used to decode the bookings.
+     * @param sink         Receives each booking in the block.
+     * @return The number of bookings read.
+     * @throws IOException If the block cannot be read or is corrupt.
+     */
+    static int readBlock(Path file, Block block, ObjectMapper objectMapper, Consumer<Booking> sink)
+            throws IOException {
+        BlockCodec codec = codecOf(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            channel.position(block.offset());
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            return readBlock(in, in.readInt(), codec, objectMapper, sink, file);
+        }
+    }
+
+    private static int readBlock(DataInputStream in, int storedLength, BlockCodec codec, ObjectMapper objectMapper,
+            Consumer<Booking> sink, Path file) throws IOException {
+        try {
+            int rawLength = in.readInt();
+            int recordCount = in.readInt();
+            int checksum = in.readInt();
+            if (storedLength < 0 || storedLength > MAX_BLOCK_BYTES || rawLength < 0 || rawLength > MAX_BLOCK_BYTES) {
+                throw new IOException("Corrupt block header in " + file);
+            }
+            byte[] raw = codec.decompress(in.readNBytes(storedLength), rawLength);
+            CRC32 crc = new CRC32();
+            crc.update(raw);
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Block checksum mismatch in " + file);
+            }
+            int read;
+            try (JsonParser parser = objectMapper.getFactory().createParser(raw)) {
+                read = BookingJsonReader.readValues(parser, sink);
+            }
+            if (read != recordCount) {
+                throw new IOException("Block holds " + read + " bookings instead of " + recordCount + " in " + file);
+            }
+            return read;
+        } catch (EOFException e) {
+            throw new IOException("Truncated block in " + file, e);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package booking.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.function.Consumer;
+
+/**
+ * Watches the booking data directory with a {@link WatchService} and reports
+ * which files were created, modified or deleted.
+ * <p>
+ * Events are delivered on a daemon thread. If the watch service overflows and
+ * drops events, the listener is called with {@code null} to signal that any file
+ * may have changed.
+ * </p>
+ */
+final class DataDirectoryWatcher implements Closeable {
+
+    private final WatchService watchService;
+    private final Consumer<Path> listener;
+    private final Thread thread;
+
+    /**
+     * Starts watching a directory.
+     *
+     * @param directory The directory to watch.
+     * @param listener  Called with the file name of each changed file, or with
+     *                  {@code null} when events were lost.
+     * @throws IOException If the directory cannot be watched.
+     */
+    DataDirectoryWatcher(Path directory, Consumer<Path> listener) throws IOException {
+        this.listener = listener;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this::run, "booking-data-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        listener.accept(null);
+                    } else if (event.context() instanceof Path fileName) {
+                        listener.accept(fileName);
+                    }
+                }
+                if (!key.reset()) {
+                    return; // The directory is gone
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped by close()
+        }
+    }
+
+    /**
+     * Stops watching the directory.
+     *
+     * @throws IOException If the watch service cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,112 @@
+package booking.persistence;
+
+import java.time.LocalDate;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Secondary index from booking date to the store positions of the bookings on
+ * that day.
+ * <p>
+ * Days are keyed by their epoch day in a {@link NavigableMap}, so a date range
+ * is answered by scanning only the days inside the range. Bookings on the same
+ * day are kept in insertion order. The index is not thread-safe; callers guard
+ * it with the same lock as the {@link BookingStore} it indexes.
+ * </p>
+ */
+final class DateIndex {
+
+    private final NavigableMap<Long, IntList> bookingsByDay = new TreeMap<>();
+
+    /**
+     * Adds a booking to the end of its day's list.
+     *
+     * @param date     The booking's date.
+     * @param position The booking's position in the store.
+     */
+    void add(LocalDate date, int position) {
+        if (date != null) {
+            bookingsByDay.computeIfAbsent(date.toEpochDay(), k -> new IntList()).add(position);
+        }
+    }
+
+    /**
+     * Removes a booking, used to roll back a booking that could not be written.
+     *
+     * @param date     The booking's date.
+     * @param position The booking's position in the store.
+     */
+    void remove(LocalDate date, int position) {
+        IntList list = date == null ? null : bookingsByDay.get(date.toEpochDay());
+        if (list == null) {
+            return;
+        }
+        list.removeLastOccurrence(position);
+        if (list.size() == 0) {
+            bookingsByDay.remove(date.toEpochDay());
+        }
+    }
+
+    /**
+     * Gets the bookings on one day.
+     *
+     * @param date The day.
+     * @return The store positions of the day's bookings in insertion order.
+     */
+    int[] on(LocalDate date) {
+        IntList list = bookingsByDay.get(date.toEpochDay());
+        return list == null ? new int[0] : list.toArray();
+    }
+
+    /**
+     * Gets the bookings from {@code from} to {@code to}, both inclusive.
+     *
+     * @param from The first day.
+     * @param to   The last day.
+     * @return The store positions ordered by date, then by insertion order.
+     */
+    int[] between(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return new int[0];
+        }
+        IntList result = new IntList();
+        for (IntList day : bookingsByDay.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values()) {
+            for (int i = 0; i < day.size(); i++) {
+                result.add(day.get(i));
+            }
+        }
+        return result.toArray();
+    }
+
+    /**
+     * Counts the bookings from {@code from} to {@code to}, both inclusive,
+     * stopping once the count passes a limit. Only the day lists are visited,
+     * not the positions in them.
+     *
+     * @param from  The first day.
+     * @param to    The last day.
+     * @param limit The count at which to stop.
+     * @return The number of bookings in the range, or a number greater than
+     *         {@code limit} if there are more.
+     */
+    long count(LocalDate from, LocalDate to, long limit) {
+        if (from.isAfter(to)) {
+            return 0;
+        }
+        long count = 0;
+        for (IntList day : bookingsByDay.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values()) {
+            count += day.size();
+            if (count > limit) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Removes every entry, before the index is rebuilt during a load.
+     */
+    void clear() {
+        bookingsByDay.clear();
+    }
+}
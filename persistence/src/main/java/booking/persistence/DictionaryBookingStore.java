@@ -0,0 +1,133 @@
+package booking.persistence;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import booking.core.Booking;
+
+/**
+ * Booking store that dictionary-encodes every booking into five ints.
+ * <p>
+ * Treatments, of which there are only a handful, get their own dictionary;
+ * names and emails share one intern table, so a repeat customer's strings are
+ * kept once. Each booking is packed as booking number, name code, email code,
+ * treatment code and epoch day into one shared {@code int[]}, so the store holds
+ * no object per booking. {@link #get(int)} materializes a new {@link Booking}
+ * whose strings are the shared dictionary instances.
+ * </p>
+ */
+final class DictionaryBookingStore implements BookingStore {
+
+    private static final int FIELDS = 5;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+
+    private final StringDictionary treatments;
+    private final StringDictionary people;
+    private final boolean readOnly;
+    private int[] rows;
+    private int size;
+
+    /**
+     * Creates an empty store.
+     */
+    DictionaryBookingStore() {
+        this(new StringDictionary(), new StringDictionary(), new int[FIELDS * 16], 0, false);
+    }
+
+    private DictionaryBookingStore(StringDictionary treatments, StringDictionary people, int[] rows, int size,
+            boolean readOnly) {
+        this.treatments = treatments;
+        this.people = people;
+        this.rows = rows;
+        this.size = size;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public int add(Booking booking) {
+        checkWritable();
+        if (FIELDS * (size + 1) > rows.length) {
+            rows = Arrays.copyOf(rows, rows.length * 2);
+        }
+        int row = FIELDS * size;
+        LocalDate date = booking.getDate();
+        rows[row] = booking.getBookingNumber();
+        rows[row + 1] = people.encode(booking.getName());
+        rows[row + 2] = people.encode(booking.getEmail());
+        rows[row + 3] = treatments.encode(booking.getTreatment());
+        rows[row + 4] = date == null ? NO_DATE : Math.toIntExact(date.toEpochDay());
+        return size++;
+    }
+
+    @Override
+    public Booking get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Booking " + position + " of " + size);
+        }
+        int row = FIELDS * position;
+        int epochDay = rows[row + 4];
+        return new Booking(rows[row], people.decode(rows[row + 1]), people.decode(rows[row + 2]),
+                treatments.decode(rows[row + 3]), epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay));
+    }
+
+    @Override
+    public int getBookingNumber(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Booking " + position + " of " + size);
+        }
+        return rows[FIELDS * position];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void truncate(int size) {
+        checkWritable();
+        // Strings only used by the removed bookings stay in the dictionaries until the next clear
+        this.size = Math.min(this.size, size);
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        treatments.clear();
+        people.clear();
+        rows = new int[FIELDS * 16];
+        size = 0;
+    }
+
+    @Override
+    public BookingStore snapshot() {
+        return new DictionaryBookingStore(treatments.snapshot(), people.snapshot(), rows, size, true);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Booking store snapshots are read-only");
+        }
+    }
+
+    /**
+     * Counts the bookings per treatment from the packed treatment codes, without
+     * materializing any booking.
+     */
+    @Override
+    public Map<String, Integer> countByTreatment() {
+        int[] counts = new int[treatments.size() + 1]; // Slot 0 counts missing treatments
+        for (int row = 3; row < FIELDS * size; row += FIELDS) {
+            counts[rows[row] + 1]++;
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code = 0; code < treatments.size(); code++) {
+            if (counts[code + 1] > 0) {
+                result.put(treatments.decode(code), counts[code + 1]);
+            }
+        }
+        return result;
+    }
+}
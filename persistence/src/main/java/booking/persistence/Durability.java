@@ -0,0 +1,88 @@
+package booking.persistence;
+
+/**
+ * Describes when booking writes are forced to disk by the group-commit writer.
+ * <p>
+ * Concurrent writes are always collected into batches and written with a single
+ * write call. The durability level decides whether and when that write is
+ * followed by an fsync:
+ * </p>
+ * <ul>
+ *   <li>{@link Level#NONE}: batches are written but never synced; callers return
+ *       as soon as the data has been handed to the operating system.</li>
+ *   <li>{@link Level#BATCHED}: the writer waits up to {@code maxBatchDelayMillis}
+ *       or until {@code maxBatchRecords} bookings are queued, then writes and syncs
+ *       the whole batch once.</li>
+ *   <li>{@link Level#ALWAYS}: every batch is synced immediately, without waiting
+ *       for more writes to arrive.</li>
+ * </ul>
+ *
+ * @param level               The durability level.
+ * @param maxBatchRecords     The number of queued bookings that triggers a flush.
+ * @param maxBatchDelayMillis The longest time a booking waits for its batch to fill up.
+ */
+public record Durability(Level level, int maxBatchRecords, long maxBatchDelayMillis) {
+
+    private static final int DEFAULT_BATCH_RECORDS = 256;
+    private static final long DEFAULT_BATCH_DELAY_MILLIS = 5;
+
+    /**
+     * The available durability levels.
+     */
+    public enum Level {
+        NONE, BATCHED, ALWAYS
+    }
+
+    /**
+     * Validates the batch limits.
+     *
+     * @throws IllegalArgumentException If a batch limit is not positive.
+     */
+    public Durability {
+        if (level == null) {
+            throw new IllegalArgumentException("Durability level is required.");
+        }
+        if (maxBatchRecords <= 0 || maxBatchDelayMillis < 0) {
+            throw new IllegalArgumentException("Batch limits must be positive.");
+        }
+    }
+
+    /**
+     * Writes are never forced to disk.
+     *
+     * @return A durability setting without fsync.
+     */
+    public static Durability none() {
+        return new Durability(Level.NONE, DEFAULT_BATCH_RECORDS, 0);
+    }
+
+    /**
+     * Writes are synced once per batch of up to {@code maxRecords} bookings or
+     * {@code maxDelayMillis} milliseconds.
+     *
+     * @param maxRecords     The number of queued bookings that triggers a flush.
+     * @param maxDelayMillis The longest time a booking waits for its batch.
+     * @return A batched durability setting.
+     */
+    public static Durability batched(int maxRecords, long maxDelayMillis) {
+        return new Durability(Level.BATCHED, maxRecords, maxDelayMillis);
+    }
+
+    /**
+     * Writes are synced once per batch with the default batch limits.
+     *
+     * @return A batched durability setting.
+     */
+    public static Durability batched() {
+        return batched(DEFAULT_BATCH_RECORDS, DEFAULT_BATCH_DELAY_MILLIS);
+    }
+
+    /**
+     * Every write is synced before the caller returns.
+     *
+     * @return A durability setting that always syncs.
+     */
+    public static Durability always() {
+        return new Durability(Level.ALWAYS, DEFAULT_BATCH_RECORDS, 0);
+    }
+}
@@ -0,0 +1,130 @@
+package booking.persistence;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Secondary index from a customer's email address to the store positions of
+ * that customer's bookings.
+ * <p>
+ * Emails are normalized to lower case, so lookups are case-insensitive. Each
+ * customer's positions are kept in insertion order, and a lookup only costs as
+ * much as the number of bookings it returns. The index is not thread-safe;
+ * callers guard it with the same lock as the {@link BookingStore} it indexes.
+ * </p>
+ * <p>
+ * Each customer also has a version, the value of a counter of index changes at
+ * the customer's last change. The counter is never reset, so a version is never
+ * reused for different bookings, even across a reload.
+ * </p>
+ */
+final class EmailIndex {
+
+    private final Map<String, IntList> bookingsByEmail = new HashMap<>();
+    private final Map<String, Long> versionByEmail = new HashMap<>();
+    private long changes;
+
+    /**
+     * Normalizes an email address to its index key.
+     *
+     * @param email The email address.
+     * @return The lower-case key, or {@code null} for a missing email.
+     */
+    static String normalize(String email) {
+        return email == null ? null : email.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Adds a booking to the end of its customer's list.
+     *
+     * @param email    The booking's email address.
+     * @param position The booking's position in the store.
+     */
+    void add(String email, int position) {
+        String key = normalize(email);
+        if (key != null) {
+            bookingsByEmail.computeIfAbsent(key, k -> new IntList()).add(position);
+            versionByEmail.put(key, ++changes);
+        }
+    }
+
+    /**
+     * Removes a booking, used to roll back a booking that could not be written.
+     *
+     * @param email    The booking's email address.
+     * @param position The booking's position in the store.
+     */
+    void remove(String email, int position) {
+        String key = normalize(email);
+        IntList list = key == null ? null : bookingsByEmail.get(key);
+        if (list == null) {
+            return;
+        }
+        list.removeLastOccurrence(position);
+        versionByEmail.put(key, ++changes);
+        if (list.size() == 0) {
+            bookingsByEmail.remove(key);
+            versionByEmail.remove(key);
+        }
+    }
+
+    /**
+     * Gets the bookings for an email address, ignoring case.
+     *
+     * @param email The email address.
+     * @return The store positions of the customer's bookings in insertion order.
+     */
+    int[] get(String email) {
+        String key = normalize(email);
+        IntList list = key == null ? null : bookingsByEmail.get(key);
+        return list == null ? new int[0] : list.toArray();
+    }
+
+    /**
+     * Counts the bookings for an email address, ignoring case.
+     *
+     * @param email The email address.
+     * @return The number of the customer's bookings.
+     */
+    int count(String email) {
+        String key = normalize(email);
+        IntList list = key == null ? null : bookingsByEmail.get(key);
+        return list == null ? 0 : list.size();
+    }
+
+    /**
+     * Checks whether a booking was made with an email address, ignoring case.
+     * Positions are added in increasing order, so this is a binary search.
+     *
+     * @param email    The email address.
+     * @param position The booking's position in the store.
+     * @return {@code true} if the booking at the position has that email address.
+     */
+    boolean contains(String email, int position) {
+        String key = normalize(email);
+        IntList list = key == null ? null : bookingsByEmail.get(key);
+        return list != null && list.containsSorted(position);
+    }
+
+    /**
+     * Gets the version of a customer's bookings, ignoring case.
+     *
+     * @param email The email address.
+     * @return A number that changes whenever the customer's bookings change, or
+     *         0 if the customer has no bookings.
+     */
+    long version(String email) {
+        String key = normalize(email);
+        Long version = key == null ? null : versionByEmail.get(key);
+        return version == null ? 0 : version;
+    }
+
+    /**
+     * Removes every entry, before the index is rebuilt during a load.
+     */
+    void clear() {
+        bookingsByEmail.clear();
+        versionByEmail.clear();
+    }
+}
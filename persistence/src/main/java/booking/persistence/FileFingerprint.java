@@ -0,0 +1,61 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Identifies the state of a data file on disk, so that a reload can be skipped
+ * when the file has not changed since it was last read or written.
+ * <p>
+ * The modification time and size are cheap to check and catch ordinary edits.
+ * The optional CRC32 of the contents also catches rewrites that keep both the
+ * size and the (coarse-grained) modification time.
+ * </p>
+ *
+ * @param exists       Whether the file exists.
+ * @param modifiedTime The last modification time in nanoseconds.
+ * @param size         The file size in bytes.
+ * @param contentHash  The CRC32 of the contents, or {@code 0} if not computed.
+ */
+record FileFingerprint(boolean exists, long modifiedTime, long size, long contentHash) {
+
+    private static final FileFingerprint MISSING = new FileFingerprint(false, 0, 0, 0);
+
+    /**
+     * Takes the fingerprint of a file.
+     *
+     * @param file The file.
+     * @param hash {@code true} to include a checksum of the contents.
+     * @return The fingerprint; a file that does not exist has a fixed fingerprint.
+     * @throws IOException If the file attributes or contents cannot be read.
+     */
+    static FileFingerprint of(Path file, boolean hash) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return MISSING;
+        }
+        long contentHash = hash ? checksum(file) : 0;
+        return new FileFingerprint(true, attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), attributes.size(),
+                contentHash);
+    }
+
+    private static long checksum(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+}
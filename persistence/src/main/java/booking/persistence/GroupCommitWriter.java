@@ -0,0 +1,185 @@
+package booking.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import booking.core.Booking;
+
+/**
+ * Collects booking writes from concurrent callers and commits them in batches
+ * from a single writer thread.
+ * <p>
+ * Each call to {@link #submit(List)} enqueues its bookings and returns a future.
+ * The writer thread takes everything that is queued, hands it to the
+ * {@link BatchSink} in one call, syncs it according to the configured
+ * {@link Durability}, and then completes the future of every caller in the batch.
+ * </p>
+ * <p>
+ * If a commit fails with an {@link Error}, the futures of the batch and of
+ * everything still queued complete with that error, the writer is closed, and
+ * the error ends the writer thread.
+ * </p>
+ */
+final class GroupCommitWriter implements Closeable {
+
+    /**
+     * Destination for committed batches.
+     */
+    @FunctionalInterface
+    interface BatchSink {
+
+        /**
+         * Writes a batch of bookings.
+         *
+         * @param batch The bookings to write, in submission order.
+         * @param sync  {@code true} if the batch must be on disk before returning.
+         * @throws IOException If the batch cannot be written.
+         */
+        void commit(List<Booking> batch, boolean sync) throws IOException;
+    }
+
+    private static final class PendingCommit {
+        private final List<Booking> bookings;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingCommit(List<Booking> bookings) {
+            this.bookings = bookings;
+        }
+    }
+
+    private final BatchSink sink;
+    private final Durability durability;
+    private final BlockingQueue<PendingCommit> queue = new LinkedBlockingQueue<>();
+    private Thread writerThread;
+    private volatile boolean closed;
+
+    /**
+     * Creates a writer that commits batches to the given sink.
+     * The writer thread is started on the first submitted write.
+     *
+     * @param sink       The destination for committed batches.
+     * @param durability When batches are synced.
+     */
+    GroupCommitWriter(BatchSink sink, Durability durability) {
+        this.sink = sink;
+        this.durability = durability;
+    }
+
+    /**
+     * Enqueues bookings to be committed together in the next batch.
+     *
+     * @param bookings The bookings to commit as one unit.
+     * @return A future that completes once the batch holding the bookings has been
+     *         committed, or completes exceptionally if the commit failed.
+     */
+    CompletableFuture<Void> submit(List<Booking> bookings) {
+        PendingCommit pending = new PendingCommit(List.copyOf(bookings));
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Booking writer is closed."));
+            }
+            if (writerThread == null) {
+                writerThread = new Thread(this::run, "booking-group-commit");
+                writerThread.setDaemon(true);
+                writerThread.start();
+            }
+            queue.add(pending);
+        }
+        return pending.future;
+    }
+
+    /**
+     * Gets the durability setting used by this writer.
+     *
+     * @return The durability setting.
+     */
+    Durability getDurability() {
+        return durability;
+    }
+
+    private void run() {
+        List<PendingCommit> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingCommit first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                if (durability.level() == Durability.Level.BATCHED) {
+                    fillBatch(batch, first.bookings.size());
+                } else {
+                    queue.drainTo(batch);
+                }
+            } catch (InterruptedException e) {
+                closed = true; // Stop after committing whatever is still queued
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void fillBatch(List<PendingCommit> batch, int initialRecords) throws InterruptedException {
+        int records = initialRecords;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durability.maxBatchDelayMillis());
+        while (records < durability.maxBatchRecords()) {
+            long remaining = deadline - System.nanoTime();
+            PendingCommit next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            records += next.bookings.size();
+        }
+    }
+
+    private void flush(List<PendingCommit> batch) {
+        List<Booking> bookings = new ArrayList<>();
+        for (PendingCommit pending : batch) {
+            bookings.addAll(pending.bookings);
+        }
+        try {
+            sink.commit(bookings, durability.level() != Durability.Level.NONE);
+            batch.forEach(pending -> pending.future.complete(null));
+        } catch (IOException | RuntimeException e) {
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+        } catch (Throwable e) {
+            // The writer thread dies with the error, so no caller may be left waiting for it
+            synchronized (this) {
+                closed = true;
+            }
+            batch.forEach(pending -> pending.future.completeExceptionally(e));
+            List<PendingCommit> queued = new ArrayList<>();
+            queue.drainTo(queued);
+            queued.forEach(pending -> pending.future.completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    /**
+     * Commits everything that is still queued and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            thread = writerThread;
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
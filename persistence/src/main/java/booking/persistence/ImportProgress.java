@@ -0,0 +1,21 @@
+package booking.persistence;
+
+/**
+ * Receives progress reports while a booking file is loaded.
+ * <p>
+ * Reports are made from the thread that started the load, in file order, after
+ * each chunk of the file has been parsed and merged.
+ * </p>
+ */
+@FunctionalInterface
+public interface ImportProgress {
+
+    /**
+     * Reports how far a load has come.
+     *
+     * @param bytesRead     The number of bytes of the file loaded so far.
+     * @param totalBytes    The size of the file.
+     * @param bookingsRead  The number of bookings loaded so far.
+     */
+    void onProgress(long bytesRead, long totalBytes, int bookingsRead);
+}
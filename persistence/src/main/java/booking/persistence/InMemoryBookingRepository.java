@@ -0,0 +1,170 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import booking.core.Booking;
+
+/**
+ * Booking repository that keeps bookings in memory only.
+ * <p>
+ * Nothing is written to disk, so the bookings are lost when the process exits.
+ * The engine is meant for tests, demos and as a baseline when benchmarking the
+ * file-based engines. Bookings are kept dictionary-encoded in a {@link BookingStore}
+ * and published to readers as immutable {@link BookingVersion}s, like in
+ * {@link BookingService}.
+ * </p>
+ */
+public final class InMemoryBookingRepository implements BookingRepository {
+
+    private final BookingStore store = new DictionaryBookingStore();
+    private final Object lock = new Object(); // Guards the store and indexes
+    private final EmailIndex emailIndex = new EmailIndex();
+    private final DateIndex dateIndex = new DateIndex();
+    private final TreatmentIndex treatmentIndex = new TreatmentIndex();
+    private final NumberIndex numberIndex = new NumberIndex();
+    private final BookingNumberAllocator numberAllocator = new BookingNumberAllocator(null);
+    private final AtomicReference<BookingVersion> published =
+            new AtomicReference<>(new BookingVersion(store.snapshot(), 0));
+
+    /**
+     * Registers the in-memory engine under the name {@code memory}.
+     */
+    public static final class Provider implements BookingRepositoryProvider {
+
+        @Override
+        public String getName() {
+            return "memory";
+        }
+
+        @Override
+        public BookingRepository create(Path dataFile) {
+            return new InMemoryBookingRepository();
+        }
+    }
+
+    @Override
+    public Booking addBooking(Booking booking) {
+        if (booking == null) {
+            return null;
+        }
+        return addBookings(List.of(booking)).get(0);
+    }
+
+    /**
+     * Adds several new bookings with consecutive numbers and publishes them to
+     * readers as one version.
+     *
+     * @param bookings The bookings to add; their booking numbers are ignored.
+     * @return The stored bookings with their assigned booking numbers, in the given order.
+     */
+    @Override
+    public List<Booking> addBookings(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return List.of();
+        }
+        List<Booking> numbered = new ArrayList<>(bookings.size());
+        try {
+            int bookingNumber = numberAllocator.allocate(bookings.size());
+            for (Booking booking : bookings) {
+                numbered.add(BookingService.withBookingNumber(booking, bookingNumber++));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to allocate booking numbers", e);
+        }
+        synchronized (lock) {
+            for (Booking booking : numbered) {
+                int position = store.add(booking);
+                emailIndex.add(booking.getEmail(), position);
+                dateIndex.add(booking.getDate(), position);
+                treatmentIndex.add(booking.getTreatment(), position);
+                numberIndex.add(booking.getBookingNumber(), position);
+            }
+            published.set(published.get().next(store));
+        }
+        return numbered;
+    }
+
+    @Override
+    public List<Booking> loadBookings() {
+        return getAllBookings();
+    }
+
+    @Override
+    public List<Booking> getAllBookings() {
+        return published.get();
+    }
+
+    @Override
+    public List<Booking> getBookingsByEmail() {
+        List<Booking> version = published.get();
+        if (version.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return getBookingsByEmail(version.get(version.size() - 1).getEmail());
+    }
+
+    @Override
+    public List<Booking> getBookingsByEmail(String email) {
+        synchronized (lock) {
+            return BookingService.materialize(published.get(), emailIndex.get(email));
+        }
+    }
+
+    @Override
+    public List<Booking> getBookingsOn(LocalDate date) {
+        synchronized (lock) {
+            return BookingService.materialize(published.get(), dateIndex.on(date));
+        }
+    }
+
+    @Override
+    public List<Booking> getBookingsBetween(LocalDate from, LocalDate to) {
+        synchronized (lock) {
+            return BookingService.materialize(published.get(), dateIndex.between(from, to));
+        }
+    }
+
+    @Override
+    public List<Booking> getBookingsAfter(int afterBookingNumber, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The page size must be at least 1.");
+        }
+        synchronized (lock) {
+            return BookingService.materialize(published.get(), numberIndex.after(afterBookingNumber, limit));
+        }
+    }
+
+    @Override
+    public List<Booking> searchBookings(BookingQuery query) {
+        BookingQueryPlanner.Plan plan;
+        BookingVersion version;
+        synchronized (lock) {
+            plan = BookingQueryPlanner.plan(query, emailIndex, treatmentIndex, dateIndex, store.size());
+            version = published.get();
+        }
+        return BookingQueryPlanner.select(version, plan, query);
+    }
+
+    @Override
+    public long getEmailVersion(String email) {
+        synchronized (lock) {
+            return emailIndex.version(email);
+        }
+    }
+
+    @Override
+    public long getDataVersion() {
+        return published.get().getDataVersion();
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,119 @@
+package booking.persistence;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used by the indexes to hold store positions
+ * without boxing each one. Not thread-safe.
+ */
+final class IntList {
+
+    private int[] values = new int[4];
+    private int size;
+
+    /**
+     * Appends a value.
+     *
+     * @param value The value to append.
+     */
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Inserts a value, shifting the values from that index on one place up.
+     *
+     * @param index The index the value gets, from 0 to the size.
+     * @param value The value to insert.
+     */
+    void insert(int index, int value) {
+        if (index > size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+    }
+
+    /**
+     * Removes the value at an index, shifting the values after it one place down.
+     *
+     * @param index The index of the value.
+     */
+    void removeAt(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+    }
+
+    /**
+     * Removes every value.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param index The index of the value.
+     * @return The value.
+     */
+    int get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+        return values[index];
+    }
+
+    /**
+     * Gets the number of values.
+     *
+     * @return The size.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes the last occurrence of a value, if present.
+     *
+     * @param value The value to remove.
+     */
+    void removeLastOccurrence(int value) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (values[i] == value) {
+                System.arraycopy(values, i + 1, values, i, size - i - 1);
+                size--;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Checks for a value with a binary search, in a list kept in ascending order.
+     *
+     * @param value The value to look for.
+     * @return {@code true} if the list holds the value.
+     */
+    boolean containsSorted(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * Copies the values into a new array.
+     *
+     * @return The values in order.
+     */
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,85 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import booking.core.Booking;
+
+/**
+ * Imports a booking file into the database of the {@code jdbc} engine.
+ * <p>
+ * The bookings keep their booking numbers, and a booking that is already in
+ * the database under the same number is replaced, so the import can be run
+ * again after a partial or older import. Run it once before switching a server
+ * from a file engine to {@code jdbc}, for example with
+ * {@code java booking.persistence.JdbcBookingMigration booking.json}, which fills
+ * the {@code booking-db} database the {@code jdbc} engine opens for {@code booking.json}.
+ * </p>
+ */
+public final class JdbcBookingMigration {
+
+    private JdbcBookingMigration() {
+    }
+
+    /**
+     * Prints the progress of reading a JSON file in steps of ten percent.
+     */
+    private static final class ConsoleProgress implements ImportProgress {
+
+        private long lastStep = -1;
+
+        @Override
+        public void onProgress(long bytesRead, long totalBytes, int bookingsRead) {
+            long step = totalBytes == 0 ? 10 : bytesRead * 10 / totalBytes;
+            if (step != lastStep) {
+                lastStep = step;
+                System.out.println("Read " + step * 10 + "% of the file, " + bookingsRead + " bookings");
+            }
+        }
+    }
+
+    /**
+     * Imports the booking file given as the first argument. The second argument
+     * is an optional JDBC URL; without it the bookings go to the embedded
+     * database the {@code jdbc} engine uses for the file.
+     *
+     * @param args The booking file, optionally followed by a JDBC URL.
+     * @throws IOException If the file cannot be read or the database cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 2) {
+            System.err.println("Usage: JdbcBookingMigration <booking.json|.bin|.bkz> [jdbc-url]");
+            return;
+        }
+        Path source = Path.of(args[0]);
+        String url = args.length == 2 ? args[1]
+                : JdbcBookingRepository.h2Url(BookingService.siblingPath(source, "-db"));
+        int count = migrate(source, url, new ConsoleProgress());
+        System.out.println("Imported " + count + " bookings from " + source + " into " + url);
+    }
+
+    /**
+     * Imports a booking file into a database, creating its schema if needed.
+     *
+     * @param source   The booking file, in the format given by its extension.
+     * @param url      The JDBC URL of the database.
+     * @param progress Receives reports while a JSON file is read.
+     * @return The number of imported bookings.
+     * @throws IOException If the file cannot be read or the database cannot be written.
+     */
+    public static int migrate(Path source, String url, ImportProgress progress) throws IOException {
+        List<Booking> bookings;
+        if (BookingSnapshotConverter.isBinary(source)) {
+            bookings = BookingSnapshotConverter.readBinary(source);
+        } else if (BookingSnapshotConverter.isCompressed(source)) {
+            bookings = BookingSnapshotConverter.readCompressed(source);
+        } else {
+            bookings = BookingSnapshotConverter.readJson(source, progress);
+        }
+        try (JdbcBookingRepository repository = new JdbcBookingRepository(url, 1, Durability.none())) {
+            repository.importBookings(bookings);
+        }
+        return bookings.size();
+    }
+}
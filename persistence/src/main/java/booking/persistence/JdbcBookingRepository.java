@@ -0,0 +1,469 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import booking.core.Booking;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Booking repository backed by a relational database through JDBC.
+ * <p>
+ * Bookings are rows of one {@code booking} table with indexes on the
+ * lower-case email address, on the date and on the treatment, so lookups read
+ * only the matching rows. Writes are collected by a {@link GroupCommitWriter} and each batch is
+ * inserted with one JDBC batch in one transaction. Connections come from a
+ * small {@link JdbcConnectionPool} that keeps the prepared statements of each
+ * connection for reuse.
+ * </p>
+ * <p>
+ * The {@code jdbc} engine runs on an embedded H2 database file, so it needs no
+ * database server. The schema is created and upgraded by numbered migrations
+ * recorded in a {@code booking_schema} table when the repository is opened.
+ * H2 commits each schema change on its own, so every migration statement is
+ * idempotent and a migration interrupted before its version was recorded is
+ * simply run again. With a syncing {@link Durability} a batch is forced to
+ * disk before it is acknowledged, and a batch that cannot be synced is
+ * deleted again, so a failed write never stays visible. The data version moves
+ * with every batch that was inserted, whether or not it was kept, since
+ * readers may have seen its rows in between.
+ * Existing JSON, binary or compressed booking files are imported with
+ * {@link JdbcBookingMigration}. The repository assumes it is the only writer
+ * of its database.
+ * </p>
+ */
+@SuppressFBWarnings(value = "CT_CONSTRUCTOR_THROW", justification = "A repository whose database cannot be opened must not be constructed.")
+public final class JdbcBookingRepository implements BookingRepository {
+
+    /**
+     * The number of pooled connections used by the {@code jdbc} engine.
+     */
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    /**
+     * Schema migrations, applied in order. Released migrations must never be changed;
+     * schema changes are added as new entries. Every statement must be safe to run
+     * again, since H2 commits DDL before the version of its migration is recorded.
+     */
+    private static final String[][] MIGRATIONS = {
+        {
+            "CREATE TABLE IF NOT EXISTS booking (booking_number INT PRIMARY KEY, name VARCHAR, email VARCHAR,"
+                    + " email_key VARCHAR, treatment VARCHAR, booking_date DATE)",
+            "CREATE INDEX IF NOT EXISTS booking_email ON booking (email_key, booking_number)",
+            "CREATE INDEX IF NOT EXISTS booking_date ON booking (booking_date, booking_number)"
+        },
+        {
+            "CREATE INDEX IF NOT EXISTS booking_treatment ON booking (treatment, booking_number)"
+        }
+    };
+
+    private static final String COLUMNS = "SELECT booking_number, name, email, treatment, booking_date FROM booking";
+    private static final String INSERT = "INSERT INTO booking (booking_number, name, email, email_key, treatment,"
+            + " booking_date) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String MERGE = "MERGE INTO booking (booking_number, name, email, email_key, treatment,"
+            + " booking_date) KEY (booking_number) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String ALL = COLUMNS + " ORDER BY booking_number";
+    private static final String BY_EMAIL = COLUMNS + " WHERE email_key = ? ORDER BY booking_number";
+    private static final String LAST_EMAIL = COLUMNS + " WHERE email_key ="
+            + " (SELECT email_key FROM booking ORDER BY booking_number DESC LIMIT 1) ORDER BY booking_number";
+    private static final String LAST = COLUMNS + " ORDER BY booking_number DESC LIMIT 1";
+    private static final String ON_DATE = COLUMNS + " WHERE booking_date = ? ORDER BY booking_number";
+    private static final String BETWEEN = COLUMNS + " WHERE booking_date BETWEEN ? AND ?"
+            + " ORDER BY booking_date, booking_number";
+    private static final String AFTER = COLUMNS + " WHERE booking_number > ? ORDER BY booking_number LIMIT ?";
+    private static final String DELETE = "DELETE FROM booking WHERE booking_number = ?";
+    private static final String MAX_NUMBER = "SELECT COALESCE(MAX(booking_number), 0) FROM booking";
+
+    private final JdbcConnectionPool pool;
+    private final GroupCommitWriter writer;
+    private final AtomicInteger lastBookingNumber;
+    private final AtomicLong dataVersion = new AtomicLong();
+    private volatile Listing listing = new Listing(-1, List.of());
+
+    /**
+     * The full booking list read at one data version.
+     */
+    private record Listing(long dataVersion, List<Booking> bookings) {
+    }
+
+    /**
+     * Registers the JDBC engine under the name {@code jdbc}. The bookings are kept
+     * in an embedded H2 database named after the data file with a {@code -db}
+     * suffix, such as {@code booking-db.mv.db} next to {@code booking.json}.
+     */
+    public static final class Provider implements BookingRepositoryProvider {
+
+        @Override
+        public String getName() {
+            return "jdbc";
+        }
+
+        @Override
+        public BookingRepository create(Path dataFile) {
+            return new JdbcBookingRepository(h2Url(BookingService.siblingPath(dataFile, "-db")), DEFAULT_POOL_SIZE,
+                    Durability.always());
+        }
+    }
+
+    /**
+     * Gets the JDBC URL of an embedded H2 database file.
+     *
+     * @param database The database file, without H2's {@code .mv.db} extension.
+     * @return The JDBC URL.
+     */
+    public static String h2Url(Path database) {
+        return "jdbc:h2:file:" + database.toAbsolutePath();
+    }
+
+    /**
+     * Opens a repository on a database, creating or upgrading its schema.
+     *
+     * @param url        The JDBC URL of the database.
+     * @param poolSize   The number of pooled connections.
+     * @param durability When batches of writes are forced to disk.
+     * @throws UncheckedIOException If the database cannot be opened or migrated.
+     */
+    public JdbcBookingRepository(String url, int poolSize, Durability durability) {
+        try {
+            this.pool = new JdbcConnectionPool(url, poolSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open booking database " + url, e);
+        }
+        try {
+            pool.run(JdbcBookingRepository::migrate);
+            this.lastBookingNumber = new AtomicInteger(pool.run(connection -> {
+                try (ResultSet rows = connection.prepare(MAX_NUMBER).executeQuery()) {
+                    rows.next();
+                    return rows.getInt(1);
+                }
+            }));
+        } catch (IOException e) {
+            pool.close();
+            throw new UncheckedIOException("Failed to migrate booking database " + url, e);
+        }
+        this.writer = new GroupCommitWriter(this::commitBatch, durability);
+    }
+
+    /**
+     * Applies the migrations that the database has not seen yet, each with the
+     * record of its version.
+     *
+     * @return The schema version after migrating.
+     */
+    @SuppressFBWarnings(value = "SQL_NONCONSTANT_STRING_PASSED_TO_EXECUTE", justification = "Migrations are constants of this class.")
+    private static int migrate(JdbcConnectionPool.PooledConnection connection) throws SQLException {
+        try (Statement statement = connection.connection().createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS booking_schema (version INT NOT NULL)");
+            int version;
+            try (ResultSet rows = statement.executeQuery("SELECT COALESCE(MAX(version), 0) FROM booking_schema")) {
+                rows.next();
+                version = rows.getInt(1);
+            }
+            for (; version < MIGRATIONS.length; version++) {
+                // One transaction per migration where DDL is transactional; H2 re-runs idempotent DDL instead
+                connection.connection().setAutoCommit(false);
+                try {
+                    for (String sql : MIGRATIONS[version]) {
+                        statement.execute(sql);
+                    }
+                    PreparedStatement record = connection.prepare("INSERT INTO booking_schema (version) VALUES (?)");
+                    record.setInt(1, version + 1);
+                    record.executeUpdate();
+                    connection.connection().commit();
+                } catch (SQLException e) {
+                    connection.connection().rollback();
+                    throw e;
+                } finally {
+                    connection.connection().setAutoCommit(true);
+                }
+            }
+            return version;
+        }
+    }
+
+    /**
+     * Adds a new booking and waits until its batch has been committed.
+     *
+     * @param booking The booking to add; its booking number is ignored.
+     * @return The stored booking with its assigned booking number.
+     * @throws UncheckedIOException If the booking cannot be written.
+     */
+    @Override
+    public Booking addBooking(Booking booking) {
+        if (booking == null) {
+            return null;
+        }
+        Booking numbered = BookingService.withBookingNumber(booking, lastBookingNumber.incrementAndGet());
+        try {
+            writer.submit(List.of(numbered)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw new UncheckedIOException("Failed to write booking", ioException);
+            }
+            throw e;
+        }
+        return numbered;
+    }
+
+    /**
+     * Adds several new bookings in one batch and waits until it has been committed.
+     *
+     * @param bookings The bookings to add; their booking numbers are ignored.
+     * @return The stored bookings with consecutive booking numbers, in the given order.
+     * @throws UncheckedIOException If the bookings cannot be written.
+     */
+    @Override
+    public List<Booking> addBookings(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return List.of();
+        }
+        int bookingNumber = lastBookingNumber.getAndAdd(bookings.size()) + 1;
+        List<Booking> numbered = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            numbered.add(BookingService.withBookingNumber(booking, bookingNumber++));
+        }
+        try {
+            writer.submit(numbered).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw new UncheckedIOException("Failed to write bookings", ioException);
+            }
+            throw e;
+        }
+        return numbered;
+    }
+
+    /**
+     * Inserts one group-committed batch in one transaction, and forces it to disk
+     * when {@code sync} is set. Once the insert has committed the data version
+     * moves, even if the sync fails, because readers may already have cached
+     * listings and responses that hold the batch. Called only from the writer
+     * thread.
+     */
+    private void commitBatch(List<Booking> batch, boolean sync) throws IOException {
+        pool.inTransaction(connection -> {
+            PreparedStatement insert = connection.prepare(INSERT);
+            for (Booking booking : batch) {
+                bind(insert, booking);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            return null;
+        });
+        try {
+            if (sync) {
+                try {
+                    pool.run(connection -> connection.prepare("CHECKPOINT SYNC").execute());
+                } catch (IOException e) {
+                    deleteUnsynced(batch, e);
+                    throw e;
+                }
+            }
+        } finally {
+            dataVersion.incrementAndGet(); // The rows were visible from the insert's commit on
+        }
+    }
+
+    /**
+     * Deletes a committed batch whose sync failed, so that the failed write is not
+     * left in the database.
+     *
+     * @param batch   The bookings that were inserted.
+     * @param failure The sync failure, which collects a failure of the delete.
+     */
+    private void deleteUnsynced(List<Booking> batch, IOException failure) {
+        try {
+            pool.inTransaction(connection -> {
+                PreparedStatement delete = connection.prepare(DELETE);
+                for (Booking booking : batch) {
+                    delete.setInt(1, booking.getBookingNumber());
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+                return null;
+            });
+        } catch (IOException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private static void bind(PreparedStatement statement, Booking booking) throws SQLException {
+        statement.setInt(1, booking.getBookingNumber());
+        statement.setString(2, booking.getName());
+        statement.setString(3, booking.getEmail());
+        statement.setString(4, EmailIndex.normalize(booking.getEmail()));
+        statement.setString(5, booking.getTreatment());
+        if (booking.getDate() == null) {
+            statement.setNull(6, Types.DATE);
+        } else {
+            statement.setObject(6, booking.getDate());
+        }
+    }
+
+    /**
+     * Stores bookings with the booking numbers they already have, replacing any
+     * stored booking with the same number, in one transaction.
+     *
+     * @param bookings The bookings to store.
+     * @throws IOException If the bookings cannot be written.
+     */
+    void importBookings(List<Booking> bookings) throws IOException {
+        pool.inTransaction(connection -> {
+            PreparedStatement merge = connection.prepare(MERGE);
+            int pending = 0;
+            for (Booking booking : bookings) {
+                bind(merge, booking);
+                merge.addBatch();
+                if (++pending == 1000) {
+                    merge.executeBatch();
+                    pending = 0;
+                }
+            }
+            merge.executeBatch();
+            return null;
+        });
+        for (Booking booking : bookings) {
+            lastBookingNumber.accumulateAndGet(booking.getBookingNumber(), Math::max);
+        }
+        dataVersion.incrementAndGet();
+    }
+
+    @Override
+    public List<Booking> loadBookings() {
+        return getAllBookings();
+    }
+
+    /**
+     * Retrieves all bookings. The list is read from the database once per data
+     * version and shared by later calls until the next write.
+     *
+     * @return An unmodifiable list ordered by booking number.
+     */
+    @Override
+    public List<Booking> getAllBookings() {
+        Listing current = listing;
+        long version = dataVersion.get();
+        if (current.dataVersion() != version) {
+            current = new Listing(version, Collections.unmodifiableList(query(ALL)));
+            listing = current;
+        }
+        return current.bookings();
+    }
+
+    @Override
+    public Booking getLastBooking() {
+        List<Booking> last = query(LAST);
+        return last.isEmpty() ? null : last.get(0);
+    }
+
+    @Override
+    public List<Booking> getBookingsByEmail() {
+        return query(LAST_EMAIL);
+    }
+
+    @Override
+    public List<Booking> getBookingsByEmail(String email) {
+        return query(BY_EMAIL, EmailIndex.normalize(email));
+    }
+
+    @Override
+    public List<Booking> getBookingsOn(LocalDate date) {
+        return query(ON_DATE, date);
+    }
+
+    @Override
+    public List<Booking> getBookingsBetween(LocalDate from, LocalDate to) {
+        return query(BETWEEN, from, to);
+    }
+
+    /**
+     * Gets a page of bookings with a range scan of the primary key.
+     */
+    @Override
+    public List<Booking> getBookingsAfter(int afterBookingNumber, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The page size must be at least 1.");
+        }
+        return query(AFTER, afterBookingNumber, limit);
+    }
+
+    /**
+     * Searches with one query that has a condition per given filter, so the
+     * database's planner can pick the most selective of its indexes.
+     */
+    @Override
+    public List<Booking> searchBookings(BookingQuery query) {
+        StringBuilder sql = new StringBuilder(COLUMNS).append(" WHERE TRUE");
+        List<Object> parameters = new ArrayList<>();
+        if (query.email() != null) {
+            sql.append(" AND email_key = ?");
+            parameters.add(EmailIndex.normalize(query.email()));
+        }
+        if (query.treatment() != null) {
+            sql.append(" AND treatment = ?");
+            parameters.add(query.treatment());
+        }
+        if (query.from() != null) {
+            sql.append(" AND booking_date >= ?");
+            parameters.add(query.from());
+        }
+        if (query.to() != null) {
+            sql.append(" AND booking_date <= ?");
+            parameters.add(query.to());
+        }
+        sql.append(" ORDER BY booking_number LIMIT ?");
+        parameters.add(query.limit());
+        return query(sql.toString(), parameters.toArray());
+    }
+
+    /**
+     * Runs a query on a pooled connection and maps its rows to bookings.
+     */
+    private List<Booking> query(String sql, Object... parameters) {
+        try {
+            return pool.run(connection -> {
+                PreparedStatement statement = connection.prepare(sql);
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                List<Booking> bookings = new ArrayList<>();
+                try (ResultSet rows = statement.executeQuery()) {
+                    while (rows.next()) {
+                        bookings.add(new Booking(rows.getInt(1), rows.getString(2), rows.getString(3),
+                                rows.getString(4), rows.getObject(5, LocalDate.class)));
+                    }
+                }
+                return bookings;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read bookings", e);
+        }
+    }
+
+    @Override
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    /**
+     * Commits the queued writes and closes the pooled connections.
+     */
+    @Override
+    public void close() {
+        writer.close();
+        pool.close();
+    }
+}
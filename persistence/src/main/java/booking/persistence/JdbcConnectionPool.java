@@ -0,0 +1,229 @@
+package booking.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Small fixed-size pool of JDBC connections, each with its own cache of
+ * prepared statements.
+ * <p>
+ * All connections are opened up front. A caller borrows one connection for a
+ * unit of work and waits while all of them are in use. Statements are prepared
+ * once per connection and reused by every later unit of work on it. A
+ * connection that fails is closed and replaced before it is handed out again.
+ * </p>
+ */
+final class JdbcConnectionPool implements Closeable {
+
+    /**
+     * A unit of work on a borrowed connection.
+     *
+     * @param <T> The result type.
+     */
+    @FunctionalInterface
+    interface Work<T> {
+
+        /**
+         * Runs the work.
+         *
+         * @param connection The borrowed connection.
+         * @return The result.
+         * @throws SQLException If a statement fails.
+         */
+        T run(PooledConnection connection) throws SQLException;
+    }
+
+    /**
+     * A pooled connection and the statements prepared on it.
+     */
+    static final class PooledConnection {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Gets the statement for an SQL string, preparing it on first use.
+         *
+         * @param sql The SQL string.
+         * @return The prepared statement, with the parameters of its last use cleared.
+         * @throws SQLException If the statement cannot be prepared.
+         */
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+            }
+            return statement;
+        }
+
+        /**
+         * Gets the underlying connection.
+         *
+         * @return The connection.
+         */
+        Connection connection() {
+            return connection;
+        }
+
+        private void close() {
+            try {
+                connection.close(); // Also closes the prepared statements
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private final String url;
+    private final BlockingQueue<PooledConnection> idle;
+    private boolean closed;
+
+    /**
+     * Opens a pool of connections to a database.
+     *
+     * @param url  The JDBC URL of the database.
+     * @param size The number of connections.
+     * @throws IOException If a connection cannot be opened.
+     */
+    JdbcConnectionPool(String url, int size) throws IOException {
+        if (size < 1) {
+            throw new IllegalArgumentException("A connection pool needs at least one connection.");
+        }
+        this.url = url;
+        this.idle = new ArrayBlockingQueue<>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                idle.add(open());
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private PooledConnection open() throws IOException {
+        try {
+            return new PooledConnection(DriverManager.getConnection(url));
+        } catch (SQLException e) {
+            throw new IOException("Failed to connect to " + url, e);
+        }
+    }
+
+    /**
+     * Runs work on a borrowed connection in auto-commit mode.
+     *
+     * @param <T>  The result type.
+     * @param work The work.
+     * @return The result of the work.
+     * @throws IOException If the work fails or no connection can be borrowed.
+     */
+    <T> T run(Work<T> work) throws IOException {
+        PooledConnection connection = borrow();
+        boolean healthy = true;
+        try {
+            return work.run(connection);
+        } catch (SQLException e) {
+            healthy = false;
+            throw new IOException("Database access failed", e);
+        } finally {
+            release(connection, healthy);
+        }
+    }
+
+    /**
+     * Runs work on a borrowed connection in one transaction, which is committed
+     * if the work succeeds and rolled back otherwise.
+     *
+     * @param <T>  The result type.
+     * @param work The work.
+     * @return The result of the work.
+     * @throws IOException If the work fails or no connection can be borrowed.
+     */
+    <T> T inTransaction(Work<T> work) throws IOException {
+        return run(connection -> {
+            Connection jdbc = connection.connection();
+            jdbc.setAutoCommit(false);
+            try {
+                T result = work.run(connection);
+                jdbc.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                jdbc.rollback();
+                throw e;
+            } finally {
+                jdbc.setAutoCommit(true);
+            }
+        });
+    }
+
+    private PooledConnection borrow() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Connection pool for " + url + " is closed.");
+            }
+        }
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to " + url, e);
+        }
+    }
+
+    /**
+     * Returns a connection to the pool, replacing it if it failed and no longer works.
+     */
+    private void release(PooledConnection connection, boolean healthy) {
+        PooledConnection returned = connection;
+        if (!healthy && !isValid(connection)) {
+            try {
+                returned = open();
+                connection.close();
+            } catch (IOException e) {
+                e.printStackTrace(); // Keep the broken connection; the next failure on it retries
+            }
+        }
+        synchronized (this) {
+            if (closed) {
+                returned.close();
+                return;
+            }
+            idle.add(returned);
+        }
+    }
+
+    private static boolean isValid(PooledConnection connection) {
+        try {
+            return connection.connection().isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Closes every connection. Connections that are borrowed are closed when they are returned.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package booking.persistence;
+
+import java.util.List;
+
+import booking.core.Booking;
+
+/**
+ * Secondary index from booking number to store position, used to page through
+ * the bookings in booking-number order.
+ * <p>
+ * The numbers and positions are kept in two parallel lists sorted by number.
+ * Numbers are allocated in increasing order, so nearly every booking is
+ * appended at the end; a booking whose batch was committed out of order, or a
+ * file that is not sorted by number, is inserted after a binary search. The
+ * index is not thread-safe; callers guard it with the same lock as the
+ * {@link BookingStore} it indexes.
+ * </p>
+ */
+final class NumberIndex {
+
+    private final IntList numbers = new IntList();
+    private final IntList positions = new IntList();
+
+    /**
+     * Adds a booking after any booking with the same number.
+     *
+     * @param bookingNumber The booking's number.
+     * @param position      The booking's position in the store.
+     */
+    void add(int bookingNumber, int position) {
+        int size = numbers.size();
+        int index = size == 0 || numbers.get(size - 1) <= bookingNumber ? size : firstAfter(bookingNumber);
+        numbers.insert(index, bookingNumber);
+        positions.insert(index, position);
+    }
+
+    /**
+     * Removes a booking, used to roll back a booking that could not be written.
+     *
+     * @param bookingNumber The booking's number.
+     * @param position      The booking's position in the store.
+     */
+    void remove(int bookingNumber, int position) {
+        for (int index = firstAfter(bookingNumber) - 1; index >= 0 && numbers.get(index) == bookingNumber; index--) {
+            if (positions.get(index) == position) {
+                numbers.removeAt(index);
+                positions.removeAt(index);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the bookings with a number greater than the given one. If the last of
+     * them shares its number with further bookings, those are included too, so a
+     * page never ends between bookings with the same number.
+     *
+     * @param bookingNumber The number to start after.
+     * @param limit         The maximum number of bookings, unless the last number repeats.
+     * @return The store positions of the bookings, ordered by number and then by insertion.
+     */
+    int[] after(int bookingNumber, int limit) {
+        int from = firstAfter(bookingNumber);
+        int to = (int) Math.min(numbers.size(), (long) from + limit);
+        if (to > from) {
+            to = firstAfter(numbers.get(to - 1));
+        }
+        int[] result = new int[Math.max(0, to - from)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = positions.get(from + i);
+        }
+        return result;
+    }
+
+    /**
+     * Cuts a page from bookings sorted by number, keeping the first {@code limit}
+     * of them and any further bookings that share the last one's number.
+     *
+     * @param sorted The bookings, sorted by booking number.
+     * @param limit  The page size.
+     * @return A view of the page's bookings.
+     */
+    static List<Booking> page(List<Booking> sorted, int limit) {
+        if (sorted.size() <= limit) {
+            return sorted;
+        }
+        int end = limit;
+        int last = sorted.get(end - 1).getBookingNumber();
+        while (end < sorted.size() && sorted.get(end).getBookingNumber() == last) {
+            end++;
+        }
+        return sorted.subList(0, end);
+    }
+
+    /**
+     * Finds the index of the first entry with a number greater than the given one.
+     */
+    private int firstAfter(int bookingNumber) {
+        int low = 0;
+        int high = numbers.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (numbers.get(middle) <= bookingNumber) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Removes every entry, before the index is rebuilt during a load.
+     */
+    void clear() {
+        numbers.clear();
+        positions.clear();
+    }
+}
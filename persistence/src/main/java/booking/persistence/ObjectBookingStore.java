@@ -0,0 +1,90 @@
+package booking.persistence;
+
+import java.util.Arrays;
+
+import booking.core.Booking;
+
+/**
+ * Booking store that keeps the {@link Booking} objects it is given, each with
+ * its own strings and date. Reads return the stored instances.
+ * <p>
+ * The bookings are kept in an append-only vector of fixed-size chunks. Filled
+ * chunks are never copied or written again, so a snapshot only captures the
+ * chunk table and the size, and growing the store copies the small chunk table
+ * rather than every booking.
+ * </p>
+ */
+final class ObjectBookingStore implements BookingStore {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private final boolean readOnly;
+    private Booking[][] chunks;
+    private int size;
+
+    /**
+     * Creates an empty store.
+     */
+    ObjectBookingStore() {
+        this(new Booking[4][], 0, false);
+    }
+
+    private ObjectBookingStore(Booking[][] chunks, int size, boolean readOnly) {
+        this.chunks = chunks;
+        this.size = size;
+        this.readOnly = readOnly;
+    }
+
+    @Override
+    public int add(Booking booking) {
+        checkWritable();
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new Booking[CHUNK_SIZE];
+        }
+        chunks[chunk][size & (CHUNK_SIZE - 1)] = booking;
+        return size++;
+    }
+
+    @Override
+    public Booking get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Booking " + position + " of " + size);
+        }
+        return chunks[position >>> CHUNK_BITS][position & (CHUNK_SIZE - 1)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void truncate(int size) {
+        checkWritable();
+        // Removed slots are overwritten by the next add
+        this.size = Math.min(this.size, size);
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        chunks = new Booking[4][];
+        size = 0;
+    }
+
+    @Override
+    public BookingStore snapshot() {
+        return new ObjectBookingStore(chunks, size, true);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Booking store snapshots are read-only");
+        }
+    }
+}
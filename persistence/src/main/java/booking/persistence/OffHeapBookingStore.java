@@ -0,0 +1,217 @@
+package booking.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import booking.core.Booking;
+
+/**
+ * Booking store that keeps bookings outside the Java heap, in direct
+ * {@link ByteBuffer}s.
+ * <p>
+ * Each booking is a fixed 32-byte record holding its booking number, epoch day,
+ * treatment code, the byte lengths of its name and email, and the address of
+ * those bytes in a separate text area. Records and text are allocated in large
+ * chunks, so the heap only holds one buffer object per chunk plus the small
+ * treatment dictionary, and garbage collection does not get slower as bookings
+ * are added. {@link #get(int)} decodes a new {@link Booking} from the buffers.
+ * </p>
+ * <p>
+ * A snapshot shares the chunks, and the chunk written next only ever receives
+ * records and text past the end of the snapshot. Direct memory is released when
+ * the store is cleared and its chunks are garbage collected. The JVM limits it with {@code -XX:MaxDirectMemorySize}.
+ * </p>
+ */
+final class OffHeapBookingStore implements BookingStore {
+
+    private static final int RECORD_BYTES = 32;
+    private static final int RECORDS_PER_CHUNK = 32 * 1024; // A power of two
+    private static final int TEXT_CHUNK_BYTES = 4 * 1024 * 1024;
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NO_TEXT = -1;
+
+    private final StringDictionary treatments;
+    private final List<ByteBuffer> recordChunks;
+    private final List<ByteBuffer> textChunks;
+    private final boolean readOnly;
+    private int size;
+    private long textPosition; // Chunk index in the high 32 bits, offset within the chunk in the low 32 bits
+
+    /**
+     * Creates an empty store.
+     */
+    OffHeapBookingStore() {
+        this.treatments = new StringDictionary();
+        this.recordChunks = new ArrayList<>();
+        this.textChunks = new ArrayList<>();
+        this.readOnly = false;
+    }
+
+    private OffHeapBookingStore(OffHeapBookingStore store) {
+        this.treatments = store.treatments.snapshot();
+        this.recordChunks = List.copyOf(store.recordChunks);
+        this.textChunks = List.copyOf(store.textChunks);
+        this.readOnly = true;
+        this.size = store.size;
+        this.textPosition = store.textPosition;
+    }
+
+    @Override
+    public int add(Booking booking) {
+        checkWritable();
+        if (size == recordChunks.size() * RECORDS_PER_CHUNK) {
+            recordChunks.add(ByteBuffer.allocateDirect(RECORDS_PER_CHUNK * RECORD_BYTES));
+        }
+        byte[] name = encode(booking.getName());
+        byte[] email = encode(booking.getEmail());
+        long textAddress = reserveText(length(name) + length(email));
+        ByteBuffer text = textChunks.get((int) (textAddress >>> 32));
+        int textOffset = (int) textAddress;
+        if (name != null) {
+            text.put(textOffset, name);
+        }
+        if (email != null) {
+            text.put(textOffset + length(name), email);
+        }
+
+        ByteBuffer records = recordChunks.get(size / RECORDS_PER_CHUNK);
+        int record = recordOffset(size);
+        LocalDate date = booking.getDate();
+        records.putInt(record, booking.getBookingNumber());
+        records.putInt(record + 4, date == null ? NO_DATE : Math.toIntExact(date.toEpochDay()));
+        records.putInt(record + 8, treatments.encode(booking.getTreatment()));
+        records.putInt(record + 12, name == null ? NO_TEXT : name.length);
+        records.putInt(record + 16, email == null ? NO_TEXT : email.length);
+        records.putLong(record + 24, textAddress);
+        return size++;
+    }
+
+    private static int recordOffset(int position) {
+        return (position & (RECORDS_PER_CHUNK - 1)) * RECORD_BYTES;
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    /**
+     * Reserves contiguous space in the text area, starting a new chunk if the
+     * current one is too full.
+     *
+     * @param bytes The number of bytes needed.
+     * @return The address of the space.
+     */
+    private long reserveText(int bytes) {
+        int chunk = (int) (textPosition >>> 32);
+        int offset = (int) textPosition;
+        if (chunk >= textChunks.size() || offset + bytes > textChunks.get(chunk).capacity()) {
+            if (chunk < textChunks.size()) {
+                chunk++;
+                offset = 0;
+            }
+            while (textChunks.size() > chunk) {
+                textChunks.remove(textChunks.size() - 1); // Left over from a truncate
+            }
+            textChunks.add(ByteBuffer.allocateDirect(Math.max(TEXT_CHUNK_BYTES, bytes)));
+        }
+        long address = ((long) chunk << 32) | offset;
+        textPosition = ((long) chunk << 32) | (offset + bytes);
+        return address;
+    }
+
+    @Override
+    public Booking get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Booking " + position + " of " + size);
+        }
+        ByteBuffer records = recordChunks.get(position / RECORDS_PER_CHUNK);
+        int record = recordOffset(position);
+        int epochDay = records.getInt(record + 4);
+        int nameLength = records.getInt(record + 12);
+        int emailLength = records.getInt(record + 16);
+        long textAddress = records.getLong(record + 24);
+        int textOffset = (int) textAddress;
+        ByteBuffer text = textChunks.get((int) (textAddress >>> 32));
+        return new Booking(records.getInt(record),
+                decode(text, textOffset, nameLength),
+                decode(text, textOffset + Math.max(nameLength, 0), emailLength),
+                treatments.decode(records.getInt(record + 8)),
+                epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay));
+    }
+
+    private static String decode(ByteBuffer text, int offset, int length) {
+        if (length == NO_TEXT) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        text.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void truncate(int size) {
+        checkWritable();
+        if (size >= this.size) {
+            return;
+        }
+        // Later text is overwritten by the next add
+        ByteBuffer records = recordChunks.get(size / RECORDS_PER_CHUNK);
+        textPosition = records.getLong(recordOffset(size) + 24);
+        this.size = size;
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        treatments.clear();
+        recordChunks.clear();
+        textChunks.clear();
+        size = 0;
+        textPosition = 0;
+    }
+
+    @Override
+    public BookingStore snapshot() {
+        return new OffHeapBookingStore(this);
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Booking store snapshots are read-only");
+        }
+    }
+
+    /**
+     * Counts the bookings per treatment from the treatment codes in the records,
+     * without decoding any text.
+     */
+    @Override
+    public Map<String, Integer> countByTreatment() {
+        int[] counts = new int[treatments.size() + 1]; // Slot 0 counts missing treatments
+        for (int position = 0; position < size; position++) {
+            ByteBuffer records = recordChunks.get(position / RECORDS_PER_CHUNK);
+            counts[records.getInt(recordOffset(position) + 8) + 1]++;
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code = 0; code < treatments.size(); code++) {
+            if (counts[code + 1] > 0) {
+                result.put(treatments.decode(code), counts[code + 1]);
+            }
+        }
+        return result;
+    }
+}
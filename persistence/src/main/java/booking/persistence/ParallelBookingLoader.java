@@ -0,0 +1,418 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+
+import booking.core.Booking;
+
+/**
+ * Loads large JSON booking files by parsing chunks of the file in parallel.
+ * <p>
+ * The file is split into byte ranges of about {@code chunkBytes} that start and
+ * end on record boundaries. A newline-delimited file is split at the first
+ * newline after each multiple of the chunk size, which needs no reading ahead.
+ * A JSON array is first scanned for the ends of its top-level objects; the scan
+ * only tracks strings and nesting, and runs in parallel as well. Each chunk is
+ * then read and parsed by a task on a {@link ForkJoinPool}.
+ * </p>
+ * <p>
+ * The calling thread hands the parsed bookings to the sink chunk by chunk in
+ * file order, while later chunks are still being parsed, so the sink sees the
+ * same sequence as a sequential load and does not need to be thread-safe. A
+ * file that fits in one chunk, or a pool with a single thread, is parsed
+ * sequentially instead.
+ * </p>
+ */
+final class ParallelBookingLoader {
+
+    /**
+     * The default chunk size.
+     */
+    static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+
+    private static final int SCAN_BUFFER_BYTES = 1 << 16;
+
+    private final JsonFactory jsonFactory;
+    private final ForkJoinPool pool;
+    private final int chunkBytes;
+
+    /**
+     * A byte range of the file holding whole records.
+     *
+     * @param start     The offset of the first byte.
+     * @param end       The offset after the last byte.
+     * @param continued Whether the range starts right after an object of a JSON
+     *                  array, so that it begins with the comma after that object.
+     */
+    private record Chunk(long start, long end, boolean continued) {
+    }
+
+    /**
+     * Creates a loader.
+     *
+     * @param jsonFactory The factory for the chunk parsers.
+     * @param pool        The pool that parses the chunks.
+     * @param chunkBytes  The approximate size of a chunk.
+     */
+    ParallelBookingLoader(JsonFactory jsonFactory, ForkJoinPool pool, int chunkBytes) {
+        if (chunkBytes < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive.");
+        }
+        this.jsonFactory = jsonFactory;
+        this.pool = pool;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /**
+     * Creates a loader that parses on the common pool.
+     *
+     * @param jsonFactory The factory for the chunk parsers.
+     */
+    ParallelBookingLoader(JsonFactory jsonFactory) {
+        this(jsonFactory, ForkJoinPool.commonPool(), DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * Loads a file holding either a JSON array of bookings or newline-delimited
+     * JSON with one booking object per line.
+     *
+     * @param file     The file.
+     * @param sink     Receives each booking in file order, on the calling thread.
+     * @param progress Receives a report after each chunk.
+     * @return The number of bookings loaded.
+     * @throws IOException If the file cannot be read or holds something other than bookings.
+     */
+    int load(Path file, Consumer<Booking> sink, ImportProgress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long first = firstValue(channel);
+            if (first < 0) {
+                progress.onProgress(size, size, 0);
+                return 0; // Empty file
+            }
+            ByteBuffer marker = ByteBuffer.allocate(1);
+            channel.read(marker, first);
+            boolean array = marker.get(0) == '[';
+            if (pool.getParallelism() == 1 || size - first <= chunkBytes) {
+                // Splitting only adds work when there is a single thread or a single chunk
+                int count = loadSequentially(file, sink, array);
+                progress.onProgress(size, size, count);
+                return count;
+            }
+            List<Chunk> chunks = array ? scanArray(channel, first + 1) : splitLines(channel, first);
+
+            // Parses at most a few chunks ahead of the merge, which bounds the memory held by parsed chunks
+            int window = 2 * pool.getParallelism();
+            List<ForkJoinTask<List<Booking>>> tasks = new ArrayList<>(chunks.size());
+            int count = 0;
+            try {
+                for (int i = 0; i < chunks.size(); i++) {
+                    while (tasks.size() < chunks.size() && tasks.size() <= i + window) {
+                        Chunk chunk = chunks.get(tasks.size());
+                        tasks.add(pool.submit(() -> parse(channel, chunk, array)));
+                    }
+                    List<Booking> bookings = tasks.get(i).join();
+                    tasks.set(i, null);
+                    bookings.forEach(sink);
+                    count += bookings.size();
+                    progress.onProgress(i == chunks.size() - 1 ? size : chunks.get(i).end(), size, count);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                for (ForkJoinTask<List<Booking>> task : tasks) {
+                    if (task != null) {
+                        task.cancel(false); // Stops chunks that were not started after a failure
+                    }
+                }
+            }
+            return count;
+        }
+    }
+
+    private int loadSequentially(Path file, Consumer<Booking> sink, boolean array) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(file.toFile())) {
+            return array ? BookingJsonReader.readArray(parser, sink) : BookingJsonReader.readValues(parser, sink);
+        }
+    }
+
+    /**
+     * Finds the first character that is not whitespace.
+     *
+     * @return Its offset, or -1 if the file holds only whitespace.
+     */
+    private static long firstValue(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        long offset = 0;
+        int read;
+        while ((read = channel.read(buffer.clear(), offset)) > 0) {
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                boolean byteOrderMark = b == (byte) 0xEF || b == (byte) 0xBB || b == (byte) 0xBF;
+                if (!isWhitespace(b) && !byteOrderMark) {
+                    return offset + i;
+                }
+            }
+            offset += read;
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
+
+    /**
+     * Splits newline-delimited JSON at the first newline after every multiple of the chunk size.
+     */
+    private List<Chunk> splitLines(FileChannel channel, long start) throws IOException {
+        long size = channel.size();
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        long chunkStart = start;
+        while (chunkStart < size) {
+            long end = Math.min(size, chunkStart + chunkBytes);
+            if (end < size) {
+                end = nextLineStart(channel, end, buffer);
+            }
+            chunks.add(new Chunk(chunkStart, end, false));
+            chunkStart = end;
+        }
+        return chunks;
+    }
+
+    private static long nextLineStart(FileChannel channel, long from, ByteBuffer buffer) throws IOException {
+        long offset = from;
+        int read;
+        while ((read = channel.read(buffer.clear(), offset)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return offset;
+    }
+
+    /**
+     * What scanning one block found under one assumption about whether the
+     * block starts inside a string.
+     */
+    private static final class BlockScan {
+
+        private boolean endsInString;
+        private int depthChange; // Nesting depth at the end of the block, relative to its start
+        private long[] firstClose = {-1, -1, -1, -1}; // Offset of the first bracket closing to depth -k, or -1
+
+        void open() {
+            depthChange++;
+        }
+
+        void close(long offset) {
+            depthChange--;
+            if (depthChange <= 0) {
+                int k = -depthChange;
+                if (k >= firstClose.length) {
+                    int length = firstClose.length;
+                    firstClose = Arrays.copyOf(firstClose, 2 * length);
+                    Arrays.fill(firstClose, length, firstClose.length, -1);
+                }
+                if (firstClose[k] < 0) {
+                    firstClose[k] = offset;
+                }
+            }
+        }
+
+        long firstCloseAt(int relativeDepth) {
+            int k = -relativeDepth;
+            return k >= 0 && k < firstClose.length ? firstClose[k] : -1;
+        }
+    }
+
+    /**
+     * Finds the ends of the top-level objects of a JSON array and splits the
+     * array into chunks of whole objects.
+     * <p>
+     * Whether a byte is structure depends on everything before it, since
+     * brackets inside strings do not count. The file is therefore cut into
+     * blocks that are scanned in parallel, each for both cases: starting inside
+     * a string and starting outside one. A sequential pass over the block
+     * results then follows the real string state and depth from block to block
+     * and picks the first object end in each block as a chunk boundary.
+     * Each chunk runs from just after the previous boundary, or the opening
+     * bracket, to the end of an object; the last one runs up to the closing bracket.
+     * </p>
+     */
+    private List<Chunk> scanArray(FileChannel channel, long start) throws IOException {
+        long size = channel.size();
+        List<ForkJoinTask<BlockScan[]>> scans = new ArrayList<>();
+        for (long blockStart = start; blockStart < size; blockStart += chunkBytes) {
+            long from = blockStart;
+            long to = Math.min(size, blockStart + chunkBytes);
+            scans.add(pool.submit(() -> scanBlock(channel, from, to)));
+        }
+        List<Chunk> chunks = new ArrayList<>();
+        boolean inString = false;
+        int depth = 1; // Inside the array
+        long chunkStart = start;
+        try {
+            for (ForkJoinTask<BlockScan[]> task : scans) {
+                BlockScan scan = task.join()[inString ? 1 : 0];
+                long end = scan.firstCloseAt(-depth);
+                if (end >= 0) {
+                    chunks.add(new Chunk(chunkStart, end, chunkStart != start)); // Up to the closing bracket
+                    return chunks;
+                }
+                long boundary = scan.firstCloseAt(1 - depth);
+                if (boundary >= 0) {
+                    chunks.add(new Chunk(chunkStart, boundary + 1, chunkStart != start));
+                    chunkStart = boundary + 1;
+                }
+                inString = scan.endsInString;
+                depth += scan.depthChange;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            scans.forEach(task -> task.cancel(false));
+        }
+        throw new IOException("Unterminated JSON array of bookings");
+    }
+
+    /**
+     * Scans one block under both assumptions about its starting string state.
+     * Runs on the pool.
+     */
+    private static BlockScan[] scanBlock(FileChannel channel, long start, long end) {
+        byte[] bytes = new byte[Math.toIntExact(end - start)];
+        try {
+            readFully(channel, ByteBuffer.wrap(bytes), start);
+            return scan(bytes, start, isEscaped(channel, start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to scan bytes " + start + " to " + end, e);
+        }
+    }
+
+    /**
+     * Tells whether the byte at an offset is escaped, which is the case after
+     * an odd number of backslashes.
+     */
+    private static boolean isEscaped(FileChannel channel, long offset) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        int backslashes = 0;
+        for (long position = offset - 1; position >= 0; position--) {
+            channel.read(one.clear(), position);
+            if (one.get(0) != '\\') {
+                break;
+            }
+            backslashes++;
+        }
+        return (backslashes & 1) != 0;
+    }
+
+    /**
+     * Scans a block for both starting string states in one pass.
+     * <p>
+     * In valid JSON a backslash only occurs inside a string, where it escapes
+     * the next character. Which quotes open or close strings is therefore the
+     * same in both cases, and only their parity tells the cases apart: a bracket
+     * after an even number of quotes is structure if the block starts outside a
+     * string, and after an odd number if it starts inside one.
+     * </p>
+     *
+     * @return The scans for starting outside and inside a string, in that order.
+     */
+    private static BlockScan[] scan(byte[] bytes, long start, boolean escaped) {
+        BlockScan outside = new BlockScan();
+        BlockScan inside = new BlockScan();
+        boolean odd = false;
+        boolean escape = escaped;
+        for (int i = 0; i < bytes.length; i++) {
+            byte b = bytes[i];
+            if (escape) {
+                escape = false;
+            } else if (b == '\\') {
+                escape = true;
+            } else if (b == '"') {
+                odd = !odd;
+            } else if (b == '{' || b == '[') {
+                (odd ? inside : outside).open();
+            } else if (b == '}' || b == ']') {
+                (odd ? inside : outside).close(start + i);
+            }
+        }
+        outside.endsInString = odd;
+        inside.endsInString = !odd;
+        return new BlockScan[] {outside, inside};
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new IOException("File ended at offset " + (start + buffer.position()));
+            }
+        }
+    }
+
+    /**
+     * Blanks out the comma that separates a chunk from the object before it.
+     */
+    private static void blankLeadingComma(byte[] bytes) {
+        for (int i = 1; i < bytes.length; i++) {
+            if (bytes[i] == ',') {
+                bytes[i] = ' ';
+                return;
+            }
+            if (!isWhitespace(bytes[i])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads and parses one chunk. Runs on the pool; any number of chunks may be
+     * read at once, since positional reads do not move the channel's position.
+     */
+    private List<Booking> parse(FileChannel channel, Chunk chunk, boolean array) {
+        int length = Math.toIntExact(chunk.end() - chunk.start());
+        int offset = array ? 1 : 0;
+        byte[] bytes = new byte[length + 2 * offset];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+        try {
+            readFully(channel, buffer, chunk.start());
+            List<Booking> bookings = new ArrayList<>();
+            if (array) {
+                bytes[0] = '['; // The chunk's objects and commas become an array of their own
+                bytes[bytes.length - 1] = ']';
+                if (chunk.continued()) {
+                    blankLeadingComma(bytes);
+                }
+            }
+            try (JsonParser parser = jsonFactory.createParser(bytes)) {
+                if (array) {
+                    BookingJsonReader.readArray(parser, bookings::add);
+                } else {
+                    BookingJsonReader.readValues(parser, bookings::add);
+                }
+            }
+            return bookings;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to parse bytes " + chunk.start() + " to " + chunk.end(), e);
+        }
+    }
+}
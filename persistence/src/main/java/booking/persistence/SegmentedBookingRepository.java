@@ -0,0 +1,522 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import booking.core.Booking;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Booking repository that stores bookings in one segment per month of the
+ * booking date.
+ * <p>
+ * A small {@code manifest.json} lists the segments and whether each one is
+ * closed. A new booking is appended to its month's segment only, and the
+ * manifest is rewritten only when a segment is created, reopened or closed.
+ * Date queries read only the segments overlapping the requested range; lookups
+ * by email and full listings read every segment.
+ * </p>
+ * <p>
+ * Once its month is over, a segment is closed: its appended records are folded
+ * into a read-only {@link BinarySnapshot}. Closed segments never change on their
+ * own, so they are kept in a small least-recently-used cache without any file
+ * checks. A booking for a past month reopens that month's segment until the
+ * next restart or the next change of month. Bookings without a date go to a
+ * segment that is never closed.
+ * </p>
+ * <p>
+ * Listings are ordered by booking number, which is the order the bookings were
+ * added in. Each segment keeps its bookings in number order, so a page in
+ * booking-number order takes the first bookings after the cursor from each
+ * segment by binary search and merges them, and skips segments whose highest
+ * number is not after the cursor. The repository assumes it is the only writer
+ * of its directory.
+ * </p>
+ * <p>
+ * When the {@code segmented} engine is first opened next to the data file of
+ * the {@code json} or {@code log} engine, the bookings in that file and its log
+ * are imported into segments with their booking numbers, and numbering
+ * continues after them.
+ * </p>
+ */
+@SuppressFBWarnings(value = "CT_CONSTRUCTOR_THROW", justification = "A repository whose segment directory cannot be read must not be constructed.")
+public final class SegmentedBookingRepository implements BookingRepository {
+
+    private static final String MANIFEST = "manifest.json";
+    private static final String UNDATED = "undated";
+    private static final int CLOSED_CACHE_SEGMENTS = 12;
+    private static final Comparator<Booking> BY_NUMBER = Comparator.comparingInt(Booking::getBookingNumber);
+
+    private final Path directory;
+    private final Clock clock;
+    private final ObjectMapper objectMapper;
+    private final BookingNumberAllocator numberAllocator;
+    private final AtomicLong dataVersion = new AtomicLong();
+    private final NavigableMap<String, Boolean> segments = new TreeMap<>(); // Key to closed flag, guarded by this
+    private final Map<String, List<Booking>> openSegments = new HashMap<>(); // Guarded by this
+    private final Map<String, List<Booking>> closedCache = new ClosedSegmentCache(); // Guarded by this
+    private final Map<String, Integer> lastNumbers = new HashMap<>(); // Highest number of each segment read, guarded by this
+    private Booking lastBooking; // The booking with the highest number once known, guarded by this
+    private String checkedMonth; // The current month when segments were last closed, guarded by this
+
+    /**
+     * Least-recently-used cache of closed segments.
+     */
+    private static final class ClosedSegmentCache extends LinkedHashMap<String, List<Booking>> {
+        private static final long serialVersionUID = 1L;
+
+        ClosedSegmentCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Booking>> eldest) {
+            return size() > CLOSED_CACHE_SEGMENTS;
+        }
+    }
+
+    /**
+     * Registers the segmented engine under the name {@code segmented}. The
+     * segments are kept in a {@code <name>-segments} directory next to the data
+     * file, which is filled from the data file and its log when it is first created.
+     */
+    public static final class Provider implements BookingRepositoryProvider {
+
+        @Override
+        public String getName() {
+            return "segmented";
+        }
+
+        @Override
+        public BookingRepository create(Path dataFile) {
+            Path directory = BookingService.siblingPath(dataFile, "-segments");
+            try {
+                BookingService.importHistory(dataFile, directory,
+                        (staging, history) -> new SegmentedBookingRepository(staging).importBookings(history));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to import " + dataFile + " into " + directory, e);
+            }
+            return new SegmentedBookingRepository(directory);
+        }
+    }
+
+    /**
+     * Opens the segments in a directory, creating it if needed.
+     *
+     * @param directory The directory holding the manifest and the segment files.
+     * @throws UncheckedIOException If the directory or manifest cannot be read.
+     */
+    public SegmentedBookingRepository(Path directory) {
+        this(directory, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Opens the segments in a directory, using a clock to decide which months are over.
+     *
+     * @param directory The directory holding the manifest and the segment files.
+     * @param clock     The clock.
+     * @throws UncheckedIOException If the directory or manifest cannot be read.
+     */
+    SegmentedBookingRepository(Path directory, Clock clock) {
+        this.directory = directory;
+        this.clock = clock;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        Path sequenceFile = directory.resolve("bookings.seq");
+        try {
+            Files.createDirectories(directory);
+            boolean numbered = Files.exists(sequenceFile);
+            this.numberAllocator = new BookingNumberAllocator(sequenceFile);
+            synchronized (this) {
+                readManifest();
+                if (!numbered) {
+                    // First start on existing segments: continue after their highest number
+                    allBookings().forEach(booking -> numberAllocator.observe(booking.getBookingNumber()));
+                }
+                closeFinishedSegments();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open booking segments in " + directory, e);
+        }
+    }
+
+    @Override
+    public Booking addBooking(Booking booking) {
+        if (booking == null) {
+            return null;
+        }
+        return addBookings(List.of(booking)).get(0);
+    }
+
+    /**
+     * Adds several new bookings with consecutive numbers, appending to each
+     * touched segment once.
+     * <p>
+     * If a segment cannot be written, the records already appended to the other
+     * segments are cut off again and none of the bookings are stored. A crash
+     * in the middle of a batch may still keep the part written to some segments.
+     * </p>
+     *
+     * @param bookings The bookings to add; their booking numbers are ignored.
+     * @return The stored bookings with their assigned booking numbers, in the given order.
+     * @throws UncheckedIOException If the bookings cannot be written.
+     */
+    @Override
+    public List<Booking> addBookings(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return List.of();
+        }
+        try {
+            int bookingNumber = numberAllocator.allocate(bookings.size());
+            List<Booking> numbered = new ArrayList<>(bookings.size());
+            for (Booking booking : bookings) {
+                numbered.add(BookingService.withBookingNumber(booking, bookingNumber++));
+            }
+            synchronized (this) {
+                store(numbered);
+                lastBooking = numbered.get(numbered.size() - 1);
+                if (!keyFor(LocalDate.now(clock)).equals(checkedMonth)) {
+                    closeFinishedSegments();
+                }
+            }
+            return numbered;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write bookings", e);
+        }
+    }
+
+    /**
+     * Stores bookings with the booking numbers they already have, such as those
+     * of another engine's files, and closes the segments of finished months.
+     *
+     * @param bookings The bookings to store.
+     * @throws UncheckedIOException If the bookings cannot be written.
+     */
+    synchronized void importBookings(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+        bookings.forEach(booking -> numberAllocator.observe(booking.getBookingNumber()));
+        try {
+            store(bookings);
+            lastBooking = null; // Found again when needed, since imported numbers need not be ordered
+            closeFinishedSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to import bookings", e);
+        }
+    }
+
+    /**
+     * Appends numbered bookings to their segments, or to none of them if one
+     * fails, and adds them to the segments in memory. Callers must hold the lock
+     * on this repository.
+     */
+    private void store(List<Booking> bookings) throws IOException {
+        Map<String, List<Booking>> byKey = new TreeMap<>();
+        for (Booking booking : bookings) {
+            byKey.computeIfAbsent(keyFor(booking.getDate()), key -> new ArrayList<>()).add(booking);
+        }
+        for (String key : byKey.keySet()) {
+            if (!Boolean.FALSE.equals(segments.get(key))) {
+                openSegment(key);
+            }
+        }
+        appendAll(byKey);
+        for (Map.Entry<String, List<Booking>> entry : byKey.entrySet()) {
+            List<Booking> loaded = openSegments.get(entry.getKey());
+            for (Booking added : entry.getValue()) {
+                if (loaded != null) {
+                    insertByNumber(loaded, added);
+                }
+                lastNumbers.merge(entry.getKey(), added.getBookingNumber(), Math::max);
+            }
+        }
+        dataVersion.incrementAndGet();
+    }
+
+    /**
+     * Appends each segment's bookings to its tail, or none of them if one fails.
+     * Callers must hold the lock on this repository.
+     */
+    private void appendAll(Map<String, List<Booking>> byKey) throws IOException {
+        Map<BookingSegment, Long> appended = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, List<Booking>> entry : byKey.entrySet()) {
+                BookingSegment segment = new BookingSegment(directory, entry.getKey(), objectMapper);
+                appended.put(segment, segment.append(entry.getValue()));
+            }
+        } catch (IOException e) {
+            for (Map.Entry<BookingSegment, Long> entry : appended.entrySet()) {
+                try {
+                    entry.getKey().truncateTail(entry.getValue());
+                } catch (IOException truncateFailure) {
+                    e.addSuppressed(truncateFailure);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Adds a booking to a segment's bookings, keeping them in number order.
+     */
+    private static void insertByNumber(List<Booking> bookings, Booking booking) {
+        int position = bookings.size();
+        while (position > 0 && bookings.get(position - 1).getBookingNumber() > booking.getBookingNumber()) {
+            position--; // Committed after a booking that was numbered later
+        }
+        bookings.add(position, booking);
+    }
+
+    @Override
+    public List<Booking> loadBookings() {
+        return getAllBookings();
+    }
+
+    @Override
+    public synchronized List<Booking> getAllBookings() {
+        return Collections.unmodifiableList(allBookings());
+    }
+
+    /**
+     * Gets the booking with the highest number. After a restart the segments are
+     * read once to find it; afterwards it is the booking added last.
+     */
+    @Override
+    public synchronized Booking getLastBooking() {
+        if (lastBooking == null) {
+            for (String key : segments.keySet()) {
+                List<Booking> bookings = segment(key);
+                Booking last = bookings.isEmpty() ? null : bookings.get(bookings.size() - 1);
+                if (last != null && (lastBooking == null || last.getBookingNumber() > lastBooking.getBookingNumber())) {
+                    lastBooking = last;
+                }
+            }
+        }
+        return lastBooking;
+    }
+
+    @Override
+    public synchronized List<Booking> getBookingsByEmail() {
+        Booking last = getLastBooking();
+        return last == null ? new ArrayList<>() : getBookingsByEmail(last.getEmail());
+    }
+
+    @Override
+    public synchronized List<Booking> getBookingsByEmail(String email) {
+        String key = EmailIndex.normalize(email);
+        List<Booking> result = new ArrayList<>();
+        if (key == null) {
+            return result;
+        }
+        for (Booking booking : allBookings()) {
+            if (key.equals(EmailIndex.normalize(booking.getEmail()))) {
+                result.add(booking);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized List<Booking> getBookingsOn(LocalDate date) {
+        return getBookingsBetween(date, date);
+    }
+
+    @Override
+    public synchronized List<Booking> getBookingsBetween(LocalDate from, LocalDate to) {
+        List<Booking> result = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return result;
+        }
+        for (String key : segments.subMap(keyFor(from), true, keyFor(to), true).keySet()) {
+            for (Booking booking : segment(key)) {
+                if (!booking.getDate().isBefore(from) && !booking.getDate().isAfter(to)) {
+                    result.add(booking);
+                }
+            }
+        }
+        result.sort(Comparator.comparing(Booking::getDate)); // Stable, so each day keeps insertion order
+        return result;
+    }
+
+    @Override
+    public synchronized List<Booking> getBookingsAfter(int afterBookingNumber, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The page size must be at least 1.");
+        }
+        List<Booking> candidates = new ArrayList<>();
+        for (String key : segments.keySet()) {
+            Integer last = lastNumbers.get(key);
+            if (last != null && last <= afterBookingNumber) {
+                continue;
+            }
+            List<Booking> bookings = segment(key);
+            candidates.addAll(NumberIndex.page(bookings.subList(firstAfter(bookings, afterBookingNumber),
+                    bookings.size()), limit));
+        }
+        candidates.sort(BY_NUMBER); // Stable, so each segment's bookings with one number keep their order
+        return new ArrayList<>(NumberIndex.page(candidates, limit));
+    }
+
+    /**
+     * Finds the index of the first booking with a number greater than the given
+     * one in bookings sorted by number.
+     */
+    private static int firstAfter(List<Booking> bookings, int bookingNumber) {
+        int low = 0;
+        int high = bookings.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (bookings.get(middle).getBookingNumber() <= bookingNumber) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public long getDataVersion() {
+        return dataVersion.get();
+    }
+
+    @Override
+    public void close() {
+        // Every write is complete and synced when addBooking returns
+    }
+
+    /**
+     * Gets the keys of the segments and whether each is closed.
+     *
+     * @return A copy of the manifest, ordered by key.
+     */
+    synchronized Map<String, Boolean> getSegments() {
+        return new TreeMap<>(segments);
+    }
+
+    private static String keyFor(LocalDate date) {
+        return date == null ? UNDATED : YearMonth.from(date).toString();
+    }
+
+    private List<Booking> allBookings() {
+        List<Booking> all = new ArrayList<>();
+        for (String key : segments.keySet()) {
+            all.addAll(segment(key));
+        }
+        all.sort(BY_NUMBER);
+        return all;
+    }
+
+    /**
+     * Gets a segment's bookings in number order, reading the segment if it is not
+     * in memory. Callers must hold the lock on this repository.
+     */
+    private List<Booking> segment(String key) {
+        boolean closed = segments.get(key);
+        Map<String, List<Booking>> cache = closed ? closedCache : openSegments;
+        List<Booking> bookings = cache.get(key);
+        if (bookings == null) {
+            try {
+                bookings = new BookingSegment(directory, key, objectMapper).read();
+                bookings.sort(BY_NUMBER);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read booking segment " + key, e);
+            }
+            cache.put(key, closed ? Collections.unmodifiableList(bookings) : bookings);
+            lastNumbers.put(key, bookings.isEmpty() ? Integer.MIN_VALUE
+                    : bookings.get(bookings.size() - 1).getBookingNumber());
+        }
+        return bookings;
+    }
+
+    /**
+     * Creates or reopens a segment and records it in the manifest before anything
+     * is written to it. Callers must hold the lock on this repository.
+     */
+    private void openSegment(String key) throws IOException {
+        List<Booking> cached = closedCache.remove(key);
+        segments.put(key, false);
+        writeManifest();
+        if (cached != null) {
+            openSegments.put(key, new ArrayList<>(cached));
+        }
+    }
+
+    /**
+     * Closes the open segments whose month is over. Runs on startup and when a
+     * new month begins. Callers must hold the lock on this repository.
+     */
+    private void closeFinishedSegments() throws IOException {
+        String currentKey = keyFor(LocalDate.now(clock));
+        checkedMonth = currentKey;
+        List<String> finished = new ArrayList<>();
+        for (Map.Entry<String, Boolean> entry : segments.headMap(currentKey, false).entrySet()) {
+            if (!entry.getValue()) {
+                finished.add(entry.getKey());
+            }
+        }
+        for (String key : finished) {
+            List<Booking> bookings = segment(key);
+            BookingSegment segment = new BookingSegment(directory, key, objectMapper);
+            if (segment.hasTail()) {
+                segment.close(bookings);
+            }
+            segments.put(key, true);
+            writeManifest();
+            openSegments.remove(key);
+            closedCache.put(key, Collections.unmodifiableList(bookings));
+        }
+    }
+
+    private void readManifest() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        if (Files.exists(manifest)) {
+            for (JsonNode segment : objectMapper.readTree(manifest.toFile()).path("segments")) {
+                segments.put(segment.path("key").asText(), segment.path("closed").asBoolean());
+            }
+            return;
+        }
+        // No manifest yet: adopt any segment files, treating them as open until checked
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(file -> String.valueOf(file.getFileName()))
+                    .filter(name -> name.endsWith(".bin") || name.endsWith(".ndjson"))
+                    .forEach(name -> segments.put(name.substring(0, name.lastIndexOf('.')), false));
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        ObjectNode root = objectMapper.createObjectNode();
+        ArrayNode list = root.putArray("segments");
+        segments.forEach((key, closed) -> list.addObject().put("key", key).put("closed", closed));
+        Path manifest = directory.resolve(MANIFEST);
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(temp.toFile(), root);
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
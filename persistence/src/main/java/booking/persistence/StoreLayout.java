@@ -0,0 +1,41 @@
+package booking.persistence;
+
+/**
+ * How a {@link BookingService} lays out its bookings in memory.
+ */
+public enum StoreLayout {
+
+    /**
+     * One {@link booking.core.Booking} object per booking, as read from the file.
+     */
+    OBJECTS,
+
+    /**
+     * Bookings packed into ints, with treatments, names and emails dictionary-encoded.
+     */
+    DICTIONARY,
+
+    /**
+     * One primitive column per field, with names and emails packed as UTF-8 text.
+     */
+    COLUMNAR,
+
+    /**
+     * Fixed-size records and UTF-8 text in direct buffers, outside the Java heap.
+     */
+    OFF_HEAP;
+
+    /**
+     * Creates an empty store with this layout.
+     *
+     * @return The store.
+     */
+    BookingStore newStore() {
+        return switch (this) {
+            case OBJECTS -> new ObjectBookingStore();
+            case DICTIONARY -> new DictionaryBookingStore();
+            case COLUMNAR -> new ColumnarBookingStore();
+            case OFF_HEAP -> new OffHeapBookingStore();
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package booking.persistence;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Intern table that maps each distinct string to a small int code.
+ * <p>
+ * Every distinct string is kept once, however many bookings refer to it. Codes
+ * are assigned in order of first use and stay valid until {@link #clear()}.
+ * {@code null} is encoded as {@code -1}. Not thread-safe, but a
+ * {@link #snapshot()} shares the strings and can be read from any thread once
+ * published.
+ * </p>
+ */
+final class StringDictionary {
+
+    static final int NULL_CODE = -1;
+
+    private final Map<String, Integer> codes; // Null in a snapshot
+    private String[] values;
+    private int size;
+
+    /**
+     * Creates an empty dictionary.
+     */
+    StringDictionary() {
+        this(new HashMap<>(), new String[16], 0);
+    }
+
+    private StringDictionary(Map<String, Integer> codes, String[] values, int size) {
+        this.codes = codes;
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * Gets the code for a string, adding the string if it is new.
+     *
+     * @param value The string, or {@code null}.
+     * @return The code.
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        if (codes == null) {
+            throw new UnsupportedOperationException("Dictionary snapshots are read-only");
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            code = size;
+            codes.put(value, code);
+            values[size++] = value;
+        }
+        return code;
+    }
+
+    /**
+     * Gets the string for a code.
+     *
+     * @param code A code returned by {@link #encode(String)}.
+     * @return The shared string instance, or {@code null} for {@link #NULL_CODE}.
+     */
+    String decode(int code) {
+        if (code == NULL_CODE) {
+            return null;
+        }
+        if (code < 0 || code >= size) {
+            throw new IndexOutOfBoundsException("Code " + code + " of " + size);
+        }
+        return values[code];
+    }
+
+    /**
+     * Gets the number of distinct strings.
+     *
+     * @return The size.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Removes every string.
+     */
+    void clear() {
+        if (codes == null) {
+            throw new UnsupportedOperationException("Dictionary snapshots are read-only");
+        }
+        codes.clear();
+        values = new String[16]; // Snapshots keep the old strings
+        size = 0;
+    }
+
+    /**
+     * Gets a read-only view of the strings added so far, which shares their
+     * storage and does not change when strings are added later.
+     *
+     * @return The snapshot; its {@link #encode(String)} and {@link #clear()}
+     *         throw {@link UnsupportedOperationException}.
+     */
+    StringDictionary snapshot() {
+        return new StringDictionary(null, values, size);
+    }
+}
@@ -0,0 +1,775 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.RandomAccess;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import booking.core.Booking;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * Booking repository that partitions bookings by date into stripes, so that
+ * bookings for different days are written in parallel.
+ * <p>
+ * Each stripe has its own lock, its own dictionary-encoded {@link BookingStore}
+ * and indexes, and its own append-only {@link BookingLog}, which is synced
+ * before a booking is acknowledged. A booking goes to the stripe of its epoch
+ * day modulo the number of stripes; undated bookings go to the first stripe.
+ * Writers to different stripes share no lock: they only allocate a booking
+ * number and publish their stripe's new snapshot.
+ * </p>
+ * <p>
+ * Readers see one consistent version across all stripes. A version holds a
+ * snapshot of every stripe and is replaced with a compare-and-set that swaps in
+ * the writer's stripe, so a version that shows a booking also shows every
+ * booking acknowledged before it was added. Listings are ordered by booking
+ * number; the merged order is computed once per version when it is first
+ * listed. Email and date lookups lock one stripe at a time while they copy the
+ * matching positions. Pages in booking-number order are merged from a number
+ * index in each stripe, so a page reads about {@code limit} bookings per stripe
+ * instead of ordering the whole version. Since writers to different stripes
+ * publish in any order, a page stops below the lowest booking number that is
+ * allocated but not yet published, so that paging never passes over it.
+ * </p>
+ * <p>
+ * Each stripe is kept as a {@link BinarySnapshot} {@code stripe-<n>.bin} and the
+ * log {@code stripe-<n>.log} of the bookings added since, in one directory. Once
+ * a stripe's log holds as many records as its snapshot, the stripe is written
+ * as a new snapshot and its log is emptied, so startup maps the snapshots and
+ * replays only the log tails. All stripe files found are read at startup, so
+ * the number of stripes may change between runs; the stripes are then all
+ * rewritten as snapshots in the new layout. The repository assumes it is the
+ * only writer of its directory.
+ * </p>
+ * <p>
+ * When the {@code striped} engine is first opened next to the data file of the
+ * {@code json} or {@code log} engine, the bookings in that file and its log are
+ * imported with their booking numbers, and numbering continues after them.
+ * </p>
+ */
+@SuppressFBWarnings(value = "CT_CONSTRUCTOR_THROW", justification = "A repository whose stripe logs cannot be read must not be constructed.")
+public final class StripedBookingRepository implements BookingRepository {
+
+    /**
+     * The number of stripes used by the {@code striped} engine.
+     */
+    public static final int DEFAULT_STRIPES = 16;
+
+    private static final int MAX_STRIPES = 64;
+    private static final int POSITION_BITS = 26; // Positions within a stripe, below the stripe index in an order key
+    private static final Pattern FILE_NAME = Pattern.compile("stripe-(\\d+)\\.(log|bin|bin\\.tmp)");
+    private static final String RELAYOUT = "stripes.relayout"; // Holds the new stripe count while the stripes are rewritten
+    private static final int MIN_COMPACTION_RECORDS = 1000;
+    private static final Comparator<Booking> BY_NUMBER = Comparator.comparingInt(Booking::getBookingNumber);
+    private static final Comparator<Booking> BY_DATE = Comparator.comparing(Booking::getDate).thenComparing(BY_NUMBER);
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final Stripe[] stripes;
+    private final BookingNumberAllocator numberAllocator;
+    private final AtomicReference<Version> published;
+    private final NavigableSet<Integer> unpublished = new TreeSet<>(); // First numbers of batches being written, guarded by itself
+
+    /**
+     * Registers the striped engine under the name {@code striped}. The stripes
+     * are kept in a {@code <name>-stripes} directory next to the data file, which
+     * is filled from the data file and its log when it is first created.
+     */
+    public static final class Provider implements BookingRepositoryProvider {
+
+        @Override
+        public String getName() {
+            return "striped";
+        }
+
+        @Override
+        public BookingRepository create(Path dataFile) {
+            Path directory = BookingService.siblingPath(dataFile, "-stripes");
+            try {
+                BookingService.importHistory(dataFile, directory, (staging, history) -> {
+                    try (StripedBookingRepository repository = new StripedBookingRepository(staging, DEFAULT_STRIPES)) {
+                        repository.importBookings(history);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to import " + dataFile + " into " + directory, e);
+            }
+            return new StripedBookingRepository(directory, DEFAULT_STRIPES);
+        }
+    }
+
+    /**
+     * One partition of the bookings. The stripe object is the lock for its
+     * store, indexes and log.
+     */
+    private static final class Stripe {
+
+        private final BookingStore store = new DictionaryBookingStore();
+        private final EmailIndex emailIndex = new EmailIndex();
+        private final DateIndex dateIndex = new DateIndex();
+        private final NumberIndex numberIndex = new NumberIndex();
+        private final BookingLog log;
+
+        Stripe(BookingLog log) {
+            this.log = log;
+        }
+
+        /**
+         * Adds a booking to the store and indexes. Callers must hold the lock on this stripe.
+         */
+        int add(Booking booking) {
+            int position = store.add(booking);
+            emailIndex.add(booking.getEmail(), position);
+            dateIndex.add(booking.getDate(), position);
+            numberIndex.add(booking.getBookingNumber(), position);
+            return position;
+        }
+    }
+
+    /**
+     * One published version of all stripes, listed in booking number order.
+     */
+    private static final class Version extends AbstractList<Booking> implements RandomAccess {
+
+        private final BookingStore[] partitions;
+        private final long dataVersion;
+        private final int size;
+        private final long last; // Order key of the booking with the highest number, or -1 if empty
+        @SuppressFBWarnings(value = "VO_VOLATILE_REFERENCE_TO_ARRAY", justification = "The array is complete before it is published and never changed afterwards.")
+        private volatile long[] order; // Order keys sorted by booking number, computed on first use
+
+        Version(BookingStore[] partitions, long dataVersion, long last) {
+            this.partitions = partitions;
+            this.dataVersion = dataVersion;
+            this.last = last;
+            int total = 0;
+            for (BookingStore partition : partitions) {
+                total += partition.size();
+            }
+            this.size = total;
+        }
+
+        /**
+         * Creates the version that follows this one, with a new snapshot of one stripe.
+         *
+         * @param stripe   The index of the stripe.
+         * @param snapshot The stripe's new snapshot, whose last booking was just added.
+         * @return The next version.
+         */
+        Version with(int stripe, BookingStore snapshot) {
+            BookingStore[] next = partitions.clone();
+            next[stripe] = snapshot;
+            long added = key(snapshot, stripe, snapshot.size() - 1);
+            return new Version(next, dataVersion + 1, last < 0 || added > last ? added : last);
+        }
+
+        static long key(BookingStore partition, int stripe, int position) {
+            return ((long) partition.getBookingNumber(position) << 32) | ((long) stripe << POSITION_BITS) | position;
+        }
+
+        Booking at(long key) {
+            int stripe = (int) (key >>> POSITION_BITS) & (MAX_STRIPES - 1);
+            return partitions[stripe].get((int) key & ((1 << POSITION_BITS) - 1));
+        }
+
+        Booking last() {
+            return last < 0 ? null : at(last);
+        }
+
+        private long[] order() {
+            long[] keys = order;
+            if (keys == null) {
+                keys = new long[size];
+                int k = 0;
+                for (int stripe = 0; stripe < partitions.length; stripe++) {
+                    for (int position = 0; position < partitions[stripe].size(); position++) {
+                        keys[k++] = key(partitions[stripe], stripe, position);
+                    }
+                }
+                Arrays.sort(keys); // Each stripe is already close to number order
+                order = keys;
+            }
+            return keys;
+        }
+
+        @Override
+        public Booking get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Booking " + index + " of " + size);
+            }
+            return at(order()[index]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Opens the stripes in a directory, creating it if needed.
+     *
+     * @param directory   The directory holding the stripe snapshots and logs.
+     * @param stripeCount The number of stripes to write to, from 1 to 64.
+     * @throws UncheckedIOException If the directory or a stripe cannot be read.
+     */
+    public StripedBookingRepository(Path directory, int stripeCount) {
+        if (stripeCount < 1 || stripeCount > MAX_STRIPES) {
+            throw new IllegalArgumentException("The number of stripes must be between 1 and " + MAX_STRIPES);
+        }
+        this.directory = directory;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        this.stripes = new Stripe[stripeCount];
+        try {
+            Files.createDirectories(directory);
+            finishRelayout(directory, objectMapper, null);
+            this.numberAllocator = new BookingNumberAllocator(directory.resolve("bookings.seq"));
+            for (int i = 0; i < stripeCount; i++) {
+                stripes[i] = new Stripe(new BookingLog(logFile(directory, i), objectMapper));
+            }
+            boolean moved = false;
+            for (int index : stripeIndexes(directory)) {
+                moved |= replay(index);
+            }
+            if (moved) {
+                snapshotAll(); // The stripe count changed, so the files no longer match the stripes
+            }
+        } catch (IOException e) {
+            close(stripes);
+            throw new UncheckedIOException("Failed to open booking stripes in " + directory, e);
+        }
+        this.published = new AtomicReference<>(versionOfStripes(0));
+    }
+
+    /**
+     * Creates a version of the stripes' current snapshots. Callers must make sure
+     * that no bookings are being added.
+     */
+    private Version versionOfStripes(long dataVersion) {
+        BookingStore[] partitions = new BookingStore[stripes.length];
+        long last = -1;
+        for (int i = 0; i < stripes.length; i++) {
+            partitions[i] = stripes[i].store.snapshot();
+            for (int position = 0; position < partitions[i].size(); position++) {
+                last = Math.max(last, Version.key(partitions[i], i, position));
+            }
+        }
+        return new Version(partitions, dataVersion, last);
+    }
+
+    private static Path logFile(Path directory, int index) {
+        return directory.resolve("stripe-" + index + ".log");
+    }
+
+    private static Path snapshotFile(Path directory, int index) {
+        return directory.resolve("stripe-" + index + ".bin");
+    }
+
+    private static Path tempFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    /**
+     * Gets the indexes of all stripes that have a file in the directory.
+     */
+    private static SortedSet<Integer> stripeIndexes(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> FILE_NAME.matcher(String.valueOf(file.getFileName())))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Integer.parseInt(matcher.group(1)))
+                    .collect(Collectors.toCollection(TreeSet::new));
+        }
+    }
+
+    /**
+     * Reads one stripe's snapshot and log tail into the stripes chosen by the
+     * current stripe count.
+     *
+     * @return {@code true} if any of the bookings now belongs to another stripe.
+     */
+    private boolean replay(int index) throws IOException {
+        boolean[] moved = new boolean[1];
+        Consumer<Booking> sink = booking -> moved[0] |= load(booking) != index;
+        int snapshotCount = 0;
+        Path snapshotFile = snapshotFile(directory, index);
+        if (Files.exists(snapshotFile)) {
+            BinarySnapshot snapshot = BinarySnapshot.map(snapshotFile);
+            snapshot.forEach(sink);
+            snapshotCount = snapshot.size();
+        }
+        if (index < stripes.length) {
+            BookingLog log = stripes[index].log;
+            log.replay(Math.max(0, snapshotCount - log.getBaseCount()), sink);
+        } else if (Files.exists(logFile(directory, index))) {
+            try (BookingLog log = new BookingLog(logFile(directory, index), objectMapper)) { // More stripes than now
+                log.replay(Math.max(0, snapshotCount - log.getBaseCount()), sink);
+            }
+        }
+        return moved[0];
+    }
+
+    private int load(Booking booking) {
+        numberAllocator.observe(booking.getBookingNumber());
+        int index = stripeOf(booking.getDate());
+        synchronized (stripes[index]) {
+            stripes[index].add(booking);
+        }
+        return index;
+    }
+
+    /**
+     * Stores bookings with the booking numbers they already have, such as those
+     * of another engine's files, and writes every stripe as a snapshot. Used to
+     * fill a new directory before the repository is shared.
+     *
+     * @param bookings The bookings to store.
+     * @throws UncheckedIOException If the stripes cannot be written.
+     */
+    void importBookings(List<Booking> bookings) {
+        bookings.forEach(this::load);
+        try {
+            snapshotAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to import bookings into " + directory, e);
+        }
+        published.set(versionOfStripes(published.get().dataVersion + 1));
+    }
+
+    /**
+     * Writes every stripe as a new snapshot and empties its log, and deletes the
+     * files of stripes beyond the current count. All snapshots are written before
+     * the first one replaces an old file, and the new stripe count is recorded in
+     * between, so that a crash either keeps the old files or lets the next start
+     * finish the change. Callers must make sure that no bookings are being added.
+     */
+    private void snapshotAll() throws IOException {
+        for (int i = 0; i < stripes.length; i++) {
+            Path temp = tempFile(snapshotFile(directory, i));
+            BinarySnapshot.write(temp, stripes[i].store.snapshot().asList());
+            force(temp);
+        }
+        Path marker = directory.resolve(RELAYOUT);
+        Path temp = tempFile(marker);
+        Files.writeString(temp, Integer.toString(stripes.length), StandardCharsets.UTF_8);
+        force(temp);
+        Files.move(temp, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        BookingNumberAllocator.syncDirectory(directory);
+        finishRelayout(directory, objectMapper, stripes);
+    }
+
+    /**
+     * Finishes rewriting the stripes once all their new snapshots are written:
+     * moves the snapshots into place, empties the logs they replace and deletes
+     * the files of stripes beyond the recorded count. Every step may be repeated
+     * after a crash. Without a record of such a change, snapshots left over from
+     * an unfinished one are deleted.
+     *
+     * @param open The open stripes, whose logs are emptied through their own handle, or {@code null}.
+     */
+    private static void finishRelayout(Path directory, ObjectMapper objectMapper, Stripe[] open) throws IOException {
+        Path marker = directory.resolve(RELAYOUT);
+        if (!Files.exists(marker)) {
+            for (int index : stripeIndexes(directory)) {
+                Files.deleteIfExists(tempFile(snapshotFile(directory, index)));
+            }
+            return;
+        }
+        int count = Integer.parseInt(Files.readString(marker, StandardCharsets.UTF_8).trim());
+        for (int index = 0; index < count; index++) {
+            Path snapshotFile = snapshotFile(directory, index);
+            if (Files.exists(tempFile(snapshotFile))) {
+                Files.move(tempFile(snapshotFile), snapshotFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        BookingNumberAllocator.syncDirectory(directory); // The snapshots must be in place before the logs are emptied
+        for (int index = 0; index < count; index++) {
+            int snapshotCount = BinarySnapshot.map(snapshotFile(directory, index)).size();
+            if (open != null && index < open.length) {
+                open[index].log.reset(snapshotCount);
+            } else {
+                try (BookingLog log = new BookingLog(logFile(directory, index), objectMapper)) {
+                    log.reset(snapshotCount);
+                }
+            }
+        }
+        for (int index : stripeIndexes(directory)) {
+            if (index >= count) {
+                Files.deleteIfExists(logFile(directory, index));
+                Files.deleteIfExists(snapshotFile(directory, index));
+                Files.deleteIfExists(tempFile(snapshotFile(directory, index)));
+            }
+        }
+        Files.delete(marker);
+        BookingNumberAllocator.syncDirectory(directory);
+    }
+
+    /**
+     * Folds a stripe's log into a new snapshot of the stripe and empties the log.
+     * The log is only emptied once the snapshot is in place; if a crash comes in
+     * between, the log records already in the snapshot are skipped on replay.
+     * Callers must hold the lock on the stripe.
+     */
+    private void compact(int index) {
+        Stripe stripe = stripes[index];
+        Path snapshotFile = snapshotFile(directory, index);
+        Path temp = tempFile(snapshotFile);
+        try {
+            BinarySnapshot.write(temp, stripe.store.snapshot().asList());
+            force(temp);
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            BookingNumberAllocator.syncDirectory(directory);
+            stripe.log.reset(stripe.store.size());
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.err.println("Failed to compact booking stripe " + index + " in " + directory);
+        }
+    }
+
+    private static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private int stripeOf(LocalDate date) {
+        return date == null ? 0 : (int) Math.floorMod(date.toEpochDay(), (long) stripes.length);
+    }
+
+    private static void close(Stripe[] stripes) {
+        for (Stripe stripe : stripes) {
+            if (stripe != null) {
+                try {
+                    stripe.log.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a new booking to its date's stripe and syncs the stripe's log.
+     * <p>
+     * Only the stripe is locked while the booking is written, so bookings for
+     * days in different stripes are written and synced in parallel.
+     * </p>
+     *
+     * @param booking The booking to add; its booking number is ignored.
+     * @return The stored booking with its assigned booking number.
+     * @throws UncheckedIOException If the booking cannot be written.
+     */
+    @Override
+    public Booking addBooking(Booking booking) {
+        if (booking == null) {
+            return null;
+        }
+        return addBookings(List.of(booking)).get(0);
+    }
+
+    /**
+     * Adds several new bookings with consecutive numbers, appending to and
+     * syncing each touched stripe's log once.
+     * <p>
+     * The touched stripes are locked in index order, so batches never deadlock
+     * with each other or with single bookings. If a stripe's log cannot be
+     * written, the records already appended to the other stripes' logs are cut
+     * off again and none of the bookings are stored. A crash in the middle of a
+     * batch may still keep the part written to some stripes. Readers see the
+     * whole batch in one new version.
+     * </p>
+     *
+     * @param bookings The bookings to add; their booking numbers are ignored.
+     * @return The stored bookings with their assigned booking numbers, in the given order.
+     * @throws UncheckedIOException If the bookings cannot be written.
+     */
+    @Override
+    public List<Booking> addBookings(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return List.of();
+        }
+        int first;
+        try {
+            synchronized (unpublished) {
+                first = numberAllocator.allocate(bookings.size());
+                unpublished.add(first);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write bookings", e);
+        }
+        try {
+            int bookingNumber = first;
+            List<Booking> numbered = new ArrayList<>(bookings.size());
+            List<List<Booking>> byStripe = new ArrayList<>(stripes.length);
+            for (int i = 0; i < stripes.length; i++) {
+                byStripe.add(new ArrayList<>());
+            }
+            for (Booking booking : bookings) {
+                Booking added = BookingService.withBookingNumber(booking, bookingNumber++);
+                numbered.add(added);
+                byStripe.get(stripeOf(added.getDate())).add(added);
+            }
+            commit(byStripe, 0);
+            return numbered;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write bookings", e);
+        } finally {
+            synchronized (unpublished) {
+                unpublished.remove(first);
+            }
+        }
+    }
+
+    /**
+     * Locks the touched stripes from the given index on, in index order, and
+     * then writes and publishes the batch.
+     */
+    private void commit(List<List<Booking>> byStripe, int from) throws IOException {
+        int index = from;
+        while (index < stripes.length && byStripe.get(index).isEmpty()) {
+            index++;
+        }
+        if (index == stripes.length) {
+            writeLocked(byStripe);
+            return;
+        }
+        synchronized (stripes[index]) {
+            commit(byStripe, index + 1);
+        }
+    }
+
+    /**
+     * Appends the batch to the touched stripes' logs, or to none of them if one
+     * fails, and publishes it. Callers must hold the locks on the touched stripes.
+     */
+    private void writeLocked(List<List<Booking>> byStripe) throws IOException {
+        long[] ends = new long[stripes.length];
+        int[] counts = new int[stripes.length];
+        int written = 0;
+        try {
+            for (; written < stripes.length; written++) {
+                if (!byStripe.get(written).isEmpty()) {
+                    BookingLog log = stripes[written].log;
+                    ends[written] = log.getEnd();
+                    counts[written] = log.getRecordCount();
+                    log.append(byStripe.get(written), true);
+                }
+            }
+        } catch (IOException e) {
+            for (int i = 0; i < written; i++) {
+                if (!byStripe.get(i).isEmpty()) {
+                    try {
+                        stripes[i].log.truncate(ends[i], counts[i]);
+                    } catch (IOException truncateFailure) {
+                        e.addSuppressed(truncateFailure);
+                    }
+                }
+            }
+            throw e;
+        }
+        BookingStore[] snapshots = new BookingStore[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            if (!byStripe.get(i).isEmpty()) {
+                byStripe.get(i).forEach(stripes[i]::add);
+                snapshots[i] = stripes[i].store.snapshot();
+            }
+        }
+        Version version;
+        Version next;
+        do {
+            version = published.get();
+            next = version;
+            for (int i = 0; i < stripes.length; i++) {
+                if (snapshots[i] != null) {
+                    next = next.with(i, snapshots[i]);
+                }
+            }
+        } while (!published.compareAndSet(version, next));
+        for (int i = 0; i < stripes.length; i++) {
+            BookingLog log = stripes[i].log;
+            if (snapshots[i] != null && log.getRecordCount() >= Math.max(MIN_COMPACTION_RECORDS, log.getBaseCount())) {
+                compact(i);
+            }
+        }
+    }
+
+    @Override
+    public List<Booking> loadBookings() {
+        return getAllBookings();
+    }
+
+    /**
+     * Retrieves all bookings from one consistent version of the stripes, without
+     * locking or copying them.
+     *
+     * @return An unmodifiable list ordered by booking number.
+     */
+    @Override
+    public List<Booking> getAllBookings() {
+        return published.get();
+    }
+
+    @Override
+    public Booking getLastBooking() {
+        return published.get().last();
+    }
+
+    @Override
+    public List<Booking> getBookingsByEmail() {
+        Booking last = published.get().last();
+        return last == null ? new ArrayList<>() : getBookingsByEmail(last.getEmail());
+    }
+
+    @Override
+    public List<Booking> getBookingsByEmail(String email) {
+        Version version = published.get();
+        List<Booking> result = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            int[] positions;
+            synchronized (stripes[i]) {
+                positions = stripes[i].emailIndex.get(email);
+            }
+            collect(version.partitions[i], positions, result);
+        }
+        result.sort(BY_NUMBER);
+        return result;
+    }
+
+    @Override
+    public List<Booking> getBookingsOn(LocalDate date) {
+        int i = stripeOf(date);
+        BookingStore partition = published.get().partitions[i];
+        int[] positions;
+        synchronized (stripes[i]) {
+            positions = stripes[i].dateIndex.on(date);
+        }
+        List<Booking> result = new ArrayList<>(positions.length);
+        collect(partition, positions, result);
+        return result;
+    }
+
+    @Override
+    public List<Booking> getBookingsBetween(LocalDate from, LocalDate to) {
+        Version version = published.get();
+        List<Booking> result = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            int[] positions;
+            synchronized (stripes[i]) {
+                positions = stripes[i].dateIndex.between(from, to);
+            }
+            collect(version.partitions[i], positions, result);
+        }
+        result.sort(BY_DATE);
+        return result;
+    }
+
+    /**
+     * Gets a page of bookings in booking-number order by merging the first
+     * bookings after the given number from every stripe's number index.
+     * <p>
+     * Each stripe is read under its lock, where the published snapshot of the
+     * stripe is its latest state. A stripe that has more bookings than the page
+     * returns at least {@code limit} of them, so the merged page is never missing
+     * a booking from a stripe that was cut short.
+     * </p>
+     * <p>
+     * The page ends below the lowest booking number that was allocated but
+     * whose batch is not yet published, because a batch with a higher number
+     * may be published first. The page may then be shorter than the limit even
+     * though more bookings follow; the next page starts with the held-back
+     * number once it is published.
+     * </p>
+     */
+    @Override
+    public List<Booking> getBookingsAfter(int afterBookingNumber, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The page size must be at least 1.");
+        }
+        long end = publishedBelow(); // Read first: every number below it is published by now
+        List<Booking> candidates = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            synchronized (stripes[i]) {
+                collect(published.get().partitions[i], stripes[i].numberIndex.after(afterBookingNumber, limit),
+                        candidates);
+            }
+        }
+        candidates.removeIf(booking -> booking.getBookingNumber() >= end);
+        candidates.sort(BY_NUMBER); // Stable, so each stripe's bookings with one number keep their order
+        return new ArrayList<>(NumberIndex.page(candidates, limit));
+    }
+
+    /**
+     * Gets the lowest booking number that may still be published: the first
+     * number of the oldest batch being written, or else the next number to be
+     * allocated. Numbers are allocated under the same lock, so every lower
+     * number is either published or belongs to a batch that failed.
+     */
+    private long publishedBelow() {
+        synchronized (unpublished) {
+            return unpublished.isEmpty() ? numberAllocator.getHighWaterMark() + 1L : unpublished.first();
+        }
+    }
+
+    /**
+     * Gets the lock of the stripe that bookings on a date are written to.
+     * Holding it holds back writers to that stripe.
+     *
+     * @param date The date, or {@code null} for undated bookings.
+     * @return The stripe's lock.
+     */
+    Object stripeLock(LocalDate date) {
+        return stripes[stripeOf(date)];
+    }
+
+    /**
+     * Adds the bookings at the given positions that are part of a version's
+     * snapshot of a stripe, skipping those added after the version was published.
+     */
+    private static void collect(BookingStore partition, int[] positions, List<Booking> result) {
+        for (int position : positions) {
+            if (position < partition.size()) {
+                result.add(partition.get(position));
+            }
+        }
+    }
+
+    @Override
+    public long getDataVersion() {
+        return published.get().dataVersion;
+    }
+
+    /**
+     * Closes the stripe logs.
+     */
+    @Override
+    public void close() {
+        close(stripes);
+    }
+}
@@ -0,0 +1,89 @@
+package booking.persistence;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Secondary index from treatment to the store positions of the bookings for
+ * that treatment.
+ * <p>
+ * Treatments are picked from a fixed list, so they are matched exactly. Each
+ * treatment's positions are kept in insertion order, which is increasing
+ * order, so membership is a binary search. The index is not thread-safe;
+ * callers guard it with the same lock as the {@link BookingStore} it indexes.
+ * </p>
+ */
+final class TreatmentIndex {
+
+    private final Map<String, IntList> bookingsByTreatment = new HashMap<>();
+
+    /**
+     * Adds a booking to the end of its treatment's list.
+     *
+     * @param treatment The booking's treatment.
+     * @param position  The booking's position in the store.
+     */
+    void add(String treatment, int position) {
+        if (treatment != null) {
+            bookingsByTreatment.computeIfAbsent(treatment, k -> new IntList()).add(position);
+        }
+    }
+
+    /**
+     * Removes a booking, used to roll back a booking that could not be written.
+     *
+     * @param treatment The booking's treatment.
+     * @param position  The booking's position in the store.
+     */
+    void remove(String treatment, int position) {
+        IntList list = treatment == null ? null : bookingsByTreatment.get(treatment);
+        if (list == null) {
+            return;
+        }
+        list.removeLastOccurrence(position);
+        if (list.size() == 0) {
+            bookingsByTreatment.remove(treatment);
+        }
+    }
+
+    /**
+     * Gets the bookings for a treatment.
+     *
+     * @param treatment The treatment.
+     * @return The store positions of the treatment's bookings in insertion order.
+     */
+    int[] get(String treatment) {
+        IntList list = bookingsByTreatment.get(treatment);
+        return list == null ? new int[0] : list.toArray();
+    }
+
+    /**
+     * Counts the bookings for a treatment.
+     *
+     * @param treatment The treatment.
+     * @return The number of the treatment's bookings.
+     */
+    int count(String treatment) {
+        IntList list = bookingsByTreatment.get(treatment);
+        return list == null ? 0 : list.size();
+    }
+
+    /**
+     * Checks whether a booking is for a treatment.
+     *
+     * @param treatment The treatment.
+     * @param position  The booking's position in the store.
+     * @return {@code true} if the booking at the position is for that treatment.
+     */
+    boolean contains(String treatment, int position) {
+        IntList list = bookingsByTreatment.get(treatment);
+        return list != null && list.containsSorted(position);
+    }
+
+    /**
+     * Removes every entry, before the index is rebuilt during a load.
+     */
+    void clear() {
+        bookingsByTreatment.clear();
+    }
+}
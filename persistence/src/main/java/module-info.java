@@ -11,7 +11,22 @@ module booking.persistence {
     // Requires essential libraries and modules
     requires booking.core;                    // Core booking logic and data models
     requires java.net.http;                   // HTTP client API for communication (if needed for HTTP-based persistence)
+    requires java.sql;                        // JDBC for the jdbc engine; the H2 driver is found at runtime
     requires com.fasterxml.jackson.databind;  // Jackson core library for JSON processing
     requires com.fasterxml.jackson.datatype.jsr310; // Jackson module for Java 8 Date & Time API support
     requires com.fasterxml.jackson.core;      // Jackson core functionalities (for streaming, parsing, etc.)
+    requires static com.github.spotbugs.annotations; // SpotBugs annotations for static analysis
+
+    // Booking storage engines, selectable by name through BookingRepository.open
+    uses booking.persistence.BookingRepositoryProvider;
+    provides booking.persistence.BookingRepositoryProvider with
+            booking.persistence.InMemoryBookingRepository.Provider,
+            booking.persistence.BookingService.JsonFileProvider,
+            booking.persistence.BookingService.LogProvider,
+            booking.persistence.SegmentedBookingRepository.Provider,
+            booking.persistence.StripedBookingRepository.Provider,
+            booking.persistence.JdbcBookingRepository.Provider;
+
+    // Extra compression codecs for .bkz booking files, found by name through BlockCodec.named
+    uses booking.persistence.BlockCodec;
 }
@@ -3,8 +3,11 @@ package booking.persistence;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -12,6 +15,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.argThat;
 import static org.mockito.Mockito.when;
 
 /**
@@ -35,6 +41,7 @@ class ApiClientTest {
         // Mock HttpClient and HttpResponse
         mockHttpClient = mock(HttpClient.class);
         mockResponse = mock(HttpResponse.class);
+        when(mockResponse.headers()).thenReturn(HttpHeaders.of(Map.of(), (name, value) -> true));
 
         // Create new ApiClient instance and inject mocked HttpClient via reflection
         apiClient = new ApiClient();
@@ -259,4 +266,24 @@ class ApiClientTest {
         String result = apiClient.get("/test");
         assertEquals("Success", result, "The response should be 'Success' for status code 299");
     }
+
+    /**
+     * Tests that a GET is revalidated with the ETag of its previous response and
+     * that a 304 answer returns the previous body.
+     *
+     * @throws IOException          if an I/O error occurs during the test.
+     * @throws InterruptedException if the test operation is interrupted.
+     */
+    @Test
+    void testGetRevalidatesWithETag() throws IOException, InterruptedException {
+        when(mockResponse.headers()).thenReturn(HttpHeaders.of(Map.of("ETag", List.of("\"v1\"")), (name, value) -> true));
+        when(mockResponse.statusCode()).thenReturn(200, 304);
+        when(mockResponse.body()).thenReturn("[{\"bookingNumber\":1}]", "");
+        when(mockHttpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class))).thenReturn(mockResponse);
+
+        assertEquals("[{\"bookingNumber\":1}]", apiClient.get("/test"));
+        assertEquals("[{\"bookingNumber\":1}]", apiClient.get("/test"), "A 304 should return the previous body");
+        verify(mockHttpClient, times(1)).send(argThat(request ->
+                request.headers().firstValue("If-None-Match").orElse("").equals("\"v1\"")), any());
+    }
 }
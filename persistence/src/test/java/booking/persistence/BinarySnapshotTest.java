@@ -0,0 +1,76 @@
+package booking.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import booking.core.Booking;
+
+/**
+ * Unit tests for the {@link BinarySnapshot} format and {@link BookingSnapshotConverter}.
+ */
+class BinarySnapshotTest {
+
+    /**
+     * Tests that bookings survive a JSON to binary to JSON round trip, including
+     * missing fields, and that repeated strings are decoded once and shared.
+     */
+    @Test
+    void testConvertRoundTrip(@TempDir Path tempDir) throws IOException {
+        List<Booking> bookings = List.of(
+                new Booking(1, "John Doe", "john@example.com", "Manicure", LocalDate.of(2025, 3, 10)),
+                new Booking(2, "Jane Doe", null, "Manicure", null),
+                new Booking(3, "Jåne Ødegård", "jane@example.com", "Spa Facial", LocalDate.of(1999, 12, 31)));
+        Path json = tempDir.resolve("booking.json");
+        Path binary = tempDir.resolve("booking.bin");
+        BookingSnapshotConverter.writeJson(bookings, json);
+
+        BookingSnapshotConverter.main(new String[] {json.toString(), binary.toString()});
+        List<Booking> decoded = BookingSnapshotConverter.readBinary(binary);
+
+        assertEquals(3, decoded.size(), "All bookings should be decoded");
+        assertEquals("Jåne Ødegård", decoded.get(2).getName(), "Non-ASCII names should survive");
+        assertNull(decoded.get(1).getEmail(), "A missing email should stay missing");
+        assertNull(decoded.get(1).getDate(), "A missing date should stay missing");
+        assertEquals(LocalDate.of(1999, 12, 31), decoded.get(2).getDate(), "Dates should survive");
+        assertSame(decoded.get(0).getTreatment(), decoded.get(1).getTreatment(), "Repeated strings should be shared");
+
+        Path back = tempDir.resolve("back.json");
+        BookingSnapshotConverter.main(new String[] {binary.toString(), back.toString()});
+        assertEquals(Files.readString(json), Files.readString(back), "Converting back should give the same JSON");
+    }
+
+    /**
+     * Tests that a service with a {@code .bin} data file writes and reloads a binary snapshot.
+     */
+    @Test
+    void testServiceUsesBinarySnapshot(@TempDir Path tempDir) throws IOException {
+        Path dataFile = tempDir.resolve("booking.bin");
+        try (BookingService service = new BookingService(dataFile, false)) {
+            service.addBooking(new Booking(0, "John Doe", "john@example.com", "Massage", LocalDate.of(2025, 3, 10)));
+            service.addBooking(new Booking(0, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 3, 11)));
+        }
+
+        assertEquals(2, BinarySnapshot.map(dataFile).size(), "The snapshot should be written in binary");
+        try (BookingService reopened = new BookingService(dataFile, false)) {
+            assertEquals(2, reopened.getAllBookings().size(), "Bookings should be loaded from the binary snapshot");
+            assertEquals(1, reopened.getBookingsByEmail("jane@example.com").size(), "Indexes should be rebuilt");
+        }
+    }
+
+    /**
+     * Tests that a file that is not a binary snapshot is rejected.
+     */
+    @Test
+    void testRejectsOtherFiles(@TempDir Path tempDir) throws IOException {
+        Path file = Files.writeString(tempDir.resolve("booking.bin"), "[ ] and some more text");
+        assertThrows(IOException.class, () -> BinarySnapshot.map(file));
+    }
+}
@@ -0,0 +1,85 @@
+package booking.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import booking.core.Booking;
+
+/**
+ * Unit tests for the {@link BookingLog} class.
+ */
+class BookingLogTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    /**
+     * Tests that a torn record at the end of the log is dropped during replay
+     * and that new records are appended directly after the last good one.
+     */
+    @Test
+    void testReplayTruncatesTornTail(@TempDir Path tempDir) throws IOException {
+        Path logFile = tempDir.resolve("booking.log");
+        try (BookingLog log = new BookingLog(logFile, objectMapper)) {
+            log.append(new Booking(1, "John Doe", "john@example.com", "Manicure", LocalDate.of(2024, 11, 15)));
+            log.append(new Booking(2, "Jane Smith", "jane@example.com", "Pedicure", LocalDate.of(2024, 11, 20)));
+        }
+
+        // Simulate a crash in the middle of writing the second record
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        List<Booking> replayed = new ArrayList<>();
+        try (BookingLog log = new BookingLog(logFile, objectMapper)) {
+            assertEquals(1, log.replay(0, replayed::add), "Only the complete record should be replayed");
+            log.append(new Booking(3, "Alice Wonderland", "alice@example.com", "Massage", LocalDate.of(2024, 12, 1)));
+        }
+
+        replayed.clear();
+        try (BookingLog log = new BookingLog(logFile, objectMapper)) {
+            log.replay(0, replayed::add);
+        }
+        assertEquals(2, replayed.size(), "The record appended after recovery should be readable");
+        assertEquals(3, replayed.get(1).getBookingNumber());
+    }
+
+    /**
+     * Tests that records cut off after a failed batch are gone on replay and that
+     * later records follow the last kept one.
+     */
+    @Test
+    void testTruncateCutsOffLaterRecords(@TempDir Path tempDir) throws IOException {
+        Path logFile = tempDir.resolve("booking.log");
+        try (BookingLog log = new BookingLog(logFile, objectMapper)) {
+            log.append(new Booking(1, "John Doe", "john@example.com", "Manicure", LocalDate.of(2024, 11, 15)));
+            long end = log.getEnd();
+            log.append(List.of(new Booking(2, "Jane Smith", "jane@example.com", "Pedicure", LocalDate.of(2024, 11, 20)),
+                    new Booking(3, "Alice Wonderland", "alice@example.com", "Massage", LocalDate.of(2024, 12, 1))), true);
+            log.truncate(end, 1);
+            assertEquals(1, log.getRecordCount());
+            log.append(new Booking(4, "Ola Nordmann", "ola@example.com", "Massage", LocalDate.of(2024, 12, 2)));
+        }
+
+        List<Booking> replayed = new ArrayList<>();
+        try (BookingLog log = new BookingLog(logFile, objectMapper)) {
+            log.replay(0, replayed::add);
+        }
+        assertEquals(List.of(1, 4), replayed.stream().map(Booking::getBookingNumber).toList());
+    }
+}
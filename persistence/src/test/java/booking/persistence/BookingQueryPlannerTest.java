@@ -0,0 +1,51 @@
+package booking.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import booking.core.Booking;
+
+/**
+ * Unit tests for the {@link BookingQueryPlanner} class.
+ */
+class BookingQueryPlannerTest {
+
+    /**
+     * Tests that a query for a range of late dates reads the index instead of
+     * scanning, even when its filters look unselective on their own.
+     * <p>
+     * Half of the bookings are massages and the second half of them are dated
+     * 2025. Treated as independent, the filters would let a scan find ten
+     * matches within the first forty bookings, but every match comes after the
+     * first 5,000.
+     * </p>
+     */
+    @Test
+    void testLateDateRangeIsNotScanned() {
+        EmailIndex emails = new EmailIndex();
+        TreatmentIndex treatments = new TreatmentIndex();
+        DateIndex dates = new DateIndex();
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Booking booking = new Booking(i + 1, "Customer", "customer" + i + "@example.com",
+                    i % 2 == 0 ? "Massage" : "Facial", LocalDate.of(i < 5_000 ? 2024 : 2025, 1, 1).plusDays(i % 300));
+            bookings.add(booking);
+            emails.add(booking.getEmail(), i);
+            treatments.add(booking.getTreatment(), i);
+            dates.add(booking.getDate(), i);
+        }
+        BookingQuery query = new BookingQuery(null, "Massage", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), 10);
+
+        BookingQueryPlanner.Plan plan = BookingQueryPlanner.plan(query, emails, treatments, dates, bookings.size());
+
+        assertFalse(plan.scan(), "A date range should be read from the index");
+        List<Booking> expected = bookings.stream().filter(query::matches).limit(10).toList();
+        assertEquals(expected, BookingQueryPlanner.select(bookings, plan, query));
+        assertEquals(5_001, expected.get(0).getBookingNumber(), "The first match is a late booking");
+    }
+}
@@ -0,0 +1,64 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import booking.core.Booking;
+
+/**
+ * Compares the {@link BookingRepository} engines side by side.
+ * <p>
+ * Not a unit test: run it manually with {@code main}, for example
+ * {@code java -cp <test classpath> booking.persistence.BookingRepositoryBenchmark 2000}.
+ * Each engine adds the given number of bookings one at a time, then answers an
+ * email lookup and a one-month date range for every booking added.
+ * </p>
+ */
+public final class BookingRepositoryBenchmark {
+
+    private BookingRepositoryBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional number of bookings per engine.
+     * @throws Exception If the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int bookings = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        List<String> engines = List.of("memory", "striped", "segmented", "jdbc", "log", "json");
+        run("memory", bookings, false); // Warm-up
+        for (String engine : engines) {
+            run(engine, bookings, true);
+        }
+    }
+
+    private static void run(String engine, int bookings, boolean report) throws IOException {
+        Path dir = Files.createTempDirectory("booking-bench");
+        try (BookingRepository repository = BookingRepository.open(engine, dir.resolve("booking.json"))) {
+            LocalDate firstDay = LocalDate.of(2025, 1, 1);
+            long start = System.nanoTime();
+            for (int i = 0; i < bookings; i++) {
+                repository.addBooking(new Booking(0, "Bench Mark", "bench" + (i % 100) + "@example.com",
+                        "Manicure", firstDay.plusDays(i % 365)));
+            }
+            long written = System.nanoTime();
+            long found = 0;
+            for (int i = 0; i < bookings; i++) {
+                LocalDate day = firstDay.plusDays(i % 365);
+                found += repository.getBookingsByEmail("bench" + (i % 100) + "@example.com").size();
+                found += repository.getBookingsBetween(day, day.plusDays(30)).size();
+            }
+            long read = System.nanoTime();
+            if (!report) {
+                return;
+            }
+            System.out.printf("%-7s bookings=%d  writes %,.0f/sec  reads %,.0f/sec  (%d results)%n", engine,
+                    bookings, bookings / ((written - start) / 1e9), bookings / ((read - written) / 1e9), found);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package booking.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import booking.core.Booking;
+
+/**
+ * Unit tests for selecting {@link BookingRepository} engines.
+ */
+class BookingRepositoryTest {
+
+    /**
+     * Tests that every built-in engine can be opened by name and stores, numbers
+     * and indexes bookings the same way.
+     */
+    @Test
+    void testBuiltInEnginesBehaveAlike(@TempDir Path tempDir) throws IOException {
+        for (String engine : new String[] {"memory", "json", "log", "segmented", "striped", "jdbc"}) {
+            try (BookingRepository repository = BookingRepository.open(engine, tempDir.resolve(engine + ".json"))) {
+                repository.addBooking(new Booking(0, "John Doe", "john@example.com", "Massage", LocalDate.of(2025, 3, 10)));
+                Booking added = repository.addBooking(
+                        new Booking(0, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 3, 12)));
+
+                assertEquals(2, added.getBookingNumber(), engine + " should assign booking numbers");
+                assertEquals(2, repository.loadBookings().size(), engine + " should store both bookings");
+                assertEquals(1, repository.getBookingsByEmail("JANE@example.com").size(), engine + " email lookup");
+                assertEquals(2, repository.getBookingsBetween(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31))
+                        .size(), engine + " date range lookup");
+            }
+        }
+    }
+
+    /**
+     * Tests that every built-in engine adds a batch of bookings with consecutive
+     * numbers in the given order.
+     */
+    @Test
+    void testBuiltInEnginesAddBatches(@TempDir Path tempDir) throws IOException {
+        for (String engine : new String[] {"memory", "json", "log", "segmented", "striped", "jdbc"}) {
+            try (BookingRepository repository = BookingRepository.open(engine, tempDir.resolve(engine + ".json"))) {
+                repository.addBooking(new Booking(0, "John Doe", "john@example.com", "Massage", LocalDate.of(2025, 3, 10)));
+                List<Booking> added = repository.addBookings(List.of(
+                        new Booking(0, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 3, 12)),
+                        new Booking(0, "Ola Nordmann", "ola@example.com", "Pedicure", LocalDate.of(2025, 3, 11))));
+
+                assertEquals(List.of(2, 3), added.stream().map(Booking::getBookingNumber).toList(),
+                        engine + " should number the batch in order");
+                assertEquals("Ola Nordmann", added.get(1).getName());
+                assertEquals(3, repository.loadBookings().size(), engine + " should store the batch");
+                assertEquals(1, repository.getBookingsByEmail("ola@example.com").size(), engine + " email lookup");
+                assertTrue(repository.addBookings(List.of()).isEmpty(), engine + " should accept an empty batch");
+            }
+        }
+    }
+
+    /**
+     * Tests that every built-in engine pages through its bookings in
+     * booking-number order.
+     */
+    @Test
+    void testBuiltInEnginesPageByBookingNumber(@TempDir Path tempDir) throws IOException {
+        for (String engine : new String[] {"memory", "json", "log", "segmented", "striped", "jdbc"}) {
+            try (BookingRepository repository = BookingRepository.open(engine, tempDir.resolve(engine + ".json"))) {
+                for (int day = 5; day > 0; day--) { // Spread over segments and stripes
+                    repository.addBooking(new Booking(0, "John Doe", "john@example.com", "Massage",
+                            LocalDate.of(2025, day, day)));
+                }
+
+                List<Integer> numbers = new ArrayList<>();
+                List<Booking> page = repository.getBookingsAfter(BookingRepository.FIRST_PAGE, 2);
+                while (!page.isEmpty()) {
+                    page.forEach(booking -> numbers.add(booking.getBookingNumber()));
+                    page = repository.getBookingsAfter(page.get(page.size() - 1).getBookingNumber(), 2);
+                }
+                assertEquals(List.of(1, 2, 3, 4, 5), numbers, engine + " should page in number order");
+            }
+        }
+    }
+
+    /**
+     * Tests that every built-in engine answers a search with combined filters the
+     * same way, in insertion order and up to the limit.
+     */
+    @Test
+    void testBuiltInEnginesSearchWithCombinedFilters(@TempDir Path tempDir) throws IOException {
+        for (String engine : new String[] {"memory", "json", "log", "segmented", "striped", "jdbc"}) {
+            try (BookingRepository repository = BookingRepository.open(engine, tempDir.resolve(engine + ".json"))) {
+                for (int day = 1; day <= 6; day++) {
+                    repository.addBooking(new Booking(0, "John Doe", "john@example.com",
+                            day % 2 == 0 ? "Massage" : "Facial", LocalDate.of(2025, 3, day)));
+                    repository.addBooking(new Booking(0, "Jane Doe", "jane@example.com", "Massage",
+                            LocalDate.of(2025, 3, day)));
+                }
+
+                List<Booking> found = repository.searchBookings(new BookingQuery("JOHN@example.com", "Massage",
+                        LocalDate.of(2025, 3, 2), LocalDate.of(2025, 3, 5), 10));
+                assertEquals(List.of(3, 7), found.stream().map(Booking::getBookingNumber).toList(),
+                        engine + " should apply every filter");
+                assertEquals(List.of(2, 3), repository.searchBookings(new BookingQuery(null, "Massage", null, null, 2))
+                        .stream().map(Booking::getBookingNumber).toList(), engine + " should stop at the limit");
+                assertEquals(4, repository.searchBookings(new BookingQuery(null, null, LocalDate.of(2025, 3, 5), null,
+                        10)).size(), engine + " open date range");
+                assertTrue(repository.searchBookings(new BookingQuery("nobody@example.com", null, null, null, 10))
+                        .isEmpty(), engine + " unknown email");
+            }
+        }
+    }
+
+    /**
+     * Tests that asking for an engine that is not installed fails.
+     */
+    @Test
+    void testUnknownEngine(@TempDir Path tempDir) {
+        assertThrows(IllegalArgumentException.class,
+                () -> BookingRepository.open("cassandra", tempDir.resolve("booking.json")));
+    }
+}
@@ -4,8 +4,23 @@ import booking.core.Booking;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -67,4 +82,334 @@ class BookingServiceTest {
         assertEquals("Massage", fakeBooking.getTreatment(), "Treatment should be 'Massage'");
         assertEquals(LocalDate.now(), fakeBooking.getDate(), "Date should be today's date");
     }
+
+    /**
+     * Tests that bookings added in append-only log mode are replayed on restart
+     * without the snapshot file being rewritten.
+     */
+    @Test
+    void testAppendOnlyLogReplaysOnRestart(@TempDir Path tempDir) throws IOException {
+        Path dataFile = tempDir.resolve("booking.json");
+        try (BookingService logService = new BookingService(dataFile, true)) {
+            logService.addBooking(new Booking(1, "John Doe", "john.doe@example.com", "Massage", LocalDate.now()));
+            logService.addBooking(new Booking(2, "Jane Doe", "jane.doe@example.com", "Manicure", LocalDate.now()));
+        }
+
+        assertFalse(Files.exists(dataFile), "Snapshot should not be rewritten for each booking");
+        assertTrue(Files.size(tempDir.resolve("booking.log")) > 0, "Bookings should be appended to the log");
+
+        try (BookingService reopened = new BookingService(dataFile, true)) {
+            List<Booking> bookings = reopened.getAllBookings();
+            assertEquals(2, bookings.size(), "Both bookings should be replayed from the log");
+            assertEquals("jane.doe@example.com", bookings.get(1).getEmail(), "Log order should be preserved");
+        }
+    }
+
+    /**
+     * Tests that the streaming loader hands every record to the callback and only
+     * stores the bookings the callback keeps.
+     */
+    @Test
+    void testStreamBookingsFromFileWithCallback(@TempDir Path tempDir) throws IOException {
+        Path dataFile = tempDir.resolve("booking.json");
+        Files.writeString(dataFile, """
+                [ {
+                  "bookingNumber" : 1,
+                  "name" : "Helene Selvig",
+                  "email" : "helene@mail.com",
+                  "treatment" : "Manicure",
+                  "date" : "2024-11-22"
+                }, {
+                  "bookingNumber" : 2,
+                  "name" : "John Doe",
+                  "email" : "john.doe@example.com",
+                  "treatment" : "Pedicure",
+                  "date" : "2025-10-23",
+                  "unknownField" : { "ignored" : [ 1, 2 ] }
+                } ]""");
+
+        try (BookingService service = new BookingService(dataFile, false)) {
+            assertEquals(2, service.getAllBookings().size(), "Both bookings should be loaded by default");
+
+            int stored = service.streamBookingsFromFile(
+                    booking -> booking.getTreatment().equals("Pedicure") ? booking : null);
+
+            assertEquals(1, stored, "Only the booking kept by the callback should be stored");
+            assertEquals(LocalDate.of(2025, 10, 23), service.getAllBookings().get(0).getDate());
+        }
+    }
+
+    /**
+     * Tests that email lookups are case-insensitive, keep insertion order and
+     * see bookings as soon as they are added.
+     */
+    @Test
+    void testGetBookingsByEmailUsesIndex(@TempDir Path tempDir) throws IOException {
+        try (BookingService service = new BookingService(tempDir.resolve("booking.json"), false)) {
+            service.addBooking(new Booking(1, "John Doe", "John.Doe@example.com", "Massage", LocalDate.now()));
+            service.addBooking(new Booking(2, "Jane Doe", "jane.doe@example.com", "Manicure", LocalDate.now()));
+            service.addBooking(new Booking(3, "John Doe", "john.doe@EXAMPLE.com", "Pedicure", LocalDate.now()));
+
+            List<Booking> johns = service.getBookingsByEmail("JOHN.DOE@example.com");
+            assertEquals(2, johns.size(), "Lookups should ignore case");
+            assertEquals(1, johns.get(0).getBookingNumber(), "Bookings should be in insertion order");
+            assertEquals(3, johns.get(1).getBookingNumber(), "Bookings should be in insertion order");
+            assertEquals(johns.size(), service.getBookingsByEmail().size(),
+                    "The last booking's email should resolve through the same index");
+            assertTrue(service.getBookingsByEmail("nobody@example.com").isEmpty());
+        }
+    }
+
+    /**
+     * Tests that date lookups return the bookings of a single day or of an
+     * inclusive date range, ordered by date.
+     */
+    @Test
+    void testGetBookingsByDate(@TempDir Path tempDir) throws IOException {
+        try (BookingService service = new BookingService(tempDir.resolve("booking.json"), false)) {
+            service.addBooking(new Booking(1, "John Doe", "john@example.com", "Massage", LocalDate.of(2025, 3, 10)));
+            service.addBooking(new Booking(2, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 3, 1)));
+            service.addBooking(new Booking(3, "Ola Nordmann", "ola@example.com", "Pedicure", LocalDate.of(2025, 3, 10)));
+            service.addBooking(new Booking(4, "Kari Nordmann", "kari@example.com", "Spa Facial", LocalDate.of(2025, 4, 1)));
+
+            assertEquals(2, service.getBookingsOn(LocalDate.of(2025, 3, 10)).size());
+
+            List<Booking> march = service.getBookingsBetween(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+            assertEquals(3, march.size(), "Both ends of the range should be inclusive");
+            assertEquals(2, march.get(0).getBookingNumber(), "Results should be ordered by date");
+            assertTrue(service.getBookingsBetween(LocalDate.of(2025, 4, 2), LocalDate.of(2025, 4, 1)).isEmpty());
+        }
+    }
+
+    /**
+     * Tests that repeated loads are served from memory and that a change made to
+     * the file outside the service is picked up by the next load.
+     */
+    @Test
+    void testLoadSkipsReparseUnlessFileChanged(@TempDir Path tempDir) throws IOException {
+        Path dataFile = tempDir.resolve("booking.json");
+        try (BookingService service = new BookingService(dataFile, false)) {
+            service.addBooking(new Booking(1, "John Doe", "john@example.com", "Massage", LocalDate.of(2025, 3, 10)));
+            long version = service.getDataVersion();
+
+            assertEquals(1, service.loadBookingsFromFile().size());
+            assertEquals(version, service.getDataVersion(), "An unchanged file should not be parsed again");
+
+            Files.writeString(dataFile, "[ ]"); // Edited by another process
+            assertTrue(service.loadBookingsFromFile().isEmpty(), "An external change should be reloaded");
+            assertTrue(service.getDataVersion() > version, "A reload should bump the data version");
+        }
+    }
+
+    /**
+     * Tests that records appended to the log by another writer are merged into
+     * memory by the directory watcher.
+     */
+    @Test
+    void testWatcherMergesAppendedLogRecords(@TempDir Path tempDir) throws Exception {
+        Path dataFile = tempDir.resolve("booking.json");
+        try (BookingService service = new BookingService(dataFile, true)) {
+            service.startWatching();
+            service.addBooking(new Booking(1, "John Doe", "john@example.com", "Massage", LocalDate.of(2025, 3, 10)));
+
+            // Another process appends to the same log
+            try (BookingLog otherWriter = new BookingLog(tempDir.resolve("booking.log"), new ObjectMapper()
+                    .registerModule(new JavaTimeModule())
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS))) {
+                otherWriter.replay(0, booking -> { });
+                otherWriter.append(new Booking(2, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 3, 11)));
+            }
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (service.getAllBookings().size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, service.getAllBookings().size(), "The appended record should be merged in");
+            assertEquals(1, service.getBookingsByEmail("jane@example.com").size(), "Indexes should be updated");
+        }
+    }
+
+    /**
+     * Tests that a follower leaves a partly written log record alone, reads it
+     * once the writer has finished it, and cannot write itself.
+     */
+    @Test
+    void testFollowerDoesNotTruncatePartialRecord(@TempDir Path tempDir) throws Exception {
+        Path dataFile = tempDir.resolve("booking.json");
+        Path logFile = tempDir.resolve("booking.log");
+        try (BookingService writer = new BookingService(dataFile, true)) {
+            writer.addBooking(new Booking(0, "John Doe", "john@example.com", "Massage", LocalDate.of(2025, 3, 10)));
+            writer.addBooking(new Booking(0, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 3, 11)));
+        }
+        byte[] complete = Files.readAllBytes(logFile);
+        Files.write(logFile, Arrays.copyOf(complete, complete.length - 5)); // The writer is mid-record
+
+        try (BookingService follower = BookingService.follow(dataFile, true)) {
+            assertEquals(1, follower.getAllBookings().size(), "Only the complete record should be read");
+            assertEquals(complete.length - 5, Files.size(logFile), "A follower must not truncate the log");
+            assertThrows(UnsupportedOperationException.class, () -> follower.addBooking(
+                    new Booking(0, "Max Doe", "max@example.com", "Massage", LocalDate.of(2025, 3, 12))));
+
+            Files.write(logFile, Arrays.copyOfRange(complete, complete.length - 5, complete.length),
+                    StandardOpenOption.APPEND); // The writer finishes the record
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (follower.getAllBookings().size() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(2, follower.getAllBookings().size(), "The finished record should be merged in");
+            assertArrayEquals(complete, Files.readAllBytes(logFile), "A follower must not write the log");
+        }
+    }
+
+    /**
+     * Tests that the service assigns unique booking numbers to concurrent adds and
+     * keeps counting after a restart.
+     */
+    @Test
+    void testAssignsUniqueBookingNumbers(@TempDir Path tempDir) throws Exception {
+        Path dataFile = tempDir.resolve("booking.json");
+        try (BookingService service = new BookingService(dataFile, true, Durability.batched())) {
+            List<CompletableFuture<Booking>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(service.addBookingAsync(
+                        new Booking(0, "John Doe", "john@example.com", "Massage", LocalDate.of(2025, 3, 10))));
+            }
+            Set<Integer> numbers = new HashSet<>();
+            for (CompletableFuture<Booking> future : futures) {
+                numbers.add(future.join().getBookingNumber());
+            }
+            assertEquals(50, numbers.size(), "Every booking should get its own number");
+        }
+
+        try (BookingService reopened = new BookingService(dataFile, true)) {
+            Booking next = reopened.addBooking(
+                    new Booking(7, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 3, 11)));
+            assertEquals(BookingNumberAllocator.DEFAULT_BLOCK_SIZE + 1, next.getBookingNumber(),
+                    "Numbering should continue after the reserved block after a restart");
+        }
+    }
+
+    /**
+     * Tests that a list returned by the service does not change while bookings
+     * are added concurrently, and that later reads see the new bookings.
+     */
+    @Test
+    void testReadersSeeStableVersions(@TempDir Path tempDir) throws Exception {
+        try (BookingService service = new BookingService(tempDir.resolve("booking.json"), true,
+                Durability.batched())) {
+            service.addBooking(new Booking(0, "John Doe", "john@example.com", "Massage", LocalDate.of(2025, 3, 10)));
+            List<Booking> before = service.getAllBookings();
+            long versionBefore = service.getDataVersion();
+
+            List<CompletableFuture<Booking>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(service.addBookingAsync(
+                        new Booking(0, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 3, 11))));
+                List<Booking> during = service.getAllBookings();
+                int size = during.size();
+                for (Booking booking : during) {
+                    assertNotNull(booking, "A published version should only hold complete bookings");
+                }
+                assertEquals(size, during.size(), "A published version should not grow");
+            }
+            futures.forEach(CompletableFuture::join);
+
+            assertEquals(1, before.size(), "An earlier version should keep its bookings");
+            assertThrows(UnsupportedOperationException.class, () -> before.add(before.get(0)));
+            assertEquals(201, service.getAllBookings().size(), "New reads should see every booking");
+            assertTrue(service.getDataVersion() > versionBefore, "Each commit should publish a new version");
+        }
+    }
+
+    /**
+     * Tests that paging follows booking numbers even when the file is not sorted
+     * by number.
+     */
+    @Test
+    void testPagesFollowBookingNumbers(@TempDir Path tempDir) throws IOException {
+        Path dataFile = tempDir.resolve("booking.json");
+        BookingSnapshotConverter.writeJson(List.of(
+                new Booking(4, "Dora Doe", "dora@example.com", "Massage", LocalDate.of(2025, 1, 4)),
+                new Booking(1, "Anna Doe", "anna@example.com", "Massage", LocalDate.of(2025, 1, 1)),
+                new Booking(3, "Cara Doe", "cara@example.com", "Massage", LocalDate.of(2025, 1, 3))), dataFile);
+        try (BookingService service = new BookingService(dataFile, true)) {
+            service.addBooking(new Booking(0, "Emma Doe", "emma@example.com", "Facial", LocalDate.of(2025, 1, 5)));
+
+            assertEquals(List.of(1, 3), service.getBookingsAfter(0, 2).stream().map(Booking::getBookingNumber).toList());
+            assertEquals(List.of(4, 5), service.getBookingsAfter(3, 2).stream().map(Booking::getBookingNumber).toList());
+            assertTrue(service.getBookingsAfter(5, 2).isEmpty(), "No page should follow the last booking");
+            assertThrows(IllegalArgumentException.class, () -> service.getBookingsAfter(0, 0));
+        }
+    }
+
+    /**
+     * Tests that paging lists bookings numbered 0 and never ends a page between
+     * bookings that share a number, as older files may hold.
+     */
+    @Test
+    void testPagesKeepLegacyBookingNumbers(@TempDir Path tempDir) throws IOException {
+        Path dataFile = tempDir.resolve("booking.json");
+        BookingSnapshotConverter.writeJson(List.of(
+                new Booking(0, "Anna Doe", "anna@example.com", "Massage", LocalDate.of(2025, 1, 1)),
+                new Booking(2, "Bea Doe", "bea@example.com", "Massage", LocalDate.of(2025, 1, 2)),
+                new Booking(2, "Cara Doe", "cara@example.com", "Massage", LocalDate.of(2025, 1, 3)),
+                new Booking(2, "Dora Doe", "dora@example.com", "Massage", LocalDate.of(2025, 1, 4)),
+                new Booking(3, "Emma Doe", "emma@example.com", "Massage", LocalDate.of(2025, 1, 5))), dataFile);
+        try (BookingService service = new BookingService(dataFile, false)) {
+            List<Booking> first = service.getBookingsAfter(BookingRepository.FIRST_PAGE, 2);
+            assertEquals(List.of("Anna Doe", "Bea Doe", "Cara Doe", "Dora Doe"),
+                    first.stream().map(Booking::getName).toList(), "The page should hold every booking numbered 2");
+            assertEquals(List.of("Emma Doe"), service.getBookingsAfter(2, 2).stream().map(Booking::getName).toList());
+        }
+    }
+
+    /**
+     * Tests that a customer's version only changes with that customer's bookings.
+     */
+    @Test
+    void testEmailVersionFollowsCustomer(@TempDir Path tempDir) throws IOException {
+        try (BookingService service = new BookingService(tempDir.resolve("booking.json"), true)) {
+            assertEquals(0, service.getEmailVersion("anna@example.com"), "A customer without bookings has version 0");
+            service.addBooking(new Booking(0, "Anna Doe", "anna@example.com", "Massage", LocalDate.of(2025, 1, 1)));
+            long anna = service.getEmailVersion("ANNA@example.com");
+
+            service.addBooking(new Booking(0, "Cara Doe", "cara@example.com", "Massage", LocalDate.of(2025, 1, 2)));
+            assertEquals(anna, service.getEmailVersion("anna@example.com"), "Other customers should not change it");
+
+            service.addBooking(new Booking(0, "Anna Doe", "Anna@example.com", "Facial", LocalDate.of(2025, 1, 3)));
+            assertNotEquals(anna, service.getEmailVersion("anna@example.com"), "A new booking should change it");
+        }
+    }
+
+    /**
+     * Tests that a search finds the same bookings whichever filter is the most
+     * selective, including bookings read from the file and ones rolled in later.
+     */
+    @Test
+    void testSearchPlansOnMostSelectiveIndex(@TempDir Path tempDir) throws IOException {
+        Path dataFile = tempDir.resolve("booking.json");
+        List<Booking> file = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            file.add(new Booking(i, "Customer " + i, "customer" + i % 20 + "@example.com",
+                    i % 4 == 0 ? "Facial" : "Massage", LocalDate.of(2025, 1, 1).plusDays(i % 50)));
+        }
+        BookingSnapshotConverter.writeJson(file, dataFile);
+        try (BookingService service = new BookingService(dataFile, true)) {
+            service.addBooking(new Booking(0, "Late Customer", "customer4@example.com", "Facial", LocalDate.of(2025, 1, 5)));
+
+            // The email, the single day and the treatment each drive one of these queries
+            for (BookingQuery query : List.of(
+                    new BookingQuery("customer4@example.com", "Facial", null, null, 100),
+                    new BookingQuery(null, "Facial", LocalDate.of(2025, 1, 5), LocalDate.of(2025, 1, 5), 100),
+                    new BookingQuery("CUSTOMER4@example.com", "Facial", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 2, 1), 100),
+                    new BookingQuery(null, "Facial", LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), 100),
+                    new BookingQuery(null, null, null, null, 100))) {
+                List<Booking> expected = service.getAllBookings().stream().filter(query::matches).limit(100).toList();
+                assertEquals(expected, service.searchBookings(query), query.toString());
+            }
+            assertEquals(201, service.searchBookings(new BookingQuery(null, "Facial", null, null, 100))
+                    .get(50).getBookingNumber(), "The added booking should be indexed");
+        }
+        assertThrows(IllegalArgumentException.class, () -> new BookingQuery(null, null, null, null, 0));
+    }
 }
@@ -0,0 +1,119 @@
+package booking.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import booking.core.Booking;
+
+/**
+ * Unit tests for the {@link BookingStore} implementations.
+ */
+class BookingStoreTest {
+
+    /**
+     * Tests that every layout returns equal bookings by position, including
+     * missing fields, and rolls back with {@code truncate}.
+     */
+    @Test
+    void testLayoutsStoreBookings() {
+        for (StoreLayout layout : StoreLayout.values()) {
+            BookingStore store = layout.newStore();
+            Booking first = new Booking(1, "John Doe", "john@example.com", "Manicure", LocalDate.of(2025, 3, 10));
+            Booking undated = new Booking(2, "Jane Doe", null, "Manicure", null);
+            assertEquals(0, store.add(first), layout + " positions should start at zero");
+            assertEquals(1, store.add(undated), layout + " positions should be dense");
+
+            assertEquals(first, store.get(0), layout + " should return an equal booking");
+            assertEquals(undated, store.get(1), layout + " should keep missing fields");
+            assertEquals(2, store.asList().size(), layout + " view should follow the store");
+
+            store.truncate(1);
+            assertEquals(1, store.size(), layout + " should drop truncated bookings");
+            assertThrows(IndexOutOfBoundsException.class, () -> store.get(1));
+        }
+    }
+
+    /**
+     * Tests that the dictionary layout shares one string instance between
+     * bookings with the same treatment or customer.
+     */
+    @Test
+    void testDictionarySharesStrings() {
+        BookingStore store = StoreLayout.DICTIONARY.newStore();
+        store.add(new Booking(1, "John Doe", "john@example.com", new String("Manicure"), LocalDate.of(2025, 3, 10)));
+        store.add(new Booking(2, "John Doe", new String("john@example.com"), new String("Manicure"),
+                LocalDate.of(2025, 3, 11)));
+
+        assertSame(store.get(0).getTreatment(), store.get(1).getTreatment(), "Treatments should be shared");
+        assertSame(store.get(0).getEmail(), store.get(1).getEmail(), "Emails should be shared");
+    }
+
+    /**
+     * Tests that every layout counts bookings per treatment the same way.
+     */
+    @Test
+    void testCountByTreatment() {
+        for (StoreLayout layout : StoreLayout.values()) {
+            BookingStore store = layout.newStore();
+            store.add(new Booking(1, "John Doe", "john@example.com", "Manicure", LocalDate.of(2025, 3, 10)));
+            store.add(new Booking(2, "Jane Doe", "jane@example.com", "Pedicure", LocalDate.of(2025, 3, 11)));
+            store.add(new Booking(3, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 3, 12)));
+            store.add(new Booking(4, "Ann Doe", "ann@example.com", null, LocalDate.of(2025, 3, 12)));
+
+            assertEquals(Map.of("Manicure", 2, "Pedicure", 1), store.countByTreatment(), layout + " counts");
+            assertEquals(List.of("Manicure", "Pedicure"), List.copyOf(store.countByTreatment().keySet()),
+                    layout + " should keep the order of first appearance");
+        }
+    }
+
+    /**
+     * Tests that the off-heap layout reuses the text of truncated bookings for
+     * the bookings added after them.
+     */
+    @Test
+    void testOffHeapAddAfterTruncate() {
+        BookingStore store = StoreLayout.OFF_HEAP.newStore();
+        store.add(new Booking(1, "John Doe", "john@example.com", "Manicure", LocalDate.of(2025, 3, 10)));
+        store.add(new Booking(2, "Jane Doe", "jane@example.com", "Pedicure", LocalDate.of(2025, 3, 11)));
+        store.truncate(1);
+        Booking replacement = new Booking(3, "Åsa Ek", "asa@example.com", "Spa Facial", LocalDate.of(2025, 3, 12));
+        store.add(replacement);
+
+        assertEquals(new Booking(1, "John Doe", "john@example.com", "Manicure", LocalDate.of(2025, 3, 10)),
+                store.get(0), "Earlier bookings should be untouched");
+        assertEquals(replacement, store.get(1), "The new booking should replace the truncated one");
+    }
+
+    /**
+     * Tests that a snapshot of every layout keeps its contents while the store
+     * grows past its chunk and array sizes, is rolled back and is cleared.
+     */
+    @Test
+    void testSnapshotsAreStable() {
+        for (StoreLayout layout : StoreLayout.values()) {
+            BookingStore store = layout.newStore();
+            Booking first = new Booking(1, "John Doe", "john@example.com", "Manicure", LocalDate.of(2025, 3, 10));
+            store.add(first);
+            BookingStore snapshot = store.snapshot();
+
+            for (int i = 2; i < 5000; i++) {
+                store.add(new Booking(i, "Customer " + i, "customer" + i + "@example.com", "Treatment " + i,
+                        LocalDate.of(2025, 3, 10).plusDays(i)));
+            }
+            store.truncate(1);
+            store.add(new Booking(9, "Jane Doe", "jane@example.com", "Pedicure", null));
+            store.clear();
+
+            assertEquals(1, snapshot.size(), layout + " snapshot should keep its size");
+            assertEquals(first, snapshot.get(0), layout + " snapshot should keep its bookings");
+            assertEquals(Map.of("Manicure", 1), snapshot.countByTreatment(), layout + " snapshot counts");
+            assertThrows(UnsupportedOperationException.class, () -> snapshot.add(first),
+                    layout + " snapshot should be read-only");
+        }
+    }
+}
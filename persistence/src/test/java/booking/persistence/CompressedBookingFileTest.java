@@ -0,0 +1,102 @@
+package booking.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import booking.core.Booking;
+
+/**
+ * Unit tests for the {@link CompressedBookingFile} format and the built-in {@link BlockCodec}s.
+ */
+class CompressedBookingFileTest {
+
+    private static ObjectMapper objectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return objectMapper;
+    }
+
+    private static List<Booking> bookings(int count) {
+        List<Booking> bookings = new ArrayList<>();
+        bookings.add(new Booking(1, "Jåne Ødegård", null, "Spa Facial", null));
+        for (int i = 2; i <= count; i++) {
+            bookings.add(new Booking(i, "Customer " + i, "customer" + i + "@example.com", "Manicure",
+                    LocalDate.of(2025, 1, 1).plusDays(i % 365)));
+        }
+        return bookings;
+    }
+
+    /**
+     * Tests that every built-in codec round-trips bookings spread over several
+     * blocks, including missing fields, and that each block can be read on its own.
+     */
+    @Test
+    void testCodecsRoundTripInBlocks(@TempDir Path tempDir) throws IOException {
+        List<Booking> bookings = bookings(5000);
+        for (BlockCodec codec : List.of(BlockCodec.NONE, BlockCodec.DEFLATE, BlockCodec.GZIP)) {
+            Path file = tempDir.resolve(codec.getName() + ".bkz");
+            CompressedBookingFile.write(file, bookings, codec, objectMapper());
+
+            List<Booking> decoded = new ArrayList<>();
+            assertEquals(5000, CompressedBookingFile.read(file, objectMapper(), decoded::add), codec.getName());
+            assertEquals(bookings, decoded, codec.getName() + " should round-trip every booking");
+            assertSame(codec, CompressedBookingFile.codecOf(file), "The codec should be named in the header");
+
+            List<CompressedBookingFile.Block> blocks = CompressedBookingFile.blocks(file);
+            assertTrue(blocks.size() > 1, "The bookings should span several blocks");
+            CompressedBookingFile.Block last = blocks.get(blocks.size() - 1);
+            List<Booking> tail = new ArrayList<>();
+            CompressedBookingFile.readBlock(file, last, objectMapper(), tail::add);
+            assertEquals(last.recordCount(), tail.size(), "A block should be readable on its own");
+            assertEquals(bookings.get(4999), tail.get(tail.size() - 1), "The last block should end the file");
+        }
+    }
+
+    /**
+     * Tests that a corrupted block is detected instead of yielding wrong bookings.
+     */
+    @Test
+    void testCorruptBlockIsDetected(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("booking.bkz");
+        CompressedBookingFile.write(file, bookings(100), BlockCodec.NONE, objectMapper());
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 10);
+            raf.write('X');
+        }
+        assertThrows(IOException.class, () -> CompressedBookingFile.read(file, objectMapper(), booking -> { }));
+    }
+
+    /**
+     * Tests that a service with a {@code .bkz} data file writes and reloads it,
+     * keeping the codec chosen by the converter.
+     */
+    @Test
+    void testServiceUsesCompressedFile(@TempDir Path tempDir) throws IOException {
+        Path dataFile = tempDir.resolve("booking.bkz");
+        BookingSnapshotConverter.writeCompressed(bookings(3), dataFile, BlockCodec.GZIP);
+        try (BookingService service = new BookingService(dataFile, false)) {
+            assertEquals(3, service.getAllBookings().size(), "The converted file should be loaded");
+            service.addBooking(new Booking(0, "John Doe", "john@example.com", "Massage", LocalDate.of(2025, 3, 10)));
+        }
+
+        assertSame(BlockCodec.GZIP, CompressedBookingFile.codecOf(dataFile), "Rewrites should keep the codec");
+        try (BookingService reopened = new BookingService(dataFile, false)) {
+            assertEquals(4, reopened.getAllBookings().size(), "The new booking should be persisted");
+            assertEquals(1, reopened.getBookingsByEmail("john@example.com").size(), "Indexes should be rebuilt");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package booking.persistence;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import booking.core.Booking;
+
+/**
+ * Compares file size and read and write throughput of pretty-printed JSON with
+ * compressed NDJSON for each built-in {@link BlockCodec}.
+ * <p>
+ * Not a unit test: run it manually with {@code main}, for example
+ * {@code java -cp <test classpath> booking.persistence.CompressionBenchmark 500000}.
+ * Throughput is given in bookings per second and in megabytes of compact JSON
+ * per second, best of three rounds.
+ * </p>
+ */
+public final class CompressionBenchmark {
+
+    private static final String[] TREATMENTS = {
+        "Full body massage", "Spa Facial", "Manicure", "Pedicure", "Hot stone massage"
+    };
+
+    private CompressionBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional number of bookings.
+     * @throws Exception If the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        List<Booking> bookings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            bookings.add(new Booking(i + 1, "Customer " + (i % 5000), "customer" + (i % 5000) + "@example.com",
+                    TREATMENTS[i % TREATMENTS.length], LocalDate.of(2024, 1, 1).plusDays(i % 730)));
+        }
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        Path dir = Files.createTempDirectory("booking-bench");
+        Path compact = dir.resolve("none.bkz");
+        CompressedBookingFile.write(compact, bookings, BlockCodec.NONE, objectMapper);
+        double rawMegabytes = Files.size(compact) / 1e6;
+
+        Path json = dir.resolve("booking.json");
+        long jsonWrite = Long.MAX_VALUE;
+        long jsonRead = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            BookingSnapshotConverter.writeJson(bookings, json);
+            long middle = System.nanoTime();
+            BookingSnapshotConverter.readJson(json);
+            jsonWrite = Math.min(jsonWrite, middle - start);
+            jsonRead = Math.min(jsonRead, System.nanoTime() - middle);
+        }
+        report("json", Files.size(json), count, rawMegabytes, jsonWrite, jsonRead);
+
+        for (BlockCodec codec : List.of(BlockCodec.NONE, BlockCodec.DEFLATE, BlockCodec.GZIP)) {
+            Path file = dir.resolve(codec.getName() + ".bkz");
+            long write = Long.MAX_VALUE;
+            long read = Long.MAX_VALUE;
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                CompressedBookingFile.write(file, bookings, codec, objectMapper);
+                long middle = System.nanoTime();
+                CompressedBookingFile.read(file, objectMapper, booking -> { });
+                write = Math.min(write, middle - start);
+                read = Math.min(read, System.nanoTime() - middle);
+            }
+            report("bkz/" + codec.getName(), Files.size(file), count, rawMegabytes, write, read);
+        }
+    }
+
+    private static void report(String format, long bytes, int count, double rawMegabytes, long write, long read) {
+        System.out.printf("%-12s %,12d bytes  write %,10.0f bookings/s %,7.1f MB/s  read %,10.0f bookings/s %,7.1f MB/s%n",
+                format, bytes, count / (write / 1e9), rawMegabytes / (write / 1e9),
+                count / (read / 1e9), rawMegabytes / (read / 1e9));
+    }
+}
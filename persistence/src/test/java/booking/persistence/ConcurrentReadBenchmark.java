@@ -0,0 +1,95 @@
+package booking.persistence;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import booking.core.Booking;
+
+/**
+ * Measures read throughput of {@link BookingService#getAllBookings()} for a
+ * growing number of reader threads while one writer keeps adding bookings.
+ * <p>
+ * Not a unit test: run it manually with {@code main}, for example
+ * {@code java -cp <test classpath> booking.persistence.ConcurrentReadBenchmark 200000}.
+ * Each read takes the current version and reads its size and one random booking,
+ * as a paging request would. Throughput only scales up to the number of cores.
+ * </p>
+ */
+public final class ConcurrentReadBenchmark {
+
+    private static final long MEASURE_NANOS = 2_000_000_000L;
+
+    private ConcurrentReadBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional number of bookings to start with.
+     * @throws Exception If the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        List<Booking> initial = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            initial.add(new Booking(i + 1, "Customer " + (i % 5000), "customer" + (i % 5000) + "@example.com",
+                    "Manicure", LocalDate.of(2024, 1, 1).plusDays(i % 730)));
+        }
+        Path dir = Files.createTempDirectory("booking-bench");
+        Path dataFile = dir.resolve("booking.json");
+        BookingSnapshotConverter.writeJson(initial, dataFile);
+
+        int maxThreads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        for (StoreLayout layout : List.of(StoreLayout.OBJECTS, StoreLayout.DICTIONARY)) {
+            try (BookingService service = new BookingService(dataFile, true, Durability.none(), layout)) {
+                for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                    double reads = measure(service, threads);
+                    System.out.printf("%-10s %2d readers  %,14.0f reads/s  %,12.0f reads/s per reader  (%,d bookings)%n",
+                            layout, threads, reads, reads / threads, service.getAllBookings().size());
+                }
+            }
+        }
+    }
+
+    private static double measure(BookingService service, int threads) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder reads = new LongAdder();
+        List<Thread> readers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            readers.add(Thread.ofPlatform().start(() -> {
+                long done = 0;
+                long checksum = 0;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    List<Booking> bookings = service.getAllBookings();
+                    checksum += bookings.get(random.nextInt(bookings.size())).getBookingNumber();
+                    done++;
+                }
+                reads.add(done);
+                if (checksum == 42) {
+                    System.out.print(""); // Keeps the reads from being optimized away
+                }
+            }));
+        }
+        Thread writer = Thread.ofPlatform().start(() -> {
+            while (running.get()) {
+                service.addBookingAsync(new Booking(0, "Writer", "writer@example.com", "Pedicure",
+                        LocalDate.of(2025, 1, 1))).join();
+            }
+        });
+        long start = System.nanoTime();
+        Thread.sleep(MEASURE_NANOS / 1_000_000);
+        running.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        writer.join();
+        return reads.sum() / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -0,0 +1,74 @@
+package booking.persistence;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import booking.core.Booking;
+
+/**
+ * Measures booking write throughput for each {@link Durability} level.
+ * <p>
+ * Not a unit test: run it manually with {@code main} to compare the cost of
+ * syncing every write against group-committed batches, for example
+ * {@code java -cp <test classpath> booking.persistence.GroupCommitBenchmark 8 4000}.
+ * </p>
+ */
+public final class GroupCommitBenchmark {
+
+    private GroupCommitBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional thread count and number of bookings per level.
+     * @throws Exception If the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int bookings = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        List<Durability> levels = List.of(Durability.none(), Durability.batched(), Durability.always());
+        run(Durability.none(), threads, bookings, false); // Warm-up
+        for (Durability durability : levels) {
+            run(durability, threads, bookings, true);
+        }
+    }
+
+    private static void run(Durability durability, int threads, int bookings, boolean report) throws IOException {
+        Path dir = Files.createTempDirectory("booking-bench");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (BookingService service = new BookingService(dir.resolve("booking.json"), true, durability)) {
+            long start = System.nanoTime();
+            List<CompletableFuture<Void>> clients = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int client = t;
+                clients.add(CompletableFuture.runAsync(() -> {
+                    // Each client keeps its writes in flight and waits for all of them at the end
+                    List<CompletableFuture<Booking>> pending = new ArrayList<>();
+                    for (int i = client; i < bookings; i += threads) {
+                        pending.add(service.addBookingAsync(new Booking(i + 1, "Bench Mark",
+                                "bench" + (i % 100) + "@example.com", "Manicure",
+                                LocalDate.of(2025, 1, 1).plusDays(i % 365))));
+                    }
+                    CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+                }, executor));
+            }
+            CompletableFuture.allOf(clients.toArray(new CompletableFuture<?>[0])).join();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (!report) {
+                return;
+            }
+            System.out.printf("%-8s threads=%d bookings=%d  %,.0f bookings/sec%n",
+                    durability.level(), threads, bookings, bookings / seconds);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package booking.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import booking.core.Booking;
+
+/**
+ * Unit tests for the {@link GroupCommitWriter} class.
+ */
+class GroupCommitWriterTest {
+
+    /**
+     * Tests that concurrent submissions are committed in fewer, larger batches
+     * and that every caller's future completes once its batch is written.
+     */
+    @Test
+    void testConcurrentSubmissionsAreBatched() throws Exception {
+        List<Booking> committed = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger commits = new AtomicInteger();
+        GroupCommitWriter writer = new GroupCommitWriter((batch, sync) -> {
+            commits.incrementAndGet();
+            committed.addAll(batch);
+        }, Durability.batched(1000, 50));
+
+        List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t * 50;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50; i++) {
+                    futures.add(writer.submit(List.of(new Booking(offset + i, "John Doe", "john@example.com",
+                            "Manicure", LocalDate.of(2024, 11, 15)))));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        writer.close();
+
+        assertEquals(200, committed.size(), "Every submitted booking should be committed");
+        assertTrue(commits.get() < 200, "Concurrent submissions should share commits");
+    }
+
+    /**
+     * Tests that a failed commit completes the futures of its batch exceptionally.
+     */
+    @Test
+    void testFailedCommitFailsFutures() {
+        GroupCommitWriter writer = new GroupCommitWriter((batch, sync) -> {
+            throw new java.io.IOException("Disk full");
+        }, Durability.always());
+
+        CompletableFuture<Void> future = writer.submit(List.of(new Booking()));
+        assertTrue(future.handle((ignored, e) -> e != null).join(), "The future should fail with the commit");
+        writer.close();
+    }
+
+    /**
+     * Tests that an error thrown by a commit fails the futures instead of leaving
+     * callers waiting, and closes the writer.
+     */
+    @Test
+    void testErrorInCommitFailsFutures() {
+        GroupCommitWriter writer = new GroupCommitWriter((batch, sync) -> {
+            throw new AssertionError("Broken sink");
+        }, Durability.always());
+
+        CompletableFuture<Void> future = writer.submit(List.of(new Booking()));
+        Throwable failure = future.handle((ignored, e) -> e).orTimeout(10, TimeUnit.SECONDS).join();
+        assertTrue(failure instanceof AssertionError, "The future should fail with the error");
+        writer.close();
+        assertTrue(writer.submit(List.of(new Booking())).isCompletedExceptionally(), "The writer should be closed");
+    }
+}
@@ -0,0 +1,64 @@
+package booking.persistence;
+
+import java.time.LocalDate;
+
+import booking.core.Booking;
+
+/**
+ * Reports the heap used per booking by each {@link StoreLayout}.
+ * <p>
+ * Not a unit test: run it manually with {@code main}, for example
+ * {@code java -Xmx2g -cp <test classpath> booking.persistence.HeapPerBookingBenchmark 1000000}.
+ * The bookings are built with fresh string copies, as the JSON reader produces
+ * them, from 5 treatments and 20,000 repeat customers. The numbers come from
+ * {@link Runtime} after garbage collection, so they are estimates.
+ * </p>
+ */
+public final class HeapPerBookingBenchmark {
+
+    private static final String[] TREATMENTS = {
+        "Full body massage", "Spa Facial", "Manicure", "Pedicure", "Hot stone massage"
+    };
+
+    private HeapPerBookingBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional number of bookings.
+     * @throws Exception If the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        for (StoreLayout layout : StoreLayout.values()) {
+            System.out.printf("%-10s %,d bookings  %,.1f bytes/booking%n", layout, count,
+                    measure(layout, count) / (double) count);
+        }
+    }
+
+    private static long measure(StoreLayout layout, int count) throws InterruptedException {
+        long before = usedHeap();
+        BookingStore store = layout.newStore();
+        for (int i = 0; i < count; i++) {
+            int customer = i % 20_000;
+            store.add(new Booking(i + 1, new String("Customer " + customer),
+                    new String("customer" + customer + "@example.com"), new String(TREATMENTS[i % 5]),
+                    LocalDate.of(2024, 1, 1).plusDays(i % 730)));
+        }
+        long after = usedHeap();
+        if (store.size() != count) {
+            throw new IllegalStateException("Store lost bookings");
+        }
+        return after - before;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,158 @@
+package booking.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import booking.core.Booking;
+
+/**
+ * Unit tests for the {@link JdbcBookingRepository} and {@link JdbcBookingMigration} classes.
+ */
+class JdbcBookingRepositoryTest {
+
+    private static final int WRITERS = 8;
+    private static final int BOOKINGS_PER_WRITER = 50;
+
+    /**
+     * Tests that concurrent writers get distinct booking numbers, that their
+     * group-committed bookings are all stored, and that they survive reopening.
+     */
+    @Test
+    void testConcurrentWritesArePersisted(@TempDir Path tempDir) throws Exception {
+        String url = JdbcBookingRepository.h2Url(tempDir.resolve("booking-db"));
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        try (JdbcBookingRepository repository = new JdbcBookingRepository(url, 2, Durability.batched())) {
+            List<Thread> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        for (int k = 0; k < BOOKINGS_PER_WRITER; k++) {
+                            repository.addBooking(new Booking(0, "Writer " + writer, "Writer" + writer + "@example.com",
+                                    "Massage", LocalDate.of(2025, 1, 1).plusDays(k)));
+                        }
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }));
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+        assertTrue(failures.isEmpty(), () -> "Writers failed: " + failures);
+
+        try (JdbcBookingRepository reopened = new JdbcBookingRepository(url, 2, Durability.none())) {
+            List<Booking> bookings = reopened.loadBookings();
+            assertEquals(WRITERS * BOOKINGS_PER_WRITER, bookings.size(), "Every booking should be persisted");
+            Set<Integer> numbers = new HashSet<>();
+            bookings.forEach(booking -> numbers.add(booking.getBookingNumber()));
+            assertEquals(bookings.size(), numbers.size(), "Booking numbers should be unique");
+            assertEquals(BOOKINGS_PER_WRITER, reopened.getBookingsByEmail("writer3@EXAMPLE.com").size(),
+                    "Email lookups should ignore case");
+            assertEquals(WRITERS, reopened.getBookingsOn(LocalDate.of(2025, 1, 5)).size());
+            Booking added = reopened.addBooking(new Booking(0, "Jane Doe", "jane@example.com", "Manicure", null));
+            assertEquals(WRITERS * BOOKINGS_PER_WRITER + 1, added.getBookingNumber(),
+                    "Numbering should continue after the stored bookings");
+            assertEquals(List.of(added), reopened.getBookingsByEmail());
+        }
+    }
+
+    /**
+     * Tests that a schema migration whose changes were applied but whose version
+     * was never recorded, as after a crash, is applied again on the next open.
+     */
+    @Test
+    void testInterruptedSchemaMigrationIsRerun(@TempDir Path tempDir) throws Exception {
+        String url = JdbcBookingRepository.h2Url(tempDir.resolve("booking-db"));
+        try (JdbcBookingRepository repository = new JdbcBookingRepository(url, 1, Durability.always())) {
+            repository.addBooking(new Booking(0, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 3, 1)));
+        }
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM booking_schema WHERE version = 2");
+        }
+
+        try (JdbcBookingRepository reopened = new JdbcBookingRepository(url, 1, Durability.always())) {
+            assertEquals(1, reopened.getAllBookings().size(), "The bookings should be kept");
+            assertEquals(1, reopened.searchBookings(new BookingQuery(null, "Manicure", null, null, 10)).size());
+        }
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement();
+                ResultSet rows = statement.executeQuery("SELECT MAX(version) FROM booking_schema")) {
+            rows.next();
+            assertEquals(2, rows.getInt(1), "The re-run migration should be recorded");
+        }
+    }
+
+    /**
+     * Tests that a batch whose sync fails is deleted again and that the data
+     * version still moves, so that listings cached while its rows were visible
+     * are not served afterwards. The sync fails because {@code CHECKPOINT} needs
+     * admin rights, which the connecting user lacks.
+     */
+    @Test
+    void testFailedSyncMovesDataVersion(@TempDir Path tempDir) throws Exception {
+        String url = JdbcBookingRepository.h2Url(tempDir.resolve("booking-db"));
+        try (JdbcBookingRepository repository = new JdbcBookingRepository(url, 1, Durability.always())) {
+            repository.addBooking(new Booking(0, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 3, 1)));
+        }
+        try (Connection connection = DriverManager.getConnection(url);
+                Statement statement = connection.createStatement()) {
+            statement.execute("CREATE USER writer PASSWORD 'secret'");
+            statement.execute("GRANT ALTER ANY SCHEMA TO writer"); // Enough to migrate, but not to checkpoint
+        }
+
+        try (JdbcBookingRepository repository = new JdbcBookingRepository(url + ";USER=writer;PASSWORD=secret", 1,
+                Durability.always())) {
+            List<Booking> before = repository.getAllBookings();
+            long version = repository.getDataVersion();
+
+            assertThrows(UncheckedIOException.class, () -> repository.addBooking(
+                    new Booking(0, "John Doe", "john@example.com", "Massage", LocalDate.of(2025, 3, 2))));
+
+            assertNotEquals(version, repository.getDataVersion(), "The data version should move");
+            assertEquals(before, repository.getAllBookings(), "The unsynced booking should be deleted");
+            assertEquals(before.get(0), repository.getLastBooking(), "The last booking should be the synced one");
+        }
+    }
+
+    /**
+     * Tests that the migration imports a JSON file with its booking numbers and
+     * can be run again without duplicating bookings.
+     */
+    @Test
+    void testMigrationImportsJson(@TempDir Path tempDir) throws Exception {
+        Path jsonFile = tempDir.resolve("booking.json");
+        BookingSnapshotConverter.writeJson(List.of(
+                new Booking(4, "Jåne Ødegård", "jane@example.com", "Spa Facial", LocalDate.of(1999, 12, 31)),
+                new Booking(9, "John Doe", null, "Massage", null)), jsonFile);
+
+        JdbcBookingMigration.main(new String[] {jsonFile.toString()});
+        JdbcBookingMigration.main(new String[] {jsonFile.toString()});
+
+        try (BookingRepository repository = BookingRepository.open("jdbc", jsonFile)) {
+            assertEquals(BookingSnapshotConverter.readJson(jsonFile), repository.getAllBookings(),
+                    "The bookings should be imported once with their numbers");
+            assertEquals(1, repository.getBookingsBetween(LocalDate.of(1999, 1, 1), LocalDate.of(1999, 12, 31)).size());
+            assertEquals(10, repository.addBooking(
+                    new Booking(0, "Ola Nordmann", "ola@example.com", "Manicure", LocalDate.of(2025, 3, 1)))
+                    .getBookingNumber(), "Numbering should continue after the imported bookings");
+        }
+    }
+}
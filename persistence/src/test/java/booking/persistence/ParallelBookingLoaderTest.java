@@ -0,0 +1,147 @@
+package booking.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import booking.core.Booking;
+
+/**
+ * Unit tests for the {@link ParallelBookingLoader} class.
+ */
+class ParallelBookingLoaderTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutDownPool() {
+        pool.shutdownNow();
+    }
+
+    private static ObjectMapper objectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return objectMapper;
+    }
+
+    /**
+     * Bookings whose strings contain braces, brackets, commas, quotes and escapes
+     * that a boundary scan must not mistake for structure.
+     */
+    private static List<Booking> bookings(int count) {
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            bookings.add(new Booking(i, "Brace } { \"quoted\" \\ " + i, i % 7 == 0 ? null : "guest" + i + "@example.com",
+                    "}, {\n[Spa]", i % 5 == 0 ? null : LocalDate.of(2025, 1, 1).plusDays(i)));
+        }
+        return bookings;
+    }
+
+    private ParallelBookingLoader loader(int chunkBytes) {
+        return new ParallelBookingLoader(objectMapper().getFactory(), pool, chunkBytes);
+    }
+
+    /**
+     * Tests that a pretty-printed array split into chunks of various sizes, so
+     * that blocks start inside strings and right after backslashes, loads the
+     * same bookings in the same order, with monotonic progress up to the file size.
+     */
+    @Test
+    void testArrayInChunks(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("booking.json");
+        List<Booking> bookings = bookings(500);
+        BookingSnapshotConverter.writeJson(bookings, file);
+
+        for (int chunkBytes : new int[] {7, 61, 300, 4096, 1 << 20}) {
+            List<Booking> loaded = new ArrayList<>();
+            List<long[]> reports = new ArrayList<>();
+            int count = loader(chunkBytes).load(file, loaded::add, (bytesRead, totalBytes, bookingsRead) ->
+                    reports.add(new long[] {bytesRead, totalBytes, bookingsRead}));
+
+            assertEquals(500, count);
+            assertEquals(bookings, loaded, "Chunks of " + chunkBytes + " bytes should be merged in file order");
+            for (int i = 1; i < reports.size(); i++) {
+                assertTrue(reports.get(i)[0] > reports.get(i - 1)[0], "Progress should only move forward");
+            }
+            long[] last = reports.get(reports.size() - 1);
+            assertArrayEquals(new long[] {Files.size(file), Files.size(file), 500}, last);
+        }
+    }
+
+    /**
+     * Tests that newline-delimited JSON is split at line ends and loaded in order.
+     */
+    @Test
+    void testNewlineDelimitedInChunks(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("booking.ndjson");
+        List<Booking> bookings = bookings(300);
+        StringBuilder lines = new StringBuilder();
+        for (Booking booking : bookings) {
+            lines.append(objectMapper().writeValueAsString(booking)).append('\n');
+        }
+        Files.writeString(file, lines, StandardCharsets.UTF_8);
+
+        List<Booking> loaded = new ArrayList<>();
+        assertEquals(300, loader(256).load(file, loaded::add, (bytesRead, totalBytes, bookingsRead) -> { }));
+        assertEquals(bookings, loaded);
+    }
+
+    /**
+     * Tests that empty files load nothing and that malformed files fail.
+     */
+    @Test
+    void testEmptyAndMalformedFiles(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("booking.json");
+        ParallelBookingLoader loader = loader(64);
+        for (String empty : new String[] {"", "  \n", "[]", "[ ]"}) {
+            Files.writeString(file, empty);
+            assertEquals(0, loader.load(file, booking -> fail("No bookings expected"),
+                    (bytesRead, totalBytes, bookingsRead) -> { }), "Empty file: '" + empty + "'");
+        }
+        for (String malformed : new String[] {"[{\"name\": \"a\"}, 42]", "[{\"name\": \"a\"}", "[{\"name\": }]"}) {
+            Files.writeString(file, malformed);
+            assertThrows(IOException.class, () -> loader.load(file, booking -> { },
+                    (bytesRead, totalBytes, bookingsRead) -> { }), "Malformed file: " + malformed);
+        }
+    }
+
+    /**
+     * Tests that a service reloads a restored backup into its store and indexes
+     * and reports the progress.
+     */
+    @Test
+    void testServiceReloadsRestoredBackup(@TempDir Path tempDir) throws IOException {
+        Path dataFile = tempDir.resolve("booking.json");
+        try (BookingService service = new BookingService(dataFile, false)) {
+            assertTrue(service.getAllBookings().isEmpty());
+
+            List<Booking> backup = bookings(2000);
+            BookingSnapshotConverter.writeJson(backup, dataFile);
+            List<Integer> counts = new ArrayList<>();
+            List<Booking> loaded = service.reloadBookingsFromFile(
+                    (bytesRead, totalBytes, bookingsRead) -> counts.add(bookingsRead));
+
+            assertEquals(backup, loaded);
+            assertEquals(2000, counts.get(counts.size() - 1), "The last report should count every booking");
+            assertEquals(1, service.getBookingsByEmail("GUEST12@example.com").size(), "The indexes should be rebuilt");
+            assertEquals(2001, service.addBooking(backup.get(0)).getBookingNumber(),
+                    "Numbering should continue after the restored bookings");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package booking.persistence;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import booking.core.Booking;
+
+/**
+ * Measures how the time to load a large JSON booking file scales with the
+ * number of threads parsing its chunks.
+ * <p>
+ * Not a unit test: run it manually with {@code main}, for example
+ * {@code java -cp <test classpath> booking.persistence.ParallelLoadBenchmark 1000000}.
+ * The file is a pretty-printed array as written by {@link BookingService}. The
+ * sequential streaming reader is the baseline; the parallel loader runs on
+ * pools of 1 to N threads, where N is the number of available processors.
+ * Each result is the best of three rounds.
+ * </p>
+ */
+public final class ParallelLoadBenchmark {
+
+    private ParallelLoadBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional number of bookings.
+     * @throws Exception If the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<Booking> bookings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            bookings.add(new Booking(i + 1, "Customer " + i, "customer" + i + "@example.com", "Manicure",
+                    LocalDate.of(2024, 1, 1).plusDays(i % 730)));
+        }
+        Path file = Files.createTempFile("booking-bench", ".json");
+        BookingSnapshotConverter.writeJson(bookings, file);
+        double megabytes = Files.size(file) / 1e6;
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            try (JsonParser parser = objectMapper.getFactory().createParser(file.toFile())) {
+                BookingJsonReader.readArray(parser, booking -> { });
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        report("sequential", megabytes, count, best);
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                ParallelBookingLoader loader = new ParallelBookingLoader(objectMapper.getFactory(), pool,
+                        ParallelBookingLoader.DEFAULT_CHUNK_BYTES);
+                best = Long.MAX_VALUE;
+                for (int round = 0; round < 3; round++) {
+                    long start = System.nanoTime();
+                    loader.load(file, booking -> { }, (bytesRead, totalBytes, bookingsRead) -> { });
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                report(threads + " threads", megabytes, count, best);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        Files.delete(file);
+    }
+
+    private static void report(String label, double megabytes, int count, long nanos) {
+        System.out.printf("%-11s %,8.0f ms  %,7.1f MB/s  %,11.0f bookings/s%n", label, nanos / 1e6,
+                megabytes / (nanos / 1e9), count / (nanos / 1e9));
+    }
+}
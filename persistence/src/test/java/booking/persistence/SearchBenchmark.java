@@ -0,0 +1,70 @@
+package booking.persistence;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Supplier;
+
+import booking.core.Booking;
+
+/**
+ * Measures {@link BookingRepository#searchBookings} as the history grows.
+ * <p>
+ * Not a unit test: run it manually with {@code main}, for example
+ * {@code java -cp <test classpath> booking.persistence.SearchBenchmark}. Each
+ * history size is searched with queries of different selectivity, through the
+ * planner of the in-memory engine and by filtering the full list of bookings.
+ * The planned search should take about the same time at every size.
+ * </p>
+ */
+public final class SearchBenchmark {
+
+    private static final String[] TREATMENTS = {
+        "Full body massage", "Spa Facial", "Manicure", "Pedicure", "Hot stone massage"
+    };
+
+    private SearchBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Unused.
+     */
+    public static void main(String[] args) {
+        String[] labels = {"customer, treatment, year", "treatment, day", "treatment, month"};
+        BookingQuery[] queries = {
+            new BookingQuery("customer42@example.com", "Manicure", LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31), 100),
+            new BookingQuery(null, "Manicure", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 1), 100),
+            new BookingQuery(null, "Manicure", LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), 100)
+        };
+        for (int count : new int[] {10_000, 100_000, 1_000_000}) {
+            InMemoryBookingRepository repository = new InMemoryBookingRepository();
+            for (int i = 0; i < count; i++) {
+                int customer = i % (count / 50); // Every customer has 50 bookings
+                repository.addBooking(new Booking(0, "Customer " + customer, "customer" + customer + "@example.com",
+                        TREATMENTS[i % 5], LocalDate.of(2024, 1, 1).plusDays(i % 731)));
+            }
+            System.out.printf("%,9d bookings%n", count);
+            for (int q = 0; q < queries.length; q++) {
+                BookingQuery query = queries[q];
+                System.out.printf("  %-26s planned %9.1f us  filtered list %9.1f us%n", labels[q],
+                        time(() -> repository.searchBookings(query)),
+                        time(() -> repository.getAllBookings().stream().filter(query::matches).limit(100).toList()));
+            }
+        }
+    }
+
+    /**
+     * Gets the best time of a search, in microseconds.
+     */
+    private static double time(Supplier<List<Booking>> search) {
+        long best = Long.MAX_VALUE;
+        int checksum = 0;
+        for (int round = 0; round < 100; round++) {
+            long start = System.nanoTime();
+            checksum += search.get().size();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return checksum < 0 ? -1 : best / 1e3;
+    }
+}
@@ -0,0 +1,149 @@
+package booking.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import booking.core.Booking;
+
+/**
+ * Unit tests for the {@link SegmentedBookingRepository} class.
+ */
+class SegmentedBookingRepositoryTest {
+
+    private static Clock clockAt(LocalDate day) {
+        return Clock.fixed(day.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Tests that bookings are split into monthly segments, that finished months
+     * are closed into read-only snapshots, and that a date range query only reads
+     * the segments it overlaps.
+     */
+    @Test
+    void testMonthlySegments(@TempDir Path tempDir) throws IOException {
+        try (SegmentedBookingRepository repository =
+                new SegmentedBookingRepository(tempDir, clockAt(LocalDate.of(2025, 1, 1)))) {
+            repository.addBooking(new Booking(0, "John Doe", "john@example.com", "Manicure", LocalDate.of(2025, 1, 20)));
+            repository.addBooking(new Booking(0, "Jane Doe", "jane@example.com", "Pedicure", LocalDate.of(2025, 3, 5)));
+            repository.addBooking(new Booking(0, "John Doe", "JOHN@example.com", "Massage", LocalDate.of(2025, 3, 2)));
+            assertTrue(Files.exists(tempDir.resolve("2025-03.ndjson")), "Writes should go to the month's segment");
+        }
+
+        // Two months later January and February are over
+        try (SegmentedBookingRepository repository =
+                new SegmentedBookingRepository(tempDir, clockAt(LocalDate.of(2025, 3, 1)))) {
+            assertEquals(Boolean.TRUE, repository.getSegments().get("2025-01"), "January should be closed");
+            assertEquals(Boolean.FALSE, repository.getSegments().get("2025-03"), "March should stay open");
+            assertTrue(Files.exists(tempDir.resolve("2025-01.bin")), "A closed segment should become a snapshot");
+            assertFalse(Files.exists(tempDir.resolve("2025-01.ndjson")), "A closed segment should have no tail");
+
+            List<Booking> march = repository.getBookingsBetween(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 3, 31));
+            assertEquals(List.of(3, 2), march.stream().map(Booking::getBookingNumber).toList(),
+                    "Range results should be ordered by date");
+            assertEquals(2, repository.getBookingsByEmail("john@example.com").size(), "Email lookup spans segments");
+        }
+
+        // A range that does not overlap January never opens its (now broken) segment
+        Files.writeString(tempDir.resolve("2025-01.bin"), "not a snapshot");
+        try (SegmentedBookingRepository repository =
+                new SegmentedBookingRepository(tempDir, clockAt(LocalDate.of(2025, 3, 1)))) {
+            assertEquals(2, repository.getBookingsBetween(LocalDate.of(2025, 2, 1), LocalDate.of(2025, 3, 31)).size(),
+                    "Only overlapping segments should be read");
+            assertEquals(BookingNumberAllocator.DEFAULT_BLOCK_SIZE + 1, repository.addBooking(
+                    new Booking(0, "Ann Doe", "ann@example.com", "Manicure", LocalDate.of(2025, 4, 1)))
+                    .getBookingNumber(), "Numbering should continue after the reserved block after a restart");
+        }
+    }
+
+    /**
+     * Tests that a booking for a month that is already closed reopens its segment.
+     */
+    @Test
+    void testWriteReopensClosedSegment(@TempDir Path tempDir) throws IOException {
+        try (SegmentedBookingRepository repository =
+                new SegmentedBookingRepository(tempDir, clockAt(LocalDate.of(2025, 6, 1)))) {
+            repository.addBooking(new Booking(0, "John Doe", "john@example.com", "Manicure", LocalDate.of(2025, 6, 20)));
+        }
+        try (SegmentedBookingRepository repository =
+                new SegmentedBookingRepository(tempDir, clockAt(LocalDate.of(2025, 8, 1)))) {
+            assertEquals(Boolean.TRUE, repository.getSegments().get("2025-06"), "June should be closed");
+            repository.addBooking(new Booking(0, "Jane Doe", "jane@example.com", "Pedicure", LocalDate.of(2025, 6, 21)));
+
+            assertEquals(Boolean.FALSE, repository.getSegments().get("2025-06"), "June should be open again");
+            assertEquals(2, repository.getBookingsBetween(LocalDate.of(2025, 6, 1), LocalDate.of(2025, 6, 30)).size(),
+                    "The reopened segment should hold both bookings");
+        }
+    }
+
+    /**
+     * Tests that a batch whose last segment cannot be written stores none of its
+     * bookings, neither in memory nor in the segments written before the failure.
+     */
+    @Test
+    void testFailedBatchStoresNothing(@TempDir Path tempDir) throws IOException {
+        Path aprilTail = tempDir.resolve("2025-04.ndjson");
+        try (SegmentedBookingRepository repository =
+                new SegmentedBookingRepository(tempDir, clockAt(LocalDate.of(2025, 3, 1)))) {
+            repository.addBooking(new Booking(0, "John Doe", "john@example.com", "Manicure", LocalDate.of(2025, 3, 2)));
+            List<Booking> before = List.copyOf(repository.getAllBookings());
+
+            Files.createDirectories(aprilTail); // April's tail cannot be opened for writing
+            assertThrows(UncheckedIOException.class, () -> repository.addBookings(List.of(
+                    new Booking(0, "Jane Doe", "jane@example.com", "Pedicure", LocalDate.of(2025, 3, 5)),
+                    new Booking(0, "Ola Nordmann", "ola@example.com", "Massage", LocalDate.of(2025, 4, 5)))));
+            Files.delete(aprilTail);
+
+            assertEquals(before, repository.getAllBookings(), "No booking of the batch should be stored");
+            assertTrue(repository.getBookingsByEmail("jane@example.com").isEmpty());
+        }
+        try (SegmentedBookingRepository reopened =
+                new SegmentedBookingRepository(tempDir, clockAt(LocalDate.of(2025, 3, 1)))) {
+            assertEquals(1, reopened.getAllBookings().size(), "March's tail should be cut back to the first booking");
+        }
+    }
+
+    /**
+     * Tests that the engine, when first opened next to the files of the
+     * {@code log} engine, imports the snapshot and the log with their booking
+     * numbers, and imports them only once.
+     */
+    @Test
+    void testFirstOpenImportsExistingBookings(@TempDir Path tempDir) throws IOException {
+        Path dataFile = tempDir.resolve("booking.json");
+        BookingSnapshotConverter.writeJson(List.of(
+                new Booking(1, "John Doe", "john@example.com", "Manicure", LocalDate.of(2024, 1, 20)),
+                new Booking(2, "Jane Doe", "jane@example.com", "Pedicure", LocalDate.of(2024, 2, 5))), dataFile);
+        try (BookingService logService = new BookingService(dataFile, true)) {
+            logService.addBooking(new Booking(0, "Ola Nordmann", "ola@example.com", "Massage", LocalDate.of(2024, 2, 6)));
+        }
+        List<Booking> history = BookingService.readHistory(dataFile);
+        assertEquals(3, history.size(), "The log should follow the snapshot");
+
+        BookingRepositoryProvider provider = new SegmentedBookingRepository.Provider();
+        Booking added;
+        try (BookingRepository repository = provider.create(dataFile)) {
+            assertEquals(history, repository.getAllBookings(), "The history should be imported with its numbers");
+            assertEquals(2, repository.getBookingsBetween(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29)).size());
+            added = repository.addBooking(new Booking(0, "Ann Doe", "ann@example.com", "Manicure", LocalDate.of(2024, 3, 1)));
+            assertTrue(added.getBookingNumber() > 3, "Numbering should continue after the imported bookings");
+        }
+        assertTrue(Files.exists(tempDir.resolve("booking-segments").resolve("2024-01.bin")),
+                "Finished months should be imported as closed segments");
+
+        try (BookingRepository reopened = provider.create(dataFile)) {
+            assertEquals(4, reopened.getAllBookings().size(), "The history should be imported only once");
+            assertEquals(added, reopened.getLastBooking());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package booking.persistence;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import booking.core.Booking;
+
+/**
+ * Compares the cold-start cost of loading a JSON snapshot with a binary snapshot.
+ * <p>
+ * Not a unit test: run it manually with {@code main}, for example
+ * {@code java -cp <test classpath> booking.persistence.SnapshotLoadBenchmark 500000}.
+ * </p>
+ */
+public final class SnapshotLoadBenchmark {
+
+    private static final String[] TREATMENTS = {
+        "Full body massage", "Spa Facial", "Manicure", "Pedicure", "Hot stone massage"
+    };
+
+    private SnapshotLoadBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional number of bookings.
+     * @throws Exception If the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        List<Booking> bookings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            bookings.add(new Booking(i + 1, "Customer " + (i % 5000), "customer" + (i % 5000) + "@example.com",
+                    TREATMENTS[i % TREATMENTS.length], LocalDate.of(2024, 1, 1).plusDays(i % 730)));
+        }
+        Path dir = Files.createTempDirectory("booking-bench");
+        Path json = dir.resolve("booking.json");
+        Path binary = dir.resolve("booking.bin");
+        BookingSnapshotConverter.writeJson(bookings, json);
+        BookingSnapshotConverter.writeBinary(bookings, binary);
+
+        for (int round = 0; round < 3; round++) { // The first rounds warm up the JIT
+            for (Path file : List.of(json, binary)) {
+                long start = System.nanoTime();
+                try (BookingService service = new BookingService(file, false)) {
+                    double millis = (System.nanoTime() - start) / 1e6;
+                    System.out.printf("round %d  %-12s %,12d bytes  %,8.1f ms  %d bookings%n", round,
+                            file.getFileName(), Files.size(file), millis, service.getAllBookings().size());
+                }
+            }
+        }
+    }
+}
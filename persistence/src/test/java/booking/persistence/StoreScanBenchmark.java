@@ -0,0 +1,59 @@
+package booking.persistence;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import booking.core.Booking;
+
+/**
+ * Measures full scans over each {@link StoreLayout}.
+ * <p>
+ * Not a unit test: run it manually with {@code main}, for example
+ * {@code java -cp <test classpath> booking.persistence.StoreScanBenchmark 1000000}.
+ * Each layout is timed for a treatment aggregation and for a scan that reads
+ * the date of every booking through {@link BookingStore#get(int)}.
+ * </p>
+ */
+public final class StoreScanBenchmark {
+
+    private static final String[] TREATMENTS = {
+        "Full body massage", "Spa Facial", "Manicure", "Pedicure", "Hot stone massage"
+    };
+
+    private StoreScanBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional number of bookings.
+     */
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        for (StoreLayout layout : StoreLayout.values()) {
+            BookingStore store = layout.newStore();
+            for (int i = 0; i < count; i++) {
+                int customer = i % 20_000;
+                store.add(new Booking(i + 1, "Customer " + customer, "customer" + customer + "@example.com",
+                        TREATMENTS[i % 5], LocalDate.of(2024, 1, 1).plusDays(i % 730)));
+            }
+            long aggregate = Long.MAX_VALUE;
+            long scan = Long.MAX_VALUE;
+            long checksum = 0;
+            for (int round = 0; round < 10; round++) { // Best of ten, after the JIT has warmed up
+                long start = System.nanoTime();
+                Map<String, Integer> counts = store.countByTreatment();
+                long middle = System.nanoTime();
+                for (int i = 0; i < store.size(); i++) {
+                    checksum += store.get(i).getDate().getDayOfMonth();
+                }
+                long end = System.nanoTime();
+                checksum += counts.size();
+                aggregate = Math.min(aggregate, middle - start);
+                scan = Math.min(scan, end - middle);
+            }
+            System.out.printf("%-10s %,d bookings  countByTreatment %,8.2f ms  materializing scan %,8.2f ms  (%d)%n",
+                    layout, count, aggregate / 1e6, scan / 1e6, checksum);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package booking.persistence;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import booking.core.Booking;
+
+/**
+ * Unit tests for the {@link StripedBookingRepository} class.
+ */
+class StripedBookingRepositoryTest {
+
+    private static final int WRITERS = 8;
+    private static final int BOOKINGS_PER_WRITER = 100;
+
+    /**
+     * Stress test: writers add bookings for many different days at once while a
+     * reader checks that every version it sees is consistent. Each writer adds
+     * its bookings one after the other, so a version that shows a writer's
+     * booking must also show all of that writer's earlier bookings.
+     */
+    @Test
+    void testConcurrentWritersAcrossStripes(@TempDir Path tempDir) throws Exception {
+        try (StripedBookingRepository repository = new StripedBookingRepository(tempDir, 4)) {
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+            List<Thread> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                writers.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        start.await();
+                        for (int k = 0; k < BOOKINGS_PER_WRITER; k++) {
+                            repository.addBooking(new Booking(0, "Writer " + writer, "writer" + writer + "@example.com",
+                                    Integer.toString(k), LocalDate.of(2025, 1, 1).plusDays(writer * 31L + k)));
+                        }
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }));
+            }
+            Thread reader = Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                    while (writing.get()) {
+                        assertConsistent(repository.getAllBookings());
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            });
+            start.countDown();
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            writing.set(false);
+            reader.join();
+            if (!failures.isEmpty()) {
+                throw new AssertionError("A concurrent writer or reader failed", failures.peek());
+            }
+
+            List<Booking> all = repository.getAllBookings();
+            assertConsistent(all);
+            assertEquals(WRITERS * BOOKINGS_PER_WRITER, all.size(), "Every booking should be stored");
+            assertEquals(BOOKINGS_PER_WRITER, repository.getBookingsByEmail("writer3@example.com").size(),
+                    "Email lookups should merge every stripe");
+            assertEquals(31, repository.getBookingsBetween(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31))
+                    .size(), "Date range lookups should merge every stripe");
+        }
+    }
+
+    /**
+     * Checks that a listing is in booking number order and holds a gap-free
+     * prefix of each writer's bookings.
+     */
+    private static void assertConsistent(List<Booking> bookings) {
+        int[] seen = new int[WRITERS];
+        int previous = 0;
+        for (Booking booking : bookings) {
+            assertTrue(booking.getBookingNumber() > previous, "Listings should be ordered by booking number");
+            previous = booking.getBookingNumber();
+            int writer = Integer.parseInt(booking.getName().substring("Writer ".length()));
+            assertTrue(Integer.parseInt(booking.getTreatment()) < BOOKINGS_PER_WRITER, "Unexpected booking");
+            seen[writer]++;
+        }
+        for (int writer = 0; writer < WRITERS; writer++) {
+            Set<String> treatments = new HashSet<>();
+            for (Booking booking : bookings) {
+                if (booking.getName().equals("Writer " + writer)) {
+                    treatments.add(booking.getTreatment());
+                }
+            }
+            for (int k = 0; k < seen[writer]; k++) {
+                assertTrue(treatments.contains(Integer.toString(k)),
+                        "A version should not show a booking without the ones acknowledged before it");
+            }
+        }
+    }
+
+    /**
+     * Tests that the stripe logs are replayed after a restart, also with a
+     * different number of stripes, and that numbering continues.
+     */
+    @Test
+    void testReopenWithOtherStripeCount(@TempDir Path tempDir) throws Exception {
+        int highest = 0;
+        try (StripedBookingRepository repository = new StripedBookingRepository(tempDir, 8)) {
+            for (int day = 0; day < 20; day++) {
+                highest = repository.addBooking(new Booking(0, "John Doe", "john@example.com", "Massage",
+                        LocalDate.of(2025, 3, 1).plusDays(day))).getBookingNumber();
+            }
+            repository.addBooking(new Booking(0, "Jane Doe", "jane@example.com", "Manicure", null));
+        }
+
+        try (StripedBookingRepository reopened = new StripedBookingRepository(tempDir, 3)) {
+            assertEquals(21, reopened.getAllBookings().size(), "Every stripe log should be replayed");
+            assertEquals(20, reopened.getBookingsByEmail("JOHN@example.com").size(), "Indexes should be rebuilt");
+            Booking next = reopened.addBooking(
+                    new Booking(0, "Jane Doe", "jane@example.com", "Manicure", LocalDate.of(2025, 4, 1)));
+            assertTrue(next.getBookingNumber() > highest + 1, "Numbering should continue after a restart");
+            assertEquals(next, reopened.getAllBookings().get(21), "New bookings should be listed last");
+            assertEquals(List.of(next), reopened.getBookingsOn(LocalDate.of(2025, 4, 1)));
+        }
+        assertTrue(Files.exists(tempDir.resolve("stripe-2.bin")), "The stripes should be rewritten as snapshots");
+        assertFalse(Files.exists(tempDir.resolve("stripe-5.log")), "Files of removed stripes should be deleted");
+
+        try (StripedBookingRepository reopened = new StripedBookingRepository(tempDir, 3)) {
+            assertEquals(22, reopened.getAllBookings().size(), "No booking should be lost or repeated");
+            assertEquals(20, reopened.getBookingsByEmail("john@example.com").size());
+        }
+    }
+
+    /**
+     * Tests that a stripe's log is folded into a snapshot once it has grown large
+     * enough, and that a restart reads the snapshot and the log tail.
+     */
+    @Test
+    void testLogIsCompactedIntoSnapshot(@TempDir Path tempDir) throws Exception {
+        LocalDate day = LocalDate.ofEpochDay(20_000); // Stripe 0 of 2
+        List<Booking> batch = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            batch.add(new Booking(0, "Customer " + i, "customer" + i + "@example.com", "Massage", day));
+        }
+        Booking last;
+        try (StripedBookingRepository repository = new StripedBookingRepository(tempDir, 2)) {
+            repository.addBookings(batch);
+            assertTrue(Files.exists(tempDir.resolve("stripe-0.bin")), "The stripe should be compacted");
+            long emptyLog = Files.size(tempDir.resolve("stripe-1.log"));
+            assertEquals(emptyLog, Files.size(tempDir.resolve("stripe-0.log")), "The compacted log should be empty");
+            last = repository.addBooking(new Booking(0, "Jane Doe", "jane@example.com", "Manicure", day));
+        }
+
+        try (StripedBookingRepository reopened = new StripedBookingRepository(tempDir, 2)) {
+            assertEquals(1501, reopened.getAllBookings().size(), "The snapshot and the log tail should be read");
+            assertEquals(last, reopened.getLastBooking());
+            assertEquals(1501, reopened.getBookingsOn(day).size(), "Indexes should be rebuilt");
+        }
+    }
+
+    /**
+     * Tests that the engine, when first opened next to the files of the
+     * {@code log} engine, imports the snapshot and the log with their booking
+     * numbers, and imports them only once.
+     */
+    @Test
+    void testFirstOpenImportsExistingBookings(@TempDir Path tempDir) throws Exception {
+        Path dataFile = tempDir.resolve("booking.json");
+        BookingSnapshotConverter.writeJson(List.of(
+                new Booking(1, "John Doe", "john@example.com", "Manicure", LocalDate.of(2024, 1, 20)),
+                new Booking(2, "Jane Doe", "jane@example.com", "Pedicure", LocalDate.of(2024, 2, 5))), dataFile);
+        try (BookingService logService = new BookingService(dataFile, true)) {
+            logService.addBooking(new Booking(0, "Ola Nordmann", "ola@example.com", "Massage", LocalDate.of(2024, 2, 6)));
+        }
+        List<Booking> history = BookingService.readHistory(dataFile);
+
+        BookingRepositoryProvider provider = new StripedBookingRepository.Provider();
+        Booking added;
+        try (BookingRepository repository = provider.create(dataFile)) {
+            assertEquals(history, repository.getAllBookings(), "The history should be imported with its numbers");
+            added = repository.addBooking(new Booking(0, "Ann Doe", "ann@example.com", "Manicure", LocalDate.of(2024, 3, 1)));
+            assertTrue(added.getBookingNumber() > 3, "Numbering should continue after the imported bookings");
+        }
+
+        try (BookingRepository reopened = provider.create(dataFile)) {
+            assertEquals(4, reopened.getAllBookings().size(), "The history should be imported only once");
+            assertEquals(added, reopened.getLastBooking());
+        }
+    }
+
+    /**
+     * Tests that a page never passes over a booking whose number was allocated
+     * before a booking in another stripe that was published first.
+     */
+    @Test
+    void testPageStopsBelowUnpublishedNumber(@TempDir Path tempDir) throws Exception {
+        try (StripedBookingRepository repository = new StripedBookingRepository(tempDir, 2)) {
+            LocalDate even = LocalDate.ofEpochDay(20_000); // Stripe 0
+            LocalDate odd = even.plusDays(1); // Stripe 1
+            Booking first = repository.addBooking(new Booking(0, "John Doe", "john@example.com", "Massage", odd));
+            List<Booking> held = new ArrayList<>();
+            Thread writer;
+            Booking later;
+            synchronized (repository.stripeLock(even)) {
+                writer = Thread.ofPlatform().start(() -> held.add(repository.addBooking(
+                        new Booking(0, "Jane Doe", "jane@example.com", "Facial", even))));
+                while (writer.getState() != Thread.State.BLOCKED) {
+                    Thread.onSpinWait(); // Its number is allocated, its log append is held back
+                }
+                later = repository.addBooking(new Booking(0, "Jim Doe", "jim@example.com", "Manicure", odd));
+
+                assertEquals(List.of(first), repository.getBookingsAfter(BookingRepository.FIRST_PAGE, 10),
+                        "A page should stop below the number that is still being written");
+            }
+            writer.join();
+
+            Booking middle = held.get(0);
+            assertTrue(middle.getBookingNumber() < later.getBookingNumber(), "The held back booking has the lower number");
+            assertEquals(List.of(middle, later), repository.getBookingsAfter(first.getBookingNumber(), 10),
+                    "The next page should start with the held back booking");
+        }
+    }
+}
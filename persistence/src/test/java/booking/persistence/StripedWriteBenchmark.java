@@ -0,0 +1,74 @@
+package booking.persistence;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import booking.core.Booking;
+
+/**
+ * Measures write throughput of the {@code log}, {@code striped} and {@code jdbc}
+ * engines for 1 to N writer threads, each adding bookings for random days.
+ * <p>
+ * Not a unit test: run it manually with {@code main}, for example
+ * {@code java -cp <test classpath> booking.persistence.StripedWriteBenchmark 16}.
+ * All engines sync every acknowledged booking. The log and jdbc engines funnel
+ * all writers through one group-committing writer thread; the striped engine
+ * writes and syncs each stripe independently.
+ * </p>
+ */
+public final class StripedWriteBenchmark {
+
+    private static final long MEASURE_MILLIS = 3000;
+
+    private StripedWriteBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional maximum number of writer threads.
+     * @throws Exception If the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0])
+                : Math.max(8, Runtime.getRuntime().availableProcessors());
+        for (String engine : List.of("log", "striped", "jdbc")) {
+            for (int threads = 1; threads <= maxThreads; threads *= 2) {
+                Path dir = Files.createTempDirectory("booking-bench");
+                try (BookingRepository repository = BookingRepository.open(engine, dir.resolve("booking.json"))) {
+                    double writes = measure(repository, threads);
+                    System.out.printf("%-8s %2d writers  %,10.0f bookings/s%n", engine, threads, writes);
+                }
+            }
+        }
+    }
+
+    private static double measure(BookingRepository repository, int threads) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder writes = new LongAdder();
+        List<Thread> writers = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            writers.add(Thread.ofPlatform().start(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (running.get()) {
+                    repository.addBooking(new Booking(0, "Customer", "customer@example.com", "Manicure",
+                            LocalDate.of(2025, 1, 1).plusDays(random.nextInt(365))));
+                    writes.increment();
+                }
+            }));
+        }
+        Thread.sleep(MEASURE_MILLIS);
+        running.set(false);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        return writes.sum() / ((System.nanoTime() - start) / 1e9);
+    }
+}
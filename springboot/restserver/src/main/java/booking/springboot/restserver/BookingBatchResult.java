@@ -0,0 +1,39 @@
+package booking.springboot.restserver;
+
+import java.util.List;
+import booking.core.Booking;
+
+/**
+ * The outcome of creating a batch of bookings.
+ * <p>
+ * There is one item per booking in the request, in request order. The created
+ * bookings were given consecutive booking numbers and written in one commit.
+ * </p>
+ *
+ * @param created  The number of bookings that were stored.
+ * @param rejected The number of bookings that were not stored.
+ * @param items    The result of each booking, in request order.
+ */
+public record BookingBatchResult(int created, int rejected, List<Item> items) {
+
+    /**
+     * Copies the list of items, so the result cannot change afterwards.
+     *
+     * @param created  The number of bookings that were stored.
+     * @param rejected The number of bookings that were not stored.
+     * @param items    The result of each booking, in request order.
+     */
+    public BookingBatchResult {
+        items = List.copyOf(items);
+    }
+
+    /**
+     * The result of one booking of a batch.
+     *
+     * @param index   The position of the booking in the request, counting from 0.
+     * @param booking The stored booking with its assigned number, or {@code null} if it was rejected.
+     * @param error   Why the booking was rejected, or {@code null} if it was stored.
+     */
+    public record Item(int index, Booking booking, String error) {
+    }
+}
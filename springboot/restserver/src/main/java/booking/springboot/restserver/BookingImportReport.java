@@ -0,0 +1,40 @@
+package booking.springboot.restserver;
+
+import java.util.List;
+
+/**
+ * The outcome of a bulk import.
+ * <p>
+ * Only the first {@value BookingImporter#MAX_REPORTED_ERRORS} rejected lines
+ * are listed, so a file full of bad lines cannot make the report as large as
+ * the upload; {@code rejected} still counts all of them.
+ * </p>
+ *
+ * @param imported        The number of bookings that were stored.
+ * @param rejected        The number of lines that were not stored.
+ * @param errors          The rejected lines, in file order.
+ * @param errorsTruncated Whether more lines were rejected than are listed.
+ */
+public record BookingImportReport(int imported, int rejected, List<LineError> errors, boolean errorsTruncated) {
+
+    /**
+     * Copies the list of errors, so the report cannot change afterwards.
+     *
+     * @param imported        The number of bookings that were stored.
+     * @param rejected        The number of lines that were not stored.
+     * @param errors          The rejected lines, in file order.
+     * @param errorsTruncated Whether more lines were rejected than are listed.
+     */
+    public BookingImportReport {
+        errors = List.copyOf(errors);
+    }
+
+    /**
+     * Why one line of an import was rejected.
+     *
+     * @param line    The line number, counting from 1.
+     * @param message What is wrong with the line.
+     */
+    public record LineError(long line, String message) {
+    }
+}
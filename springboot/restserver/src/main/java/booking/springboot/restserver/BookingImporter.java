@@ -0,0 +1,263 @@
+package booking.springboot.restserver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.UnaryOperator;
+import booking.core.Booking;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Imports bookings from a stream of newline-delimited JSON or CSV.
+ * <p>
+ * The stream is read {@value #BATCH_SIZE} lines at a time, so only one batch
+ * is held in memory however large the upload is. The lines of a batch are
+ * parsed and validated in parallel, and the valid bookings of the batch are
+ * then stored with one call, which engines with group commit write as one batch.
+ * </p>
+ * <p>
+ * Each booking is checked by a {@link BookingValidator} that accepts past
+ * dates, since imported bookings come from an older system and include
+ * appointments that have already taken place.
+ * Booking numbers in the input are ignored; the repository assigns new ones.
+ * </p>
+ * <p>
+ * A CSV stream starts with a header naming the columns {@code name},
+ * {@code email}, {@code treatment} and {@code date}, in any order. Fields may be
+ * quoted with {@code "}, with {@code ""} for a quote inside a quoted field, but
+ * cannot span lines. Blank lines are skipped in both formats.
+ * </p>
+ * <p>
+ * An importer reads one stream and is not thread-safe.
+ * </p>
+ */
+public final class BookingImporter {
+
+    /**
+     * The number of lines parsed, validated and stored together.
+     */
+    public static final int BATCH_SIZE = 1000;
+
+    /**
+     * The number of rejected lines listed in a report.
+     */
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String[] CSV_COLUMNS = {"name", "email", "treatment", "date"};
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    /**
+     * The formats an importer reads.
+     */
+    public enum Format {
+        /** One JSON booking object per line. */
+        NDJSON,
+        /** A header line followed by one booking per line. */
+        CSV
+    }
+
+    /**
+     * One non-blank input line.
+     */
+    private record Line(long number, String text) {
+    }
+
+    /**
+     * A parsed line: either a valid booking or the reason it was rejected.
+     */
+    private record Parsed(long line, Booking booking, String error) {
+    }
+
+    private final Format format;
+    private final UnaryOperator<List<Booking>> store;
+    private final BookingValidator validator = new BookingValidator(false);
+    private int[] csvPositions; // Field index of each of CSV_COLUMNS
+    private int imported;
+    private int rejected;
+    private final List<BookingImportReport.LineError> errors = new ArrayList<>();
+
+    /**
+     * Creates an importer.
+     *
+     * @param format The format of the stream.
+     * @param store  Stores a batch of valid bookings and returns the stored bookings.
+     */
+    public BookingImporter(Format format, UnaryOperator<List<Booking>> store) {
+        this.format = format;
+        this.store = store;
+    }
+
+    /**
+     * Imports every line of a stream.
+     *
+     * @param reader The stream; it is read to the end but not closed.
+     * @return The report of stored and rejected lines.
+     * @throws IOException              If the stream cannot be read.
+     * @throws IllegalArgumentException If a CSV header does not name the required columns.
+     * @throws UncheckedIOException     If a batch cannot be stored; the batches
+     *                                  before it stay stored.
+     */
+    public BookingImportReport importFrom(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        List<Line> batch = new ArrayList<>(BATCH_SIZE);
+        long number = 0;
+        String text;
+        while ((text = lines.readLine()) != null) {
+            number++;
+            if (text.isBlank()) {
+                continue;
+            }
+            if (format == Format.CSV && csvPositions == null) {
+                csvPositions = readHeader(text);
+                continue;
+            }
+            batch.add(new Line(number, text));
+            if (batch.size() == BATCH_SIZE) {
+                importBatch(batch);
+                batch.clear();
+            }
+        }
+        importBatch(batch);
+        return new BookingImportReport(imported, rejected, errors, rejected > errors.size());
+    }
+
+    private void importBatch(List<Line> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        int[] positions = csvPositions;
+        List<Parsed> parsed = batch.parallelStream().map(line -> parse(line, positions)).toList();
+        List<Booking> valid = new ArrayList<>(parsed.size());
+        for (Parsed line : parsed) {
+            if (line.error() == null) {
+                valid.add(line.booking());
+            } else {
+                rejected++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(new BookingImportReport.LineError(line.line(), line.error()));
+                }
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        try {
+            imported += store.apply(valid).size();
+        } catch (UncheckedIOException e) {
+            throw new UncheckedIOException("Import stopped at line " + batch.get(0).number() + " after "
+                    + imported + " bookings", e.getCause());
+        }
+    }
+
+    /**
+     * Parses and validates one line. Runs on the threads of a parallel stream.
+     *
+     * @param line      The line.
+     * @param positions The field index of each CSV column, or {@code null} for NDJSON.
+     */
+    private Parsed parse(Line line, int[] positions) {
+        Booking booking;
+        if (format == Format.NDJSON) {
+            try {
+                booking = OBJECT_MAPPER.readValue(line.text(), Booking.class);
+            } catch (JsonProcessingException e) {
+                return new Parsed(line.number(), null, "Malformed JSON: " + e.getOriginalMessage());
+            }
+            if (booking == null) {
+                return new Parsed(line.number(), null, "Expected a booking object");
+            }
+        } else {
+            List<String> fields = splitCsv(line.text());
+            if (fields == null) {
+                return new Parsed(line.number(), null, "Unterminated quoted field");
+            }
+            LocalDate date;
+            try {
+                String dateField = field(fields, positions[3]);
+                date = dateField == null ? null : LocalDate.parse(dateField);
+            } catch (DateTimeParseException e) {
+                return new Parsed(line.number(), null, "Invalid date, expected yyyy-mm-dd");
+            }
+            booking = new Booking(0, field(fields, positions[0]), field(fields, positions[1]),
+                    field(fields, positions[2]), date);
+        }
+        String error = validator.validate(booking);
+        return error == null ? new Parsed(line.number(), booking, null) : new Parsed(line.number(), null, error);
+    }
+
+    private int[] readHeader(String header) {
+        List<String> names = splitCsv(header);
+        int[] positions = new int[CSV_COLUMNS.length];
+        for (int i = 0; i < CSV_COLUMNS.length; i++) {
+            positions[i] = -1;
+            for (int field = 0; names != null && field < names.size(); field++) {
+                if (names.get(field).trim().toLowerCase(Locale.ROOT).equals(CSV_COLUMNS[i])) {
+                    positions[i] = field;
+                }
+            }
+            if (positions[i] < 0) {
+                throw new IllegalArgumentException("The CSV header must name the columns " + String.join(", ", CSV_COLUMNS));
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Gets a CSV field, treating a missing or empty field as absent.
+     */
+    private static String field(List<String> fields, int position) {
+        if (position >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(position).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Splits a CSV line into its fields.
+     *
+     * @return The fields, or {@code null} if a quoted field is not closed.
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,68 @@
+package booking.springboot.restserver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import booking.core.Booking;
+import booking.persistence.BookingRepository;
+
+/**
+ * One page of bookings in booking-number order.
+ * <p>
+ * The cursor of the next page is opaque to clients. It encodes the last
+ * booking number of this page, so a page does not shift when bookings are
+ * added while a client is paging, and new bookings turn up on the last pages.
+ * A page never ends between bookings with the same number, which older data
+ * files may hold, so it may have a few more bookings than its limit.
+ * </p>
+ *
+ * @param bookings   The bookings of the page.
+ * @param nextCursor The cursor of the next page, or {@code null} if this is the last page.
+ */
+public record BookingPage(List<Booking> bookings, String nextCursor) {
+
+    private static final String CURSOR_PREFIX = "after:";
+
+    /**
+     * Copies the list of bookings, so the page cannot change afterwards.
+     *
+     * @param bookings   The bookings of the page.
+     * @param nextCursor The cursor of the next page, or {@code null} if this is the last page.
+     */
+    public BookingPage {
+        bookings = List.copyOf(bookings);
+    }
+
+    /**
+     * Encodes the cursor of the page after a booking.
+     *
+     * @param bookingNumber The last booking number of a page.
+     * @return The opaque cursor.
+     */
+    public static String cursorAfter(int bookingNumber) {
+        byte[] cursor = (CURSOR_PREFIX + bookingNumber).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor);
+    }
+
+    /**
+     * Decodes a cursor.
+     *
+     * @param cursor The cursor from a previous page, or {@code null} or empty for the first page.
+     * @return The booking number the page starts after; {@link BookingRepository#FIRST_PAGE} for the first page.
+     * @throws IllegalArgumentException If the cursor was not made by {@link #cursorAfter(int)}.
+     */
+    public static int bookingNumberOf(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return BookingRepository.FIRST_PAGE;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (decoded.startsWith(CURSOR_PREFIX)) {
+                return Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+            }
+        } catch (IllegalArgumentException e) {
+            // Not Base64 or not a number; reported below like any other malformed cursor
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+}
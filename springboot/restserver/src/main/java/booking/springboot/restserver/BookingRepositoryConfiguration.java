@@ -0,0 +1,35 @@
+package booking.springboot.restserver;
+
+import java.nio.file.Path;
+import booking.persistence.BookingRepository;
+import booking.persistence.BookingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring configuration that chooses the booking storage engine.
+ * <p>
+ * The engine is selected with the {@code booking.repository} property
+ * ({@code memory}, {@code json}, {@code log}, {@code segmented},
+ * {@code striped} or {@code jdbc}, default {@code json}), and its file with
+ * {@code booking.data-file}, which defaults to the project's booking file.
+ * </p>
+ */
+@Configuration
+public class BookingRepositoryConfiguration {
+
+    /**
+     * Opens the configured booking repository. Spring closes it on shutdown.
+     *
+     * @param engine   The name of the storage engine.
+     * @param dataFile The data file, or an empty string for the project's booking file.
+     * @return The booking repository.
+     */
+    @Bean
+    public BookingRepository bookingRepository(@Value("${booking.repository:json}") String engine,
+            @Value("${booking.data-file:}") String dataFile) {
+        Path path = dataFile.isEmpty() ? BookingService.defaultDataFile() : Path.of(dataFile);
+        return BookingRepository.open(engine, path);
+    }
+}
@@ -1,26 +1,41 @@
 package booking.springboot.restserver;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import booking.core.Booking;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * REST controller for handling booking-related requests.
  * <p>
- * Provides endpoints for creating bookings, retrieving all bookings,
- * and getting bookings by email.
+ * Provides endpoints for creating bookings one at a time or in batches,
+ * importing bookings in bulk, retrieving, paging or streaming all bookings,
+ * searching bookings, and getting bookings by email.
  * </p>
  */
 @RestController
 @RequestMapping("/api/bookings")
 public class BookingRestController {
 
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     private static final Logger logger = Logger.getLogger(BookingRestController.class.getName());
     private final BookingRestService bookingRestService;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
 
     /**
      * Constructor to inject the {@link BookingRestService}.
@@ -41,6 +56,10 @@ public class BookingRestController {
      * <p>
      * URL: `http://localhost:8080/api/bookings/add`
      * </p>
+     * <p>
+     * The server assigns the booking number, so any number in the request body is
+     * ignored. The response contains the booking with its assigned number.
+     * </p>
      *
      * @param booking The booking to create.
      * @return ResponseEntity with the created booking or error message.
@@ -48,8 +67,8 @@ public class BookingRestController {
     @PostMapping("/add")
     public ResponseEntity<?> createBooking(@RequestBody Booking booking) {
         try {
-            bookingRestService.addBooking(booking);
-            return ResponseEntity.ok(booking);  // Return the created booking
+            Booking created = bookingRestService.addBooking(booking);
+            return ResponseEntity.ok(created);  // Return the created booking
         } catch (Exception e) {
             logger.log(Level.SEVERE, "Error creating booking: " + e.getMessage(), e);
             return ResponseEntity.badRequest().body("Failed to create booking: " + e.getMessage());
@@ -57,17 +76,202 @@ public class BookingRestController {
     }
 
     /**
-     * Endpoint to retrieve all bookings.
+     * Endpoint to create several bookings with one request.
      * <p>
-     * URL: `http://localhost:8080/api/bookings`
+     * URL: `http://localhost:8080/api/bookings/batch`
+     * </p>
+     * <p>
+     * The body is a JSON array of at most {@value BookingRestService#MAX_BATCH_SIZE}
+     * bookings. Each booking is validated; the valid ones get consecutive booking
+     * numbers and are written together in one commit, and the invalid ones are
+     * rejected without affecting the others. The response lists the result of
+     * each booking in request order: the stored booking or the reason it was rejected.
      * </p>
      *
-     * @return ResponseEntity with the list of all bookings.
+     * @param bookings The bookings to create.
+     * @return ResponseEntity with the result of each booking or error message.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> createBookings(@RequestBody List<Booking> bookings) {
+        try {
+            return ResponseEntity.ok(bookingRestService.addBookingBatch(bookings));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Failed to create bookings: " + e.getMessage());
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error creating bookings: " + e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Failed to create bookings: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint to import bookings from newline-delimited JSON, one booking object per line.
+     * <p>
+     * URL: `http://localhost:8080/api/bookings/import` with content type
+     * `application/x-ndjson`
+     * </p>
+     * <p>
+     * The body is streamed and stored in batches, so uploads of any size can be
+     * imported. Valid lines are stored even if other lines are rejected; the
+     * response lists the rejected lines with their line numbers.
+     * </p>
+     *
+     * @param body The request body.
+     * @return ResponseEntity with the import report or error message.
+     */
+    @PostMapping(value = "/import", consumes = NDJSON)
+    public ResponseEntity<?> importNdjson(InputStream body) {
+        return importBookings(body, BookingImporter.Format.NDJSON);
+    }
+
+    /**
+     * Endpoint to import bookings from CSV with a header line naming the columns
+     * `name`, `email`, `treatment` and `date`.
+     * <p>
+     * URL: `http://localhost:8080/api/bookings/import` with content type `text/csv`
+     * </p>
+     *
+     * @param body The request body.
+     * @return ResponseEntity with the import report or error message.
+     * @see #importNdjson(InputStream)
+     */
+    @PostMapping(value = "/import", consumes = CSV)
+    public ResponseEntity<?> importCsv(InputStream body) {
+        return importBookings(body, BookingImporter.Format.CSV);
+    }
+
+    private ResponseEntity<?> importBookings(InputStream body, BookingImporter.Format format) {
+        try {
+            BookingImportReport report = bookingRestService.importBookings(
+                    new InputStreamReader(body, StandardCharsets.UTF_8), format);
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Failed to import bookings: " + e.getMessage());
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Error importing bookings: " + e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Failed to import bookings: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint to retrieve all bookings, or one page of them.
+     * <p>
+     * URL: `http://localhost:8080/api/bookings`, or
+     * `http://localhost:8080/api/bookings?limit=100&amp;cursor=...` for a page
+     * </p>
+     * <p>
+     * Without parameters the whole list is returned. With a `limit` or a
+     * `cursor` the response holds at most `limit` bookings (default
+     * {@value #DEFAULT_PAGE_SIZE}) in booking-number order and the `nextCursor`
+     * to pass for the next page, which is null on the last page.
+     * </p>
+     * <p>
+     * The response carries an ETag derived from the data version. A request whose
+     * `If-None-Match` holds the current ETag is answered with 304 Not Modified
+     * before any booking is read. Otherwise the body is written from the
+     * service's cache of serialized responses, gzip-compressed if the client
+     * accepts it, and is only serialized again after the bookings have changed.
+     * </p>
+     *
+     * @param cursor         The cursor of a previous page, or absent for the first page.
+     * @param limit          The maximum number of bookings in the page.
+     * @param ifNoneMatch    The ETags of the client's copies, if any.
+     * @param acceptEncoding The content codings the client accepts, if any.
+     * @return ResponseEntity with the list of all bookings, the page, a 304 status, or an error message.
      */
     @GetMapping
-    public ResponseEntity<List<Booking>> getAllBookings() {
-        List<Booking> bookings = bookingRestService.loadAllBookingsFromFile();
-        return ResponseEntity.ok(bookings);  // Return the list of bookings
+    public ResponseEntity<?> getAllBookings(@RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = etag("d", bookingRestService.getDataVersion(), gzip);
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        if (cursor == null && limit == null) {
+            // Return the list of bookings
+            return encodedBody(bookingRestService.getAllBookingsEncoded(), "d", gzip);
+        }
+        try {
+            return encodedBody(bookingRestService.getBookingPageEncoded(cursor,
+                    limit == null ? DEFAULT_PAGE_SIZE : limit), "d", gzip);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Failed to get bookings: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint to stream all bookings as a JSON array.
+     * <p>
+     * URL: `http://localhost:8080/api/bookings/stream`
+     * </p>
+     * <p>
+     * The bookings are written in booking-number order while they are read from
+     * the store a page at a time, so the server does not hold the whole list.
+     * </p>
+     *
+     * @return ResponseEntity with a body that writes the bookings.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamBookings() {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(out -> bookingRestService.writeAllBookings(out, false));
+    }
+
+    /**
+     * Endpoint to stream all bookings as newline-delimited JSON.
+     * <p>
+     * URL: `http://localhost:8080/api/bookings/stream` with `Accept: application/x-ndjson`
+     * </p>
+     *
+     * @return ResponseEntity with a body that writes one booking per line.
+     * @see #streamBookings()
+     */
+    @GetMapping(value = "/stream", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamBookingsAsNdjson() {
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON))
+                .body(out -> bookingRestService.writeAllBookings(out, true));
+    }
+
+    /**
+     * Endpoint to search bookings by email, treatment and date range.
+     * <p>
+     * URL: `http://localhost:8080/api/bookings/search?email=...&amp;treatment=...&amp;from=2025-01-01&amp;to=2025-01-31&amp;limit=100`
+     * </p>
+     * <p>
+     * Every parameter is optional, and a booking must match all the given ones.
+     * The email is matched ignoring case, the treatment exactly, and the dates
+     * (yyyy-mm-dd) include both ends. The response holds at most `limit` bookings
+     * (default {@value #DEFAULT_PAGE_SIZE}) in insertion order. The search is
+     * planned against the repository's indexes, so it only visits the
+     * candidates of the most selective filter.
+     * </p>
+     *
+     * @param email     The email address, if any.
+     * @param treatment The treatment, if any.
+     * @param from      The first day, if any.
+     * @param to        The last day, if any.
+     * @param limit     The maximum number of bookings.
+     * @return ResponseEntity with the matching bookings or an error message.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> searchBookings(@RequestParam(name = "email", required = false) String email,
+            @RequestParam(name = "treatment", required = false) String treatment,
+            @RequestParam(name = "from", required = false) String from,
+            @RequestParam(name = "to", required = false) String to,
+            @RequestParam(name = "limit", required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(bookingRestService.searchBookings(email, treatment, parseDate(from),
+                    parseDate(to), limit == null ? DEFAULT_PAGE_SIZE : limit));
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("Failed to search bookings: invalid date, expected yyyy-mm-dd");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Failed to search bookings: " + e.getMessage());
+        }
+    }
+
+    private static LocalDate parseDate(String date) {
+        return date == null || date.isBlank() ? null : LocalDate.parse(date.trim());
     }
 
     /**
@@ -75,18 +279,95 @@ public class BookingRestController {
      * <p>
      * URL: `http://localhost:8080/api/bookings/email`
      * </p>
+     * <p>
+     * The response carries an ETag derived from the version of that customer's
+     * bookings. A request whose `If-None-Match` holds the current ETag is
+     * answered with 304 Not Modified before the bookings are looked up. The body
+     * is written from the service's cache of serialized responses.
+     * </p>
      *
+     * @param ifNoneMatch    The ETags of the client's copies, if any.
+     * @param acceptEncoding The content codings the client accepts, if any.
      * @return ResponseEntity containing the list of bookings with the specified
-     *         email, or a 404 status if no bookings are found.
+     *         email, a 304 status, or a 404 status if no bookings are found.
      */
     @GetMapping("/email")
-    public ResponseEntity<?> getBookingsByEmail() {
-        List<Booking> bookings = bookingRestService.getBookingsByEmail();
-        if (!bookings.isEmpty()) {
-            return ResponseEntity.ok(bookings);  // Return the list of bookings for the email
+    public ResponseEntity<?> getBookingsByEmail(
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        long version = bookingRestService.getEmailVersion();
+        String etag = etag("e", version, gzip);
+        if (version != BookingRestService.NO_BOOKINGS && matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        EncodedResponse bookings = bookingRestService.getBookingsByEmailEncoded();
+        if (bookings != null) {
+            return encodedBody(bookings, "e", gzip);  // Return the list of bookings for the email
         } else {
             logger.log(Level.WARNING, "No bookings found for the last added email.");
             return ResponseEntity.status(404).body("No bookings found.");
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes a serialized body as it is, without going through a JSON converter.
+     */
+    private ResponseEntity<byte[]> encodedBody(EncodedResponse response, String kind, boolean gzip) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag(kind, response.version(), gzip))
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzip ? response.gzip() : response.plain());
+    }
+
+    /**
+     * Makes a strong ETag from a version. The tag includes the time the
+     * controller was created, so a version counted again after a restart does
+     * not match tags handed out before it, and differs between the plain and
+     * the gzip-compressed body, since they are different representations.
+     */
+    private String etag(String kind, long version, boolean gzip) {
+        return "\"" + epoch + "-" + kind + Long.toString(version, 36) + (gzip ? "-gz" : "") + "\"";
+    }
+
+    /**
+     * Tells whether an Accept-Encoding header allows a gzip-compressed body.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tells whether an If-None-Match header matches an ETag, using the weak
+     * comparison that RFC 9110 prescribes for this header.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,44 +1,100 @@
 package booking.springboot.restserver;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import booking.core.Booking;
+import booking.persistence.BookingQuery;
+import booking.persistence.BookingRepository;
 import booking.persistence.BookingService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 /**
  * Service class for managing bookings.
  * <p>
- * Provides methods to load bookings from a file, add new bookings, and retrieve
- * bookings filtered by email.
+ * Provides methods to load bookings from a file, page or stream through them,
+ * add new bookings one at a time or in batches, import bookings in bulk, search
+ * bookings, and retrieve bookings filtered by email.
+ * </p>
+ * <p>
+ * The bookings are stored in a {@link BookingRepository}, whose engine is chosen
+ * by {@link BookingRepositoryConfiguration}.
+ * </p>
+ * <p>
+ * The responses of the hot read endpoints are cached as serialized bytes, plain
+ * and gzip-compressed. Each entry is keyed by endpoint and query and remembers
+ * the version of the bookings it was made from: the data version, or for the
+ * bookings by email the customer's version. An entry is serialized again on the
+ * first request after that version changes, and is never served afterwards.
  * </p>
  */
 @Service
 public class BookingRestService {
 
-    private final BookingService bookingService;
+    /**
+     * The largest page that {@link #getBookingPage(String, int)} returns.
+     */
+    public static final int MAX_PAGE_SIZE = 1000;
 
     /**
-     * Parameterized constructor for testing purposes.
+     * The largest batch that {@link #addBookingBatch(List)} accepts.
+     */
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    /**
+     * The version that {@link #getEmailVersion()} reports when there are no bookings.
+     */
+    public static final long NO_BOOKINGS = -1;
+
+    /**
+     * The number of bookings read from the repository at a time while streaming.
+     */
+    static final int STREAM_PAGE_SIZE = 1000;
+
+    /**
+     * The number of encoded responses kept before the cache is emptied.
+     */
+    static final int MAX_CACHED_RESPONSES = 256;
+
+    private final BookingRepository bookingRepository;
+    private final BookingValidator batchValidator = new BookingValidator(true);
+    private final Map<String, EncodedResponse> encodedResponses = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    /**
+     * Creates a service on top of the given repository.
      * <p>
-     * This constructor allows injecting a custom {@link BookingService} instance, typically used
-     * in testing scenarios to control the service behavior.
+     * Spring injects the repository configured by {@link BookingRepositoryConfiguration};
+     * tests can pass their own instance to control its behavior.
      * </p>
      * 
-     * @param bookingService The {@link BookingService} instance to use.
+     * @param bookingRepository The {@link BookingRepository} to store bookings in.
      */
-    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "Controlled usage of BookingService in test context, minimal risk of unexpected mutation.")
-    public BookingRestService(BookingService bookingService) {
-        this.bookingService = bookingService;
+    @Autowired
+    @SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "The repository is a shared Spring-managed singleton.")
+    public BookingRestService(BookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
     }
 
     /**
-     * Default constructor for production use.
-     * <p>
-     * Initializes the {@link BookingService} internally for production scenarios.
-     * </p>
+     * Creates a service backed by the project's default JSON booking file.
      */
     public BookingRestService() {
         this(new BookingService());
@@ -47,37 +103,317 @@ public class BookingRestService {
     /**
      * Loads all bookings from the file and returns an unmodifiable list.
      * <p>
-     * This method interacts with the {@link BookingService} to fetch all bookings
+     * This method interacts with the {@link BookingRepository} to fetch all bookings
      * and returns them in an unmodifiable list to prevent external modifications.
+     * The file is only parsed again when it has changed since it was last loaded
+     * or written; otherwise the bookings are served from memory. The wrapper is
+     * a view, so the repository's list is not copied.
      * </p>
      * 
      * @return Unmodifiable list of all bookings.
      */
     public List<Booking> loadAllBookingsFromFile() {
-        return Collections.unmodifiableList(bookingService.loadBookingsFromFile());
+        return Collections.unmodifiableList(bookingRepository.loadBookings());
+    }
+
+    /**
+     * Gets the data version of the bookings, first picking up changes made to the
+     * storage outside the repository.
+     * <p>
+     * The version is read without getting the bookings, so a client whose copy
+     * is still current can be answered without loading or serializing them.
+     * </p>
+     *
+     * @return The current data version.
+     */
+    public long getDataVersion() {
+        bookingRepository.refresh();
+        return bookingRepository.getDataVersion();
+    }
+
+    /**
+     * Gets the version of the bookings returned by {@link #getBookingsByEmail()},
+     * which only changes when the bookings of the most recent booking's customer
+     * change, or when a booking by another customer becomes the most recent.
+     * <p>
+     * Only the most recent booking is looked up. Whether there are bookings is
+     * decided from it, since engines that count their version from 0 again after
+     * a restart may report version 0 for existing bookings.
+     * </p>
+     *
+     * @return The version, or {@value #NO_BOOKINGS} if there are no bookings.
+     */
+    public long getEmailVersion() {
+        bookingRepository.refresh();
+        Booking last = bookingRepository.getLastBooking();
+        return last == null ? NO_BOOKINGS : bookingRepository.getEmailVersion(last.getEmail());
+    }
+
+    /**
+     * Gets all bookings, already serialized.
+     *
+     * @return The encoded list of all bookings, tagged with the data version.
+     * @see #loadAllBookingsFromFile()
+     */
+    EncodedResponse getAllBookingsEncoded() {
+        return encoded("all", getDataVersion(), this::loadAllBookingsFromFile);
+    }
+
+    /**
+     * Gets one page of bookings, already serialized.
+     *
+     * @param cursor The cursor of a previous page, or {@code null} for the first page.
+     * @param limit  The maximum number of bookings, from 1 to {@value #MAX_PAGE_SIZE}.
+     * @return The encoded page, tagged with the data version.
+     * @throws IllegalArgumentException If the cursor is malformed or the limit is out of range.
+     * @see #getBookingPage(String, int)
+     */
+    EncodedResponse getBookingPageEncoded(String cursor, int limit) {
+        BookingPage.bookingNumberOf(cursor); // Rejects a malformed cursor before it becomes a cache key
+        return encoded("page?limit=" + limit + "&cursor=" + cursor, getDataVersion(),
+                () -> getBookingPage(cursor, limit));
+    }
+
+    /**
+     * Gets the bookings of the most recent booking's customer, already serialized.
+     *
+     * @return The encoded bookings, tagged with the customer's version, or
+     *         {@code null} if there are no bookings.
+     * @see #getBookingsByEmail()
+     */
+    EncodedResponse getBookingsByEmailEncoded() {
+        long version = getEmailVersion();
+        if (version == NO_BOOKINGS) {
+            return null;
+        }
+        return encoded("email", version, this::getBookingsByEmail);
+    }
+
+    /**
+     * Gets a response from the cache, or serializes and caches it if the cached
+     * entry was made from another version of the bookings.
+     * <p>
+     * The version is read before the body is built, so an entry is never tagged
+     * newer than its content. Concurrent misses for the same key may each
+     * serialize the body; the last one stays cached.
+     * </p>
+     *
+     * @param key     The endpoint and query.
+     * @param version The current version of the bookings behind the response.
+     * @param body    Builds the object to serialize.
+     * @return The encoded response.
+     */
+    private EncodedResponse encoded(String key, long version, Supplier<Object> body) {
+        EncodedResponse cached = encodedResponses.get(key);
+        if (cached != null && cached.version() == version) {
+            return cached;
+        }
+        byte[] plain;
+        try {
+            plain = objectMapper.writeValueAsBytes(body.get());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to serialize response", e);
+        }
+        EncodedResponse encoded = EncodedResponse.of(version, plain);
+        if (encodedResponses.size() >= MAX_CACHED_RESPONSES) {
+            encodedResponses.clear(); // Many distinct pages; the hot entries come back on their next request
+        }
+        encodedResponses.put(key, encoded);
+        return encoded;
+    }
+
+    /**
+     * Gets one page of bookings in booking-number order.
+     * <p>
+     * The page is read from the repository's booking-number index where it has
+     * one, so the cost of a page depends on its size rather than on the number
+     * of bookings.
+     * </p>
+     *
+     * @param cursor The cursor of a previous page, or {@code null} for the first page.
+     * @param limit  The maximum number of bookings, from 1 to {@value #MAX_PAGE_SIZE}.
+     * @return The page, with the cursor of the next page if there are more bookings.
+     * @throws IllegalArgumentException If the cursor is malformed or the limit is out of range.
+     */
+    public BookingPage getBookingPage(String cursor, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("The limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        // One booking more than asked for tells whether another page follows
+        List<Booking> bookings = bookingRepository.getBookingsAfter(BookingPage.bookingNumberOf(cursor), limit + 1);
+        if (bookings.size() <= limit) {
+            return new BookingPage(bookings, null);
+        }
+        int end = limit;
+        int lastNumber = bookings.get(limit - 1).getBookingNumber();
+        while (end < bookings.size() && bookings.get(end).getBookingNumber() == lastNumber) {
+            end++; // Bookings sharing the last number go on this page, or the cursor would skip them
+        }
+        List<Booking> page = bookings.subList(0, end);
+        return new BookingPage(page, BookingPage.cursorAfter(page.get(end - 1).getBookingNumber()));
+    }
+
+    /**
+     * Searches for the bookings that match every given filter.
+     * <p>
+     * Engines with email, treatment and date indexes plan the search with the
+     * most selective of them, so its cost depends on the number of matches
+     * rather than on the number of bookings; see {@link BookingRepository#searchBookings}.
+     * </p>
+     *
+     * @param email     The email address, ignoring case, or {@code null} or blank for any.
+     * @param treatment The treatment, or {@code null} or blank for any.
+     * @param from      The first day, or {@code null} for no lower bound.
+     * @param to        The last day, or {@code null} for no upper bound.
+     * @param limit     The maximum number of bookings, from 1 to {@value #MAX_PAGE_SIZE}.
+     * @return A new list of the matching bookings in insertion order.
+     * @throws IllegalArgumentException If the limit is out of range.
+     */
+    public List<Booking> searchBookings(String email, String treatment, LocalDate from, LocalDate to, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("The limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return bookingRepository.searchBookings(new BookingQuery(blankToNull(email), blankToNull(treatment),
+                from, to, limit));
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * Writes all bookings in booking-number order as a JSON array or as
+     * newline-delimited JSON.
+     * <p>
+     * The bookings are read from the repository {@value #STREAM_PAGE_SIZE} at a
+     * time and flushed after each page, so the memory used does not grow with
+     * the number of bookings. Bookings added while the stream is written are
+     * included if their number comes after the page being written.
+     * </p>
+     *
+     * @param out    The stream to write to; it is flushed but not closed.
+     * @param ndjson {@code true} for one booking per line, {@code false} for a JSON array.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void writeAllBookings(OutputStream out, boolean ndjson) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null); // NDJSON separates values with the newlines written below
+            if (!ndjson) {
+                generator.writeStartArray();
+            }
+            List<Booking> page;
+            int after = BookingRepository.FIRST_PAGE;
+            do {
+                page = bookingRepository.getBookingsAfter(after, STREAM_PAGE_SIZE);
+                for (Booking booking : page) {
+                    objectMapper.writeValue(generator, booking);
+                    if (ndjson) {
+                        generator.writeRaw('\n');
+                    }
+                }
+                if (!page.isEmpty()) {
+                    after = page.get(page.size() - 1).getBookingNumber();
+                }
+                generator.flush();
+            } while (page.size() >= STREAM_PAGE_SIZE); // Longer when the last number repeats
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
     }
 
     /**
      * Adds a new booking to the system.
      * <p>
      * This method checks if the provided booking is null and throws an exception if so.
-     * It delegates the actual adding of the booking to the {@link BookingService}.
+     * It delegates the actual adding of the booking to the {@link BookingRepository},
+     * which assigns the booking number.
      * </p>
      * 
      * @param booking The booking to be added.
+     * @return The stored booking with its assigned booking number.
      * @throws NullPointerException if the booking is null.
      */
-    public void addBooking(Booking booking) {
+    public Booking addBooking(Booking booking) {
         if (booking == null) {
             throw new NullPointerException("Booking is null");
         }
-        bookingService.addBooking(booking);
+        return bookingRepository.addBooking(booking);
+    }
+
+    /**
+     * Adds several new bookings in one write.
+     *
+     * @param bookings The bookings to add; their booking numbers are ignored.
+     * @return The stored bookings with their assigned booking numbers, in the given order.
+     * @throws NullPointerException if the list or one of its bookings is null.
+     */
+    public List<Booking> addBookings(List<Booking> bookings) {
+        return bookingRepository.addBookings(List.copyOf(bookings));
+    }
+
+    /**
+     * Validates a batch of new bookings and stores the valid ones together.
+     * <p>
+     * The valid bookings are passed to the repository in one call, so engines
+     * with group commit allocate their booking numbers as one consecutive block
+     * and write them in one commit. Either all of them are stored or, if the
+     * write fails, none are. Invalid bookings, including those dated before
+     * today, are reported without affecting the others.
+     * </p>
+     *
+     * @param bookings The bookings to add, at most {@value #MAX_BATCH_SIZE}; their
+     *                 booking numbers are ignored.
+     * @return The result of each booking, in the given order.
+     * @throws IllegalArgumentException If the list is missing or larger than {@value #MAX_BATCH_SIZE}.
+     * @throws UncheckedIOException     If the valid bookings cannot be written.
+     */
+    public BookingBatchResult addBookingBatch(List<Booking> bookings) {
+        if (bookings == null) {
+            throw new IllegalArgumentException("Expected a list of bookings");
+        }
+        if (bookings.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("A batch holds at most " + MAX_BATCH_SIZE + " bookings");
+        }
+        String[] errors = new String[bookings.size()];
+        List<Booking> valid = new ArrayList<>(bookings.size());
+        for (int i = 0; i < errors.length; i++) {
+            errors[i] = batchValidator.validate(bookings.get(i));
+            if (errors[i] == null) {
+                valid.add(bookings.get(i));
+            }
+        }
+        List<Booking> stored = valid.isEmpty() ? List.of() : bookingRepository.addBookings(valid);
+        List<BookingBatchResult.Item> items = new ArrayList<>(errors.length);
+        int next = 0;
+        for (int i = 0; i < errors.length; i++) {
+            items.add(errors[i] == null ? new BookingBatchResult.Item(i, stored.get(next++), null)
+                    : new BookingBatchResult.Item(i, null, errors[i]));
+        }
+        return new BookingBatchResult(stored.size(), errors.length - stored.size(), items);
+    }
+
+    /**
+     * Imports bookings from a stream of newline-delimited JSON or CSV.
+     * <p>
+     * The stream is read and stored in batches by a {@link BookingImporter}, so
+     * the whole upload is never held in memory.
+     * </p>
+     *
+     * @param reader The stream to import.
+     * @param format The format of the stream.
+     * @return The report of stored and rejected lines.
+     * @throws IOException If the stream cannot be read.
+     */
+    public BookingImportReport importBookings(Reader reader, BookingImporter.Format format) throws IOException {
+        return new BookingImporter(format, this::addBookings).importFrom(reader);
     }
 
     /**
      * Retrieves all bookings filtered by email.
      * <p>
-     * This method retrieves the list of bookings from the {@link BookingService}
+     * This method retrieves the list of bookings from the {@link BookingRepository}
      * that match a specific email filter. The returned list is wrapped in an
      * {@link ArrayList} to ensure it is mutable.
      * </p>
@@ -85,6 +421,6 @@ public class BookingRestService {
      * @return List of bookings matching the email filter.
      */
     public List<Booking> getBookingsByEmail() {
-        return new ArrayList<>(bookingService.getBookingsByEmail());
+        return new ArrayList<>(bookingRepository.getBookingsByEmail());
     }
 }
@@ -0,0 +1,62 @@
+package booking.springboot.restserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import booking.core.Booking;
+import booking.core.InputValidation;
+
+/**
+ * Checks bookings sent to the server in bulk and describes what is wrong with them.
+ * <p>
+ * The name, email and treatment are checked with {@link InputValidation}, and
+ * the treatment must not be blank. The date must be present, and with
+ * {@code futureDates} it must also be today or later. A validator holds no
+ * state of its own, so it can be used from several threads.
+ * </p>
+ */
+final class BookingValidator {
+
+    private final InputValidation inputValidation = new InputValidation();
+    private final boolean futureDates;
+
+    /**
+     * Creates a validator.
+     *
+     * @param futureDates Whether dates before today are rejected.
+     */
+    BookingValidator(boolean futureDates) {
+        this.futureDates = futureDates;
+    }
+
+    /**
+     * Checks a booking.
+     *
+     * @param booking The booking, possibly {@code null}.
+     * @return A message listing the problems, or {@code null} if the booking is valid.
+     */
+    String validate(Booking booking) {
+        if (booking == null) {
+            return "Expected a booking object";
+        }
+        List<String> problems = new ArrayList<>();
+        if (!inputValidation.nameValidation(booking.getName())) {
+            problems.add("invalid name");
+        }
+        if (!inputValidation.emailValidation(booking.getEmail())) {
+            problems.add("invalid email");
+        }
+        if (!inputValidation.treatmentValidation(booking.getTreatment()) || booking.getTreatment().isBlank()) {
+            problems.add("missing treatment");
+        }
+        if (booking.getDate() == null) {
+            problems.add("missing date");
+        } else if (futureDates && !inputValidation.dateValidation(booking.getDate())) {
+            problems.add("date in the past");
+        }
+        if (problems.isEmpty()) {
+            return null;
+        }
+        String message = String.join(", ", problems);
+        return Character.toUpperCase(message.charAt(0)) + message.substring(1);
+    }
+}
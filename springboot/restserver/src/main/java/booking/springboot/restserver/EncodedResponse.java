@@ -0,0 +1,56 @@
+package booking.springboot.restserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body that has already been serialized, both as plain JSON and
+ * gzip-compressed, together with the version of the bookings it was made from.
+ * <p>
+ * The byte arrays are shared by every request that is answered from the cache
+ * and must not be modified.
+ * </p>
+ */
+final class EncodedResponse {
+
+    private final long version;
+    private final byte[] plain;
+    private final byte[] gzip;
+
+    private EncodedResponse(long version, byte[] plain, byte[] gzip) {
+        this.version = version;
+        this.plain = plain;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Compresses a serialized body.
+     *
+     * @param version The version of the bookings the body was made from.
+     * @param plain   The serialized JSON.
+     * @return The response with both encodings.
+     */
+    static EncodedResponse of(long version, byte[] plain) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, plain.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(plain);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress response", e); // Not expected in memory
+        }
+        return new EncodedResponse(version, plain, compressed.toByteArray());
+    }
+
+    long version() {
+        return version;
+    }
+
+    byte[] plain() {
+        return plain;
+    }
+
+    byte[] gzip() {
+        return gzip;
+    }
+}
@@ -12,6 +12,7 @@ module booking.springboot.restserver {
     
     // Spring Framework dependencies
     requires spring.web;
+    requires spring.webmvc;
     requires spring.beans;
     requires spring.boot;
     requires spring.boot.autoconfigure;
@@ -0,0 +1,85 @@
+package booking.springboot.restserver;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import booking.core.Booking;
+import booking.persistence.BookingService;
+
+/**
+ * Measures creating bookings one at a time against creating them as a batch.
+ * <p>
+ * Not a unit test: run it manually with {@code main}, for example
+ * {@code java -cp <test classpath> booking.springboot.restserver.BatchAddBenchmark 10000 50}.
+ * The arguments are the number of bookings already stored and the size of each
+ * group. For the {@code json} engine, which rewrites its file on every commit,
+ * and the {@code log} engine, groups are added through
+ * {@link BookingRestService#addBooking(Booking)} in a loop, as a client calling
+ * {@code /add} for each booking does, and through
+ * {@link BookingRestService#addBookingBatch(List)}. HTTP handling is left out.
+ * </p>
+ */
+public final class BatchAddBenchmark {
+
+    private static final long ROUND_NANOS = 3_000_000_000L;
+
+    private BatchAddBenchmark() {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional number of stored bookings and group size.
+     * @throws IOException If the temporary files cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int stored = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int groupSize = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        List<Booking> group = new ArrayList<>(groupSize);
+        for (int i = 0; i < groupSize; i++) {
+            group.add(new Booking(0, "Guest " + (char) ('A' + i % 26), "guest" + i + "@example.com", "Spa day",
+                    LocalDate.now().plusDays(30)));
+        }
+        for (boolean log : new boolean[] {false, true}) {
+            Path directory = Files.createTempDirectory("batch-benchmark");
+            try (BookingService repository = new BookingService(directory.resolve("booking.json"), log)) {
+                List<Booking> existing = new ArrayList<>(stored);
+                for (int i = 0; i < stored; i++) {
+                    existing.add(new Booking(0, "Customer", "customer" + i + "@example.com", "Manicure",
+                            LocalDate.of(2024, 1, 1).plusDays(i % 730)));
+                }
+                repository.addBookings(existing);
+                BookingRestService service = new BookingRestService(repository);
+
+                double looped = run(() -> group.forEach(service::addBooking), groupSize);
+                double batched = run(() -> service.addBookingBatch(group), groupSize);
+                System.out.printf("%-4s %,d stored, groups of %d: /add loop %,10.0f bookings/s  batch %,10.0f bookings/s"
+                        + "  (%.0fx)%n", log ? "log" : "json", stored, groupSize, looped, batched, batched / looped);
+            } finally {
+                try (var files = Files.walk(directory)) {
+                    files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds groups for one round and gets the bookings added per second.
+     */
+    private static double run(Runnable addGroup, int groupSize) {
+        addGroup.run(); // Warm-up
+        long start = System.nanoTime();
+        long groups = 0;
+        long elapsed;
+        do {
+            addGroup.run();
+            groups++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        return groups * groupSize / (elapsed / 1e9);
+    }
+}
@@ -0,0 +1,115 @@
+package booking.springboot.restserver;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import booking.core.Booking;
+import booking.persistence.InMemoryBookingRepository;
+
+/**
+ * Unit tests for the {@link BookingImporter} class.
+ */
+public class BookingImporterTest {
+
+    private final InMemoryBookingRepository repository = new InMemoryBookingRepository();
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    private BookingImporter importer(BookingImporter.Format format) {
+        return new BookingImporter(format, batch -> {
+            batchSizes.add(batch.size());
+            return repository.addBookings(batch);
+        });
+    }
+
+    /**
+     * Tests that valid NDJSON lines are stored, including past dates, and that
+     * invalid and malformed lines are reported with their line numbers.
+     */
+    @Test
+    public void testNdjsonReportsRejectedLines() throws IOException {
+        String body = """
+                {"bookingNumber": 77, "name": "Kari Nordmann", "email": "kari@example.com", "treatment": "Facial", "date": "2019-05-01"}
+
+                {"name": "R2D2", "email": "not-an-email", "treatment": "Facial", "date": "2025-01-01"}
+                {"name": "Ola Nordmann", "email": "ola@example.com", "treatment": "Massage"
+                {"name": "Per Persen", "email": "per@example.com", "date": "2025-01-01"}
+                {"name": "Ola Nordmann", "email": "ola@example.com", "treatment": "Massage", "date": "2026-02-03", "room": 4}
+                """;
+
+        BookingImportReport report = importer(BookingImporter.Format.NDJSON).importFrom(new StringReader(body));
+
+        assertEquals(2, report.imported());
+        assertEquals(3, report.rejected());
+        assertFalse(report.errorsTruncated());
+        assertEquals(List.of(3L, 4L, 5L), report.errors().stream().map(BookingImportReport.LineError::line).toList());
+        assertEquals("Invalid name, invalid email", report.errors().get(0).message());
+        assertTrue(report.errors().get(1).message().startsWith("Malformed JSON"));
+        assertEquals("Missing treatment", report.errors().get(2).message());
+
+        List<Booking> stored = repository.getAllBookings();
+        assertEquals(1, stored.get(0).getBookingNumber(), "Imported booking numbers should be replaced");
+        assertEquals(LocalDate.of(2019, 5, 1), stored.get(0).getDate(), "Past dates should be accepted");
+        assertEquals("Ola Nordmann", stored.get(1).getName());
+    }
+
+    /**
+     * Tests that CSV columns are found by their header and that quoted fields are unquoted.
+     */
+    @Test
+    public void testCsvWithQuotedFields() throws IOException {
+        String body = """
+                date,email,name,treatment
+                2025-06-01,kari@example.com,Kari Nordmann,"Massage, hot stone"
+                2025-06-02,ola@example.com,Ola Nordmann,"The ""deluxe"" facial"
+                06/03/2025,per@example.com,Per Persen,Facial
+                2025-06-04,per@example.com,Per Persen,"Facial
+                """;
+
+        BookingImportReport report = importer(BookingImporter.Format.CSV).importFrom(new StringReader(body));
+
+        assertEquals(2, report.imported());
+        assertEquals(List.of(new BookingImportReport.LineError(4, "Invalid date, expected yyyy-mm-dd"),
+                new BookingImportReport.LineError(5, "Unterminated quoted field")), report.errors());
+        assertEquals("Massage, hot stone", repository.getAllBookings().get(0).getTreatment());
+        assertEquals("The \"deluxe\" facial", repository.getAllBookings().get(1).getTreatment());
+    }
+
+    /**
+     * Tests that a CSV header without the required columns is refused.
+     */
+    @Test
+    public void testCsvWithoutRequiredColumns() {
+        assertThrows(IllegalArgumentException.class, () -> importer(BookingImporter.Format.CSV)
+                .importFrom(new StringReader("name,email,date\nKari Nordmann,kari@example.com,2025-06-01\n")));
+        assertTrue(repository.getAllBookings().isEmpty());
+    }
+
+    /**
+     * Tests that a large upload is stored in batches and that the report lists a
+     * bounded number of errors while still counting all of them.
+     */
+    @Test
+    public void testLargeUploadInBatches() throws IOException {
+        StringBuilder body = new StringBuilder("name,email,treatment,date\n");
+        for (int i = 0; i < 2500; i++) {
+            body.append("Kari Nordmann,kari@example.com,Facial,2025-06-01\n");
+            body.append("Kari Nordmann,kari,Facial,2025-06-01\n");
+        }
+
+        BookingImportReport report = importer(BookingImporter.Format.CSV).importFrom(new StringReader(body.toString()));
+
+        assertEquals(2500, report.imported());
+        assertEquals(2500, report.rejected());
+        assertEquals(BookingImporter.MAX_REPORTED_ERRORS, report.errors().size());
+        assertTrue(report.errorsTruncated());
+        assertEquals(List.of(500, 500, 500, 500, 500), batchSizes, "Each batch of lines should be stored with one call");
+        assertEquals(2500, repository.getAllBookings().get(2499).getBookingNumber());
+    }
+}
@@ -1,11 +1,15 @@
 package booking.springboot.restserver;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -21,6 +25,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import booking.core.Booking;
 
 /**
@@ -66,7 +71,7 @@ public class BookingRestControllerTest {
     @Test
     public void testCreateBooking() throws Exception {
         // Mock the addBooking method
-        doNothing().when(bookingRestService).addBooking(any(Booking.class));
+        when(bookingRestService.addBooking(any(Booking.class))).thenReturn(newBooking);
 
         this.mockMvc.perform(post("/api/bookings/add")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -83,7 +88,7 @@ public class BookingRestControllerTest {
      */
     @Test
     public void testGetAllBookings() throws Exception {
-        when(bookingRestService.loadAllBookingsFromFile()).thenReturn(List.of(newBooking));
+        when(bookingRestService.getAllBookingsEncoded()).thenReturn(encoded(1, List.of(newBooking)));
 
         this.mockMvc.perform(get("/api/bookings"))
                 .andDo(print()) // For debugging purposes
@@ -101,7 +106,7 @@ public class BookingRestControllerTest {
     @Test
     public void testGetBookingsByEmail() throws Exception {
         // Mock the getBookingsByEmail method to return a list with the new booking
-        when(bookingRestService.getBookingsByEmail()).thenReturn(List.of(newBooking));
+        when(bookingRestService.getBookingsByEmailEncoded()).thenReturn(encoded(1, List.of(newBooking)));
 
         this.mockMvc.perform(get("/api/bookings/email"))
                 .andDo(print()) // For debugging purposes
@@ -146,6 +151,226 @@ public class BookingRestControllerTest {
                 .andExpect(content().string("Failed to create booking: Database error"));
     }
 
+    /**
+     * Tests creating a batch of bookings.
+     * <p>
+     * Verifies that the list is handed to the service and that the result of
+     * each booking is returned, and that an oversized batch gives a bad request.
+     * </p>
+     */
+    @Test
+    public void testCreateBookings() throws Exception {
+        BookingBatchResult result = new BookingBatchResult(1, 1, List.of(
+                new BookingBatchResult.Item(0, newBooking, null),
+                new BookingBatchResult.Item(1, null, "Invalid email")));
+        when(bookingRestService.addBookingBatch(any())).thenReturn(result);
+
+        this.mockMvc.perform(post("/api/bookings/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[" + asJsonString(newBooking) + ", {}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.items[0].booking.bookingNumber").value(1))
+                .andExpect(jsonPath("$.items[1].error").value("Invalid email"));
+
+        when(bookingRestService.addBookingBatch(any())).thenThrow(new IllegalArgumentException("Too many"));
+        this.mockMvc.perform(post("/api/bookings/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Failed to create bookings: Too many"));
+    }
+
+    /**
+     * Tests importing newline-delimited JSON.
+     * <p>
+     * Verifies that the body is handed to the service as NDJSON and that the
+     * report of rejected lines is returned.
+     * </p>
+     */
+    @Test
+    public void testImportNdjson() throws Exception {
+        BookingImportReport report = new BookingImportReport(1, 1,
+                List.of(new BookingImportReport.LineError(2, "Invalid email")), false);
+        when(bookingRestService.importBookings(any(), eq(BookingImporter.Format.NDJSON))).thenReturn(report);
+
+        this.mockMvc.perform(post("/api/bookings/import")
+                .contentType("application/x-ndjson")
+                .content(asJsonString(newBooking) + "\n{}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("Invalid email"));
+    }
+
+    /**
+     * Tests importing CSV with a header that lacks required columns.
+     * <p>
+     * Verifies that the body is handed to the service as CSV and that a refused
+     * header gives a bad request.
+     * </p>
+     */
+    @Test
+    public void testImportCsvWithBadHeader() throws Exception {
+        when(bookingRestService.importBookings(any(), eq(BookingImporter.Format.CSV)))
+                .thenThrow(new IllegalArgumentException("Missing columns"));
+
+        this.mockMvc.perform(post("/api/bookings/import")
+                .contentType("text/csv")
+                .content("name\nPer Persen\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Failed to import bookings: Missing columns"));
+    }
+
+    /**
+     * Tests retrieving a page of bookings.
+     * <p>
+     * Verifies that the limit and cursor are passed on and that a malformed
+     * cursor gives a bad request.
+     * </p>
+     */
+    @Test
+    public void testGetBookingPage() throws Exception {
+        when(bookingRestService.getBookingPageEncoded("abc", 1))
+                .thenReturn(encoded(1, new BookingPage(List.of(newBooking), "def")));
+        when(bookingRestService.getBookingPageEncoded("bad", 100)).thenThrow(new IllegalArgumentException("Invalid cursor: bad"));
+
+        this.mockMvc.perform(get("/api/bookings").param("cursor", "abc").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bookings[0].email").value("per@gmail.com"))
+                .andExpect(jsonPath("$.nextCursor").value("def"));
+        this.mockMvc.perform(get("/api/bookings").param("cursor", "bad"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Failed to get bookings: Invalid cursor: bad"));
+    }
+
+    /**
+     * Tests searching bookings.
+     * <p>
+     * Verifies that the filters are parsed and passed on, that the limit
+     * defaults to a page, and that a malformed date gives a bad request.
+     * </p>
+     */
+    @Test
+    public void testSearchBookings() throws Exception {
+        when(bookingRestService.searchBookings("per@gmail.com", "Full body massage", LocalDate.of(2025, 1, 1), null, 100))
+                .thenReturn(List.of(newBooking));
+
+        this.mockMvc.perform(get("/api/bookings/search").param("email", "per@gmail.com")
+                        .param("treatment", "Full body massage").param("from", "2025-01-01"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Per Persen"));
+        this.mockMvc.perform(get("/api/bookings/search").param("to", "01/31/2025"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Failed to search bookings: invalid date, expected yyyy-mm-dd"));
+        verify(bookingRestService, times(1)).searchBookings(any(), any(), any(), any(), anyInt());
+    }
+
+    /**
+     * Tests streaming all bookings as newline-delimited JSON.
+     * <p>
+     * Verifies that the body written by the service is sent with the NDJSON content type.
+     * </p>
+     */
+    @Test
+    public void testStreamBookingsAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"bookingNumber\":1}\n".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(bookingRestService).writeAllBookings(any(), eq(true));
+
+        MvcResult result = this.mockMvc.perform(get("/api/bookings/stream").accept("application/x-ndjson"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        this.mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andExpect(content().string("{\"bookingNumber\":1}\n"));
+    }
+
+    /**
+     * Tests conditional requests for all bookings.
+     * <p>
+     * Verifies that the response carries an ETag, and that sending it back gives
+     * 304 Not Modified without loading the bookings until the data version changes.
+     * </p>
+     */
+    @Test
+    public void testGetAllBookingsNotModified() throws Exception {
+        when(bookingRestService.getDataVersion()).thenReturn(7L);
+        when(bookingRestService.getAllBookingsEncoded()).thenReturn(encoded(7, List.of(newBooking)));
+
+        String etag = this.mockMvc.perform(get("/api/bookings"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+        this.mockMvc.perform(get("/api/bookings").header("If-None-Match", "\"other\", " + etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(content().string(""));
+        verify(bookingRestService, times(1)).getAllBookingsEncoded();
+
+        when(bookingRestService.getDataVersion()).thenReturn(8L);
+        when(bookingRestService.getAllBookingsEncoded()).thenReturn(encoded(8, List.of(newBooking)));
+        this.mockMvc.perform(get("/api/bookings").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value("per@gmail.com"));
+    }
+
+    /**
+     * Tests conditional requests for the bookings of the last customer.
+     * <p>
+     * Verifies that the ETag follows the customer's version rather than the data version.
+     * </p>
+     */
+    @Test
+    public void testGetBookingsByEmailNotModified() throws Exception {
+        when(bookingRestService.getEmailVersion()).thenReturn(3L);
+        when(bookingRestService.getBookingsByEmailEncoded()).thenReturn(encoded(3, List.of(newBooking)));
+
+        String etag = this.mockMvc.perform(get("/api/bookings/email"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        this.mockMvc.perform(get("/api/bookings/email").header("If-None-Match", "W/" + etag))
+                .andExpect(status().isNotModified());
+        verify(bookingRestService, times(1)).getBookingsByEmailEncoded();
+    }
+
+    /**
+     * Tests that a client accepting gzip gets the compressed body with its own ETag.
+     * <p>
+     * Verifies that the cached compressed bytes are written as they are.
+     * </p>
+     */
+    @Test
+    public void testGetAllBookingsGzip() throws Exception {
+        EncodedResponse response = encoded(5, List.of(newBooking));
+        when(bookingRestService.getDataVersion()).thenReturn(5L);
+        when(bookingRestService.getAllBookingsEncoded()).thenReturn(response);
+
+        MvcResult result = this.mockMvc.perform(get("/api/bookings").header("Accept-Encoding", "br, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(content().bytes(response.gzip()))
+                .andReturn();
+        String etag = result.getResponse().getHeader("ETag");
+        assertTrue(etag.endsWith("-gz\""), "The compressed body should have its own ETag");
+
+        this.mockMvc.perform(get("/api/bookings").header("Accept-Encoding", "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$[0].email").value("per@gmail.com"));
+    }
+
+    /**
+     * Serializes a body the way the service caches it.
+     */
+    private static EncodedResponse encoded(long version, Object body) {
+        return EncodedResponse.of(version, asJsonString(body).getBytes(StandardCharsets.UTF_8));
+    }
+
     /**
      * Helper method to convert objects to JSON strings.
      * <p>
@@ -1,9 +1,15 @@
 package booking.springboot.restserver;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -11,13 +17,19 @@ import static org.mockito.Mockito.*;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
 import booking.core.Booking;
+import booking.persistence.BookingQuery;
+import booking.persistence.BookingRepository;
 import booking.persistence.BookingService;
+import booking.persistence.InMemoryBookingRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Unit tests for the {@link BookingRestService} class.
@@ -29,7 +41,7 @@ import booking.persistence.BookingService;
 public class BookingRestServiceTest {
 
     @Mock
-    private BookingService bookingService; // Mocked dependency
+    private BookingRepository bookingRepository; // Mocked dependency
 
     @InjectMocks
     private BookingRestService bookingRestService; // Class under test
@@ -39,6 +51,9 @@ public class BookingRestServiceTest {
 
     private List<Booking> mockBookings;
 
+    @TempDir
+    Path tempDir; // Keeps bookings added by the tests out of the real data file
+
     /**
      * Sets up the test environment by initializing mock data for bookings.
      * <p>
@@ -67,7 +82,7 @@ public class BookingRestServiceTest {
     @Test
     public void testLoadAllBookingsFromFile_UnmodifiableList() {
         // Arrange
-        when(bookingService.loadBookingsFromFile()).thenReturn(mockBookings);
+        when(bookingRepository.loadBookings()).thenReturn(mockBookings);
 
         // Act
         List<Booking> result = bookingRestService.loadAllBookingsFromFile();
@@ -88,7 +103,7 @@ public class BookingRestServiceTest {
     @Test
     public void testLoadAllBookingsFromFile_EmptyList() {
         // Arrange
-        when(bookingService.loadBookingsFromFile()).thenReturn(Collections.emptyList());
+        when(bookingRepository.loadBookings()).thenReturn(Collections.emptyList());
 
         // Act
         List<Booking> result = bookingRestService.loadAllBookingsFromFile();
@@ -113,7 +128,7 @@ public class BookingRestServiceTest {
                 LocalDate.of(2024, 12, 1));
 
         // Create a spy to monitor interactions with the bookingService
-        BookingService realBookingService = new BookingService();
+        BookingService realBookingService = new BookingService(tempDir.resolve("booking.json"), false);
         BookingService bookingServiceSpy = Mockito.spy(realBookingService);
 
         // Prevent the spy from calling the real writeToJSONFile method
@@ -123,7 +138,7 @@ public class BookingRestServiceTest {
         bookingRestService = new BookingRestService(bookingServiceSpy);
 
         // Act
-        bookingRestService.addBooking(newBooking);
+        Booking added = bookingRestService.addBooking(newBooking);
 
         // Assert
         // Verify that the addBooking method was called on the spy
@@ -131,7 +146,8 @@ public class BookingRestServiceTest {
 
         // Assert that the booking was added correctly
         List<Booking> bookings = bookingRestService.getBookingsByEmail();
-        assertTrue(bookings.contains(newBooking), "The returned bookings should contain the booking that was added");
+        assertTrue(bookings.contains(added), "The returned bookings should contain the booking that was added");
+        assertEquals(1, added.getBookingNumber(), "The server should assign the first free booking number");
     }
 
     /**
@@ -150,7 +166,7 @@ public class BookingRestServiceTest {
                 "Adding a null booking should throw NullPointerException");
 
         assertEquals("Booking is null", exception.getMessage(), "Exception message should match");
-        verify(bookingService, never()).addBooking(any());
+        verify(bookingRepository, never()).addBooking(any());
     }
 
     /**
@@ -165,7 +181,7 @@ public class BookingRestServiceTest {
         // Arrange
         List<Booking> mockFilteredBookings = Arrays.asList(
                 new Booking(1, "John Doe", "john@example.com", "Massage", LocalDate.of(2024, 11, 15)));
-        when(bookingService.getBookingsByEmail()).thenReturn(mockFilteredBookings);
+        when(bookingRepository.getBookingsByEmail()).thenReturn(mockFilteredBookings);
 
         // Act
         List<Booking> result = bookingRestService.getBookingsByEmail();
@@ -185,7 +201,7 @@ public class BookingRestServiceTest {
     @Test
     public void testGetBookingsByEmail_NoMatches() {
         // Arrange
-        when(bookingService.getBookingsByEmail()).thenReturn(Collections.emptyList());
+        when(bookingRepository.getBookingsByEmail()).thenReturn(Collections.emptyList());
 
         // Act
         List<Booking> result = bookingRestService.getBookingsByEmail();
@@ -195,4 +211,200 @@ public class BookingRestServiceTest {
         assertNotNull(result, "Returned list should not be null");
         assertNotSame(Collections.emptyList(), result, "Returned list should be a new instance");
     }
+
+    /**
+     * Tests paging through bookings with the returned cursors.
+     * <p>
+     * Verifies that each page asks the repository for one booking more than its
+     * limit, and that the last page has no cursor.
+     * </p>
+     */
+    @Test
+    public void testGetBookingPage_FollowsCursors() {
+        // Arrange
+        when(bookingRepository.getBookingsAfter(BookingRepository.FIRST_PAGE, 2)).thenReturn(List.of(booking1, booking2));
+        when(bookingRepository.getBookingsAfter(BookingRepository.FIRST_PAGE, 1)).thenReturn(List.of(booking1));
+
+        // Act
+        BookingPage first = bookingRestService.getBookingPage(null, 1);
+        when(bookingRepository.getBookingsAfter(1, 2)).thenReturn(List.of(booking2));
+        BookingPage second = bookingRestService.getBookingPage(first.nextCursor(), 1);
+
+        // Assert
+        assertEquals(List.of(booking1), first.bookings(), "The first page should hold the first booking");
+        assertEquals(1, BookingPage.bookingNumberOf(first.nextCursor()), "The cursor should encode the last number");
+        assertEquals(List.of(booking2), second.bookings(), "The second page should start after the cursor");
+        assertNull(second.nextCursor(), "The last page should have no cursor");
+        assertThrows(IllegalArgumentException.class, () -> bookingRestService.getBookingPage("not a cursor", 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> bookingRestService.getBookingPage(null, BookingRestService.MAX_PAGE_SIZE + 1));
+    }
+
+    /**
+     * Tests creating a batch of bookings.
+     * <p>
+     * Verifies that the valid bookings are stored with one repository call and
+     * that each booking's result is reported in request order.
+     * </p>
+     */
+    @Test
+    public void testAddBookingBatch_StoresValidBookingsTogether() {
+        // Arrange
+        LocalDate future = LocalDate.now().plusDays(7);
+        Booking valid1 = new Booking(0, "John Doe", "john@example.com", "Manicure", future);
+        Booking invalid = new Booking(0, "John Doe", "not-an-email", "Manicure", future);
+        Booking past = new Booking(0, "Jane Smith", "jane@example.com", "Manicure", LocalDate.now().minusDays(1));
+        Booking valid2 = new Booking(0, "Jane Smith", "jane@example.com", "Facial", future);
+        when(bookingRepository.addBookings(List.of(valid1, valid2))).thenReturn(List.of(
+                new Booking(7, "John Doe", "john@example.com", "Manicure", future),
+                new Booking(8, "Jane Smith", "jane@example.com", "Facial", future)));
+
+        // Act
+        BookingBatchResult result = bookingRestService.addBookingBatch(Arrays.asList(valid1, invalid, past, null, valid2));
+
+        // Assert
+        assertEquals(2, result.created());
+        assertEquals(3, result.rejected());
+        assertEquals(7, result.items().get(0).booking().getBookingNumber());
+        assertEquals("Invalid email", result.items().get(1).error());
+        assertEquals("Date in the past", result.items().get(2).error());
+        assertEquals("Expected a booking object", result.items().get(3).error());
+        assertEquals(8, result.items().get(4).booking().getBookingNumber());
+        assertEquals(4, result.items().get(4).index());
+        verify(bookingRepository, times(1)).addBookings(any());
+        assertThrows(IllegalArgumentException.class, () -> bookingRestService.addBookingBatch(
+                Collections.nCopies(BookingRestService.MAX_BATCH_SIZE + 1, valid1)));
+    }
+
+    /**
+     * Tests searching bookings.
+     * <p>
+     * Verifies that blank filters are left out of the query passed to the
+     * repository and that the limit is checked.
+     * </p>
+     */
+    @Test
+    public void testSearchBookings_BuildsQuery() {
+        // Arrange
+        BookingQuery query = new BookingQuery("john@example.com", null, LocalDate.of(2024, 11, 1), null, 10);
+        when(bookingRepository.searchBookings(query)).thenReturn(List.of(booking1));
+
+        // Act
+        List<Booking> result = bookingRestService.searchBookings(" john@example.com ", " ", LocalDate.of(2024, 11, 1),
+                null, 10);
+
+        // Assert
+        assertEquals(List.of(booking1), result, "The repository's matches should be returned");
+        assertThrows(IllegalArgumentException.class,
+                () -> bookingRestService.searchBookings(null, null, null, null, BookingRestService.MAX_PAGE_SIZE + 1));
+        verify(bookingRepository, times(1)).searchBookings(any());
+    }
+
+    /**
+     * Tests streaming more bookings than fit in one page as JSON and as NDJSON.
+     * <p>
+     * Verifies that every booking is written once, in booking-number order.
+     * </p>
+     */
+    @Test
+    public void testWriteAllBookings_AcrossPages() throws IOException {
+        // Arrange
+        InMemoryBookingRepository repository = new InMemoryBookingRepository();
+        for (int i = 0; i < BookingRestService.STREAM_PAGE_SIZE + 5; i++) {
+            repository.addBooking(new Booking(0, "John Doe", "john@example.com", "Massage", LocalDate.of(2024, 11, 15)));
+        }
+        bookingRestService = new BookingRestService(repository);
+
+        // Act
+        ByteArrayOutputStream array = new ByteArrayOutputStream();
+        bookingRestService.writeAllBookings(array, false);
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        bookingRestService.writeAllBookings(ndjson, true);
+
+        // Assert
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode bookings = mapper.readTree(array.toByteArray());
+        assertEquals(BookingRestService.STREAM_PAGE_SIZE + 5, bookings.size(), "The array should hold every booking");
+        assertEquals(BookingRestService.STREAM_PAGE_SIZE + 5, bookings.get(bookings.size() - 1).get("bookingNumber").asInt());
+        assertEquals("2024-11-15", bookings.get(0).get("date").asText(), "Dates should be written as ISO dates");
+        String[] lines = ndjson.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(BookingRestService.STREAM_PAGE_SIZE + 5, lines.length, "Each booking should be on its own line");
+        assertEquals(1, mapper.readTree(lines[0]).get("bookingNumber").asInt());
+    }
+
+    /**
+     * Tests the cache of serialized responses.
+     * <p>
+     * Verifies that a response is serialized once per data version, that the
+     * compressed bytes decompress to the plain bytes, and that a new booking
+     * makes the next request serialize the list again.
+     * </p>
+     */
+    @Test
+    public void testEncodedResponsesFollowDataVersion() throws IOException {
+        // Arrange
+        InMemoryBookingRepository repository = Mockito.spy(new InMemoryBookingRepository());
+        repository.addBooking(booking1);
+        bookingRestService = new BookingRestService(repository);
+
+        // Act
+        EncodedResponse first = bookingRestService.getAllBookingsEncoded();
+        EncodedResponse again = bookingRestService.getAllBookingsEncoded();
+        repository.addBooking(booking2);
+        EncodedResponse changed = bookingRestService.getAllBookingsEncoded();
+
+        // Assert
+        assertSame(first, again, "An unchanged version should be served from the cache");
+        verify(repository, times(2)).loadBookings(); // Once for each data version
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(first.gzip()))) {
+            assertArrayEquals(first.plain(), gzip.readAllBytes(), "Both encodings should hold the same JSON");
+        }
+        assertNotSame(first, changed, "A new booking should invalidate the entry");
+        JsonNode bookings = new ObjectMapper().readTree(changed.plain());
+        assertEquals(2, bookings.size(), "The new entry should hold both bookings");
+        assertEquals("2024-11-15", bookings.get(0).get("date").asText(), "Dates should be written as ISO dates");
+    }
+
+    /**
+     * Tests that the encoded bookings by email follow the customer's version.
+     */
+    @Test
+    public void testEncodedEmailResponse() throws IOException {
+        // Arrange
+        InMemoryBookingRepository repository = new InMemoryBookingRepository();
+        bookingRestService = new BookingRestService(repository);
+
+        // Act & Assert
+        assertNull(bookingRestService.getBookingsByEmailEncoded(), "No bookings should give no response");
+        repository.addBooking(booking1);
+        EncodedResponse john = bookingRestService.getBookingsByEmailEncoded();
+        assertSame(john, bookingRestService.getBookingsByEmailEncoded());
+        repository.addBooking(booking2);
+        JsonNode jane = new ObjectMapper().readTree(bookingRestService.getBookingsByEmailEncoded().plain());
+        assertEquals("jane@example.com", jane.get(0).get("email").asText(), "The most recent customer should be served");
+    }
+
+    /**
+     * Tests that the bookings by email are served after a restart by every engine
+     * that stores its bookings, including those whose version starts at 0 again.
+     */
+    @Test
+    public void testEncodedEmailResponseAfterRestart() throws IOException {
+        for (String engine : new String[] {"json", "log", "segmented", "striped", "jdbc"}) {
+            Path dataFile = tempDir.resolve(engine + ".json");
+            try (BookingRepository repository = BookingRepository.open(engine, dataFile)) {
+                assertNull(new BookingRestService(repository).getBookingsByEmailEncoded(),
+                        engine + ": no bookings should give no response");
+                repository.addBooking(booking1);
+                repository.addBooking(booking2);
+            }
+
+            try (BookingRepository reopened = BookingRepository.open(engine, dataFile)) {
+                EncodedResponse bookings = new BookingRestService(reopened).getBookingsByEmailEncoded();
+                assertNotNull(bookings, engine + ": stored bookings should be served after a restart");
+                JsonNode jane = new ObjectMapper().readTree(bookings.plain());
+                assertEquals("jane@example.com", jane.get(0).get("email").asText(), engine);
+            }
+        }
+    }
 }
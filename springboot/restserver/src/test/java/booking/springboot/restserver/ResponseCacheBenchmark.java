@@ -0,0 +1,101 @@
+package booking.springboot.restserver;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import booking.core.Booking;
+import booking.persistence.InMemoryBookingRepository;
+
+/**
+ * Measures the cost of answering {@code GET /api/bookings} with and without the
+ * cache of serialized responses in {@link BookingRestService}.
+ * <p>
+ * Not a unit test: run it manually with {@code main}, for example
+ * {@code java -cp <test classpath> booking.springboot.restserver.ResponseCacheBenchmark 10000}.
+ * Without the cache every request serializes the list, as Spring's JSON
+ * converter does, and compresses it when gzip is asked for; with the cache a
+ * request checks the data version and gets the stored bytes. HTTP handling is
+ * left out, since it costs the same either way. Allocation is measured per
+ * thread with {@code com.sun.management.ThreadMXBean}, looked up reflectively
+ * because the server module does not read the management modules.
+ * </p>
+ */
+public final class ResponseCacheBenchmark {
+
+    private static final long ROUND_NANOS = 2_000_000_000L;
+
+    private ResponseCacheBenchmark() {
+    }
+
+    /**
+     * A way of producing the response body.
+     */
+    @FunctionalInterface
+    private interface Request {
+        byte[] run() throws Exception;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args Optional number of bookings.
+     * @throws Exception If the benchmark fails.
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        InMemoryBookingRepository repository = new InMemoryBookingRepository();
+        for (int i = 0; i < count; i++) {
+            repository.addBooking(new Booking(0, "Customer " + i, "customer" + i + "@example.com", "Manicure",
+                    LocalDate.of(2024, 1, 1).plusDays(i % 730)));
+        }
+        BookingRestService service = new BookingRestService(repository);
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        System.out.printf("%,d bookings, %,d bytes of JSON, %,d bytes gzip-compressed%n", count,
+                service.getAllBookingsEncoded().plain().length, service.getAllBookingsEncoded().gzip().length);
+        run("serialize", () -> objectMapper.writeValueAsBytes(service.loadAllBookingsFromFile()));
+        run("serialize+gzip", () -> gzip(objectMapper.writeValueAsBytes(service.loadAllBookingsFromFile())));
+        run("cached", () -> service.getAllBookingsEncoded().plain());
+        run("cached gzip", () -> service.getAllBookingsEncoded().gzip());
+    }
+
+    private static void run(String label, Request request) throws Exception {
+        long sink = 0;
+        for (long end = System.nanoTime() + ROUND_NANOS / 2; System.nanoTime() < end;) {
+            sink += request.run().length; // Warm-up
+        }
+        Object threads = Class.forName("java.lang.management.ManagementFactory")
+                .getMethod("getThreadMXBean").invoke(null);
+        Method allocatedBytes = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getThreadAllocatedBytes", long.class);
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = (long) allocatedBytes.invoke(threads, threadId);
+        long start = System.nanoTime();
+        long requests = 0;
+        long elapsed;
+        do {
+            sink += request.run().length;
+            requests++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_NANOS);
+        long allocated = (long) allocatedBytes.invoke(threads, threadId) - allocatedBefore;
+        System.out.printf("%-15s %,12.0f requests/s  %,12d bytes allocated/request  (%d)%n", label,
+                requests / (elapsed / 1e9), allocated / requests, sink % 10);
+    }
+
+    private static byte[] gzip(byte[] plain) throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(plain);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -2,7 +2,6 @@ package booking.ui;
 
 import java.io.IOException;
 import java.time.LocalDate;
-import java.util.List;
 import java.util.logging.Logger;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -10,7 +9,6 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import booking.core.Booking;
 import booking.core.InputValidation;
 import booking.persistence.ApiClient;
-import booking.springboot.restserver.BookingRestService;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import javafx.fxml.FXML;
 import javafx.scene.control.ComboBox;
@@ -32,7 +30,6 @@ public class PrimaryController {
     private InputValidation validation;
     private final ApiClient apiClient = new ApiClient();
     private ObjectMapper objectMapper;
-    private BookingRestService service;
 
     private App appInstance;
     private Stage stage;
@@ -123,10 +120,8 @@ public class PrimaryController {
             return;
         }
 
-        // Create a Booking object
-        service = new BookingRestService();
-        List<Booking> bookings = service.loadAllBookingsFromFile();
-        Booking booking = new Booking(bookings.get(bookings.size() - 1).getBookingNumber() + 1, name, email, treatment, date);
+        // Create a Booking object; the server assigns the booking number
+        Booking booking = new Booking(0, name, email, treatment, date);
 
         // Serialize Booking to JSON
         String bookingToJson;